@@ -23,12 +23,11 @@ import shef.mt.features.util.Sentence;
 import shef.mt.features.util.Doc;
 import shef.mt.features.util.Paragraph;
 import shef.mt.features.util.DocLevelFeatureManager;
-import shef.mt.tools.Caser;
 import shef.mt.tools.DocLevelMissingResourceGenerator;
 import shef.mt.tools.ResourceProcessor;
 import shef.mt.tools.DocLevelProcessorFactory;
+import shef.mt.tools.Preprocessor;
 import shef.mt.util.PropertiesManager;
-import shef.mt.tools.Tokenizer;
 
 /**
  * Main class for the doc-level feature extraction pipeline.
@@ -52,6 +51,9 @@ public class DocLevelFeatureExtractor implements FeatureExtractor {
     
     private boolean tok;
     private String casing;
+    private Preprocessor sourcePreprocessor;
+    private Preprocessor targetPreprocessor;
+    private boolean preprocessorsCreated;
 
     private PropertiesManager resourceManager;
     private DocLevelFeatureManager featureManager;
@@ -291,60 +293,28 @@ public class DocLevelFeatureExtractor implements FeatureExtractor {
             return;
         }
 
-        if (this.casing!=null){
-            origSourceFile = new File(getSourceFile());
-            inputSourceFile = new File(sourceInputFolder + File.separator + origSourceFile.getName());
-            origTargetFile = new File(getTargetFile());
-            inputTargetFile = new File(targetInputFolder + File.separator + origTargetFile.getName());
-            String truecasePath = "";
-            if (this.casing.equals("lower")){
-                truecasePath = resourceManager.getProperty("tools.lowercase.path") + " -q ";
+        //Case and tokenize the copies in-process, without Perl:
+        try {
+            if (!preprocessorsCreated) {
+                //Models are loaded once, for all documents:
+                sourcePreprocessor = Preprocessor.create(resourceManager, "source", this.casing, tok);
+                targetPreprocessor = Preprocessor.create(resourceManager, "target", this.casing, tok);
+                preprocessorsCreated = true;
             }
-            else if (this.casing.equals("true")){
-                truecasePath = resourceManager.getString("tools.truecase.path") + " --model ";
+            if (sourcePreprocessor != null) {
+                String preprocessedSourceFile = inputSourceFile.getPath() + sourcePreprocessor.getExtension();
+                sourcePreprocessor.process(inputSourceFile.getPath(), preprocessedSourceFile);
+                this.sourceFile = preprocessedSourceFile;
+                System.out.println("New source file: " + sourceFile);
             }
-            Caser sourceCaser = new Caser(inputSourceFile.getPath(), inputSourceFile.getPath() + ".cased", truecasePath + resourceManager.getString("source.truecase.model"), forceRun);
-            Caser targetCaser = new Caser(inputTargetFile.getPath(), inputTargetFile.getPath() + ".cased", truecasePath + resourceManager.getString("target.truecase.model"), forceRun);
-            sourceCaser.run();
-            targetCaser.run();
-            this.sourceFile = sourceCaser.getCaser();
-            System.out.println("New source file: " + sourceFile);
-            this.targetFile = targetCaser.getCaser();
-            System.out.println("New target file: " + targetFile);
-        
-        }
-
-        if (tok) {
-            origSourceFile = new File(getSourceFile());
-            inputSourceFile = new File(sourceInputFolder + File.separator + origSourceFile.getName());
-            origTargetFile = new File(getTargetFile());
-            inputTargetFile = new File(targetInputFolder + File.separator + origTargetFile.getName());
-            
-            //run tokenizer for source
-            System.out.println("Running tokenizer for source file...");
-
-            //verify language support
-            String src_abbr = this.getResourceManager().getString("source.tokenizer.lang");
-
-            Tokenizer sourceTok = new Tokenizer(inputSourceFile.getPath(), inputSourceFile.getPath() + ".tok", resourceManager.getString("tools.tokenizer.path"), src_abbr, forceRun);
-
-            sourceTok.run();
-            //Update input paths:
-            this.sourceFile = sourceTok.getTok();
-            System.out.println("New source file: " + sourceFile);
-
-            //run tokenizer for target
-            System.out.println("Running tokenizer for source file...");
-
-            //verify language support
-            String tgt_abbr = this.getResourceManager().getString("target.tokenizer.lang");
-
-            Tokenizer targetTok = new Tokenizer(inputTargetFile.getPath(), inputTargetFile.getPath() + ".tok", resourceManager.getString("tools.tokenizer.path"), tgt_abbr, forceRun);
-
-            targetTok.run();
-            //Update input paths:
-            targetFile = targetTok.getTok();
-            System.out.println("New target file: " + targetFile);
+            if (targetPreprocessor != null) {
+                String preprocessedTargetFile = inputTargetFile.getPath() + targetPreprocessor.getExtension();
+                targetPreprocessor.process(inputTargetFile.getPath(), preprocessedTargetFile);
+                this.targetFile = preprocessedTargetFile;
+                System.out.println("New target file: " + targetFile);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not pre-process the input files", e);
         }
     }
 
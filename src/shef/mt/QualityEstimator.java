@@ -0,0 +1,247 @@
+package shef.mt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import shef.mt.features.util.FeatureManager;
+import shef.mt.features.util.Sentence;
+import shef.mt.tools.MissingResourceGenerator;
+import shef.mt.tools.Preprocessor;
+import shef.mt.tools.ResourceProcessor;
+import shef.mt.tools.SentenceLevelProcessorFactory;
+import shef.mt.util.PropertiesManager;
+
+/**
+ * Programmatic entry point for sentence-level feature extraction, meant to be
+ * embedded in other applications. Resources, processors and features are
+ * loaded once, when the object is created; sentence pairs are then passed as
+ * strings and their feature values returned as float matrices, without going
+ * through input or output files.<br> Processors that depend on files computed
+ * over the whole input (SRILM perplexities of models not in ARPA format,
+ * TreeTagger output, alignments, etc.) are not available, and the features
+ * that need them are dropped.<br> Sentences can be cased and tokenized
+ * in-process before their features are computed, as with the -case and -tok
+ * options of the feature extractors.<br>
+ * Instances can be used from several threads at once.
+ *
+ * @author GustavoH
+ */
+public class QualityEstimator implements FeatureExtractor {
+
+    private String sourceLang;
+    private String targetLang;
+
+    private PropertiesManager resourceManager;
+    private FeatureManager featureManager;
+
+    private ResourceProcessor[] sequentialSource;
+    private ResourceProcessor[] sequentialTarget;
+    private ResourceProcessor[] parallelSource;
+    private ResourceProcessor[] parallelTarget;
+    private final Object sequentialLock = new Object();
+    private ThreadLocal<FeatureManager> workerFeatureManager;
+    private Preprocessor sourcePreprocessor;
+    private Preprocessor targetPreprocessor;
+
+    private final AtomicInteger sentenceCounter = new AtomicInteger();
+
+    /**
+     * Creates a QualityEstimator for the default languages of the
+     * configuration.
+     *
+     * @param resourceManager the configuration
+     * @param featureConfig the path to the feature set configuration file
+     * @param featureList the indeces of the features to compute, or "all"
+     */
+    public QualityEstimator(PropertiesManager resourceManager, String featureConfig, String featureList) {
+        this(resourceManager, createFeatureManager(featureConfig, featureList), resourceManager.getString("sourceLang.default"), resourceManager.getString("targetLang.default"));
+    }
+
+    /**
+     * Creates a QualityEstimator and loads all the resources required by the
+     * features.
+     *
+     * @param resourceManager the configuration
+     * @param featureManager the features to compute, with its feature list set
+     * @param sourceLang the source language
+     * @param targetLang the target language
+     */
+    public QualityEstimator(PropertiesManager resourceManager, FeatureManager featureManager, String sourceLang, String targetLang) {
+        this.resourceManager = resourceManager;
+        this.featureManager = featureManager;
+        this.sourceLang = sourceLang;
+        this.targetLang = targetLang;
+        this.initialize();
+    }
+
+    private static FeatureManager createFeatureManager(String featureConfig, String featureList) {
+        FeatureManager result = new FeatureManager(featureConfig);
+        result.setFeatureList(featureList);
+        return result;
+    }
+
+    private void initialize() {
+        //Produce missing resources:
+        MissingResourceGenerator missingGenerator = new MissingResourceGenerator(this);
+        missingGenerator.produceMissingResources();
+
+        //Create processors:
+        SentenceLevelProcessorFactory processorFactory = new SentenceLevelProcessorFactory(this, true);
+        ResourceProcessor[][] resourceProcessors = processorFactory.getResourceProcessors();
+        sequentialSource = ResourceProcessor.select(resourceProcessors[0], true);
+        sequentialTarget = ResourceProcessor.select(resourceProcessors[1], true);
+        parallelSource = ResourceProcessor.select(resourceProcessors[0], false);
+        parallelTarget = ResourceProcessor.select(resourceProcessors[1], false);
+
+        //Drop features with missing dependencies before threads copy them:
+        featureManager.compilePlan();
+        workerFeatureManager = new ThreadLocal<FeatureManager>() {
+            @Override
+            protected FeatureManager initialValue() {
+                return featureManager.copy();
+            }
+        };
+    }
+
+    /**
+     * Sets how sentences are pre-processed; it must be called before features
+     * are computed.
+     *
+     * @param casing "lower", "true", or null not to change the case
+     * @param tok whether to tokenize sentences
+     * @throws IOException if the truecase models or the non-breaking prefixes
+     * of the tokenizer cannot be read
+     */
+    public void setPreprocessing(String casing, boolean tok) throws IOException {
+        sourcePreprocessor = Preprocessor.create(resourceManager, "source", casing, tok);
+        targetPreprocessor = Preprocessor.create(resourceManager, "target", casing, tok);
+    }
+
+    /**
+     * Computes the features of a list of sentence pairs.
+     *
+     * @param sources the source sentences
+     * @param targets the target sentences, aligned with sources
+     * @return one row of feature values per sentence pair, with columns in the
+     * order given by getFeatureIndeces()
+     */
+    public float[][] estimate(List<String> sources, List<String> targets) {
+        if (sources.size() != targets.size()) {
+            throw new IllegalArgumentException("Got " + sources.size() + " source and " + targets.size() + " target sentences.");
+        }
+        float[][] result = new float[sources.size()][];
+        FeatureManager fm = workerFeatureManager.get();
+
+        //Pre-process sentences, outside the lock:
+        String[] preprocessedSources = new String[result.length];
+        String[] preprocessedTargets = new String[result.length];
+        for (int i = 0; i < result.length; i++) {
+            preprocessedSources[i] = sources.get(i).trim();
+            preprocessedTargets[i] = targets.get(i).trim();
+            if (sourcePreprocessor != null) {
+                preprocessedSources[i] = sourcePreprocessor.process(preprocessedSources[i]).trim();
+            }
+            if (targetPreprocessor != null) {
+                preprocessedTargets[i] = targetPreprocessor.process(preprocessedTargets[i]).trim();
+            }
+        }
+
+        //Create source and target sentence objects:
+        ArrayList<Sentence> sourceSentences = new ArrayList<Sentence>(result.length);
+        ArrayList<Sentence> targetSentences = new ArrayList<Sentence>(result.length);
+
+        //Run sequential processors over the sentences of the request, which
+        //they receive at once, numbering sentences in the order they see them:
+        synchronized (sequentialLock) {
+            for (int i = 0; i < result.length; i++) {
+                int index = sentenceCounter.getAndIncrement();
+                sourceSentences.add(new Sentence(preprocessedSources[i], index));
+                targetSentences.add(new Sentence(preprocessedTargets[i], index));
+            }
+            for (ResourceProcessor processor : sequentialSource) {
+                processor.startSentences(sourceSentences);
+            }
+            for (ResourceProcessor processor : sequentialTarget) {
+                processor.startSentences(targetSentences);
+            }
+            for (int i = 0; i < result.length; i++) {
+                for (ResourceProcessor processor : sequentialSource) {
+                    processor.processNextSentence(sourceSentences.get(i));
+                }
+                for (ResourceProcessor processor : sequentialTarget) {
+                    processor.processNextSentence(targetSentences.get(i));
+                }
+            }
+        }
+        for (ResourceProcessor processor : parallelSource) {
+            processor.startSentences(sourceSentences);
+        }
+        for (ResourceProcessor processor : parallelTarget) {
+            processor.startSentences(targetSentences);
+        }
+        for (int i = 0; i < result.length; i++) {
+            Sentence sourceSentence = sourceSentences.get(i);
+            Sentence targetSentence = targetSentences.get(i);
+            for (ResourceProcessor processor : parallelSource) {
+                processor.processNextSentence(sourceSentence);
+            }
+            for (ResourceProcessor processor : parallelTarget) {
+                processor.processNextSentence(targetSentence);
+            }
+
+            //Run features for sentence pair:
+            result[i] = fm.runFeatureVector(sourceSentence, targetSentence).clone();
+        }
+        return result;
+    }
+
+    /**
+     * @return the indeces of the features computed, in output order
+     */
+    public ArrayList<String> getFeatureIndeces() {
+        return featureManager.getFeatureIndeces();
+    }
+
+    /**
+     * @return null, as sentences are not read from an input file
+     */
+    public String getSourceFile() {
+        return null;
+    }
+
+    /**
+     * @return null, as sentences are not read from an input file
+     */
+    public String getTargetFile() {
+        return null;
+    }
+
+    /**
+     * @return the sourceLang
+     */
+    public String getSourceLang() {
+        return sourceLang;
+    }
+
+    /**
+     * @return the targetLang
+     */
+    public String getTargetLang() {
+        return targetLang;
+    }
+
+    /**
+     * @return the resourceManager
+     */
+    public PropertiesManager getResourceManager() {
+        return resourceManager;
+    }
+
+    /**
+     * @return the featureManager
+     */
+    public FeatureManager getFeatureManager() {
+        return featureManager;
+    }
+}
@@ -9,6 +9,12 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
@@ -20,10 +26,9 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 import shef.mt.features.util.Sentence;
 import shef.mt.features.util.FeatureManager;
-import shef.mt.tools.Caser;
 import shef.mt.tools.MissingResourceGenerator;
+import shef.mt.tools.Preprocessor;
 import shef.mt.tools.ResourceProcessor;
-import shef.mt.tools.Tokenizer;
 import shef.mt.tools.SentenceLevelProcessorFactory;
 import shef.mt.util.PropertiesManager;
 
@@ -52,6 +57,8 @@ public class SentenceLevelFeatureExtractor implements FeatureExtractor {
     private boolean tok;
     private String casing;
 
+    private int threads = 1;
+
     private static boolean forceRun = false;
 
     public SentenceLevelFeatureExtractor(String[] args) {
@@ -121,32 +128,37 @@ public class SentenceLevelFeatureExtractor implements FeatureExtractor {
             BufferedReader sourceBR = new BufferedReader(new FileReader(this.getSourceFile()));
             BufferedReader targetBR = new BufferedReader(new FileReader(this.getTargetFile()));
 
-            //Process each sentence pair:
-            int sentenceCounter = 0;
+            if (this.threads > 1) {
+                //Process sentence pairs with a pool of worker threads:
+                this.processParallel(sourceBR, targetBR, outWriter, resourceProcessorsSource, resourceProcessorsTarget);
+            } else {
+                //Process each sentence pair:
+                int sentenceCounter = 0;
 
-            while (sourceBR.ready() && targetBR.ready()) {
-                //Create source and target sentence objects:
-                Sentence sourceSentence = new Sentence(sourceBR.readLine().trim(), sentenceCounter);
-                Sentence targetSentence = new Sentence(targetBR.readLine().trim(), sentenceCounter);
+                while (sourceBR.ready() && targetBR.ready()) {
+                    //Create source and target sentence objects:
+                    Sentence sourceSentence = new Sentence(sourceBR.readLine().trim(), sentenceCounter);
+                    Sentence targetSentence = new Sentence(targetBR.readLine().trim(), sentenceCounter);
 
-                //Run processors over source sentence:
-                for (ResourceProcessor processor : resourceProcessorsSource) {
-                    processor.processNextSentence(sourceSentence);
-                }
+                    //Run processors over source sentence:
+                    for (ResourceProcessor processor : resourceProcessorsSource) {
+                        processor.processNextSentence(sourceSentence);
+                    }
 
-                //Run processors over target sentence:
-                for (ResourceProcessor processor : resourceProcessorsTarget) {
-                    processor.processNextSentence(targetSentence);
-                }
+                    //Run processors over target sentence:
+                    for (ResourceProcessor processor : resourceProcessorsTarget) {
+                        processor.processNextSentence(targetSentence);
+                    }
 
-                //Run features for sentence pair:
-                String featureValues = getFeatureManager().runFeatures(sourceSentence, targetSentence).trim();
-                outWriter.write(featureValues);
+                    //Run features for sentence pair:
+                    String featureValues = getFeatureManager().runFeatures(sourceSentence, targetSentence).trim();
+                    outWriter.write(featureValues);
 
-                outWriter.newLine();
+                    outWriter.newLine();
 
-                //Increase sentence counter:
-                sentenceCounter++;
+                    //Increase sentence counter:
+                    sentenceCounter++;
+                }
             }
 
             System.out.println("Features will be saved in the following order:");
@@ -163,6 +175,96 @@ public class SentenceLevelFeatureExtractor implements FeatureExtractor {
         }
     }
 
+    /**
+     * Multi-threaded version of the sentence processing loop. Sequential
+     * processors run over the sentences in input order on the calling thread,
+     * while the remaining processors and the features run on a pool of worker
+     * threads, each one with its own copy of the FeatureManager. Lines are written to the
+     * output in input order.
+     */
+    private void processParallel(BufferedReader sourceBR, BufferedReader targetBR, BufferedWriter outWriter,
+            ResourceProcessor[] resourceProcessorsSource, ResourceProcessor[] resourceProcessorsTarget) throws IOException {
+        //Split processors into ordered reader stage and worker stage:
+        ResourceProcessor[] sequentialSource = ResourceProcessor.select(resourceProcessorsSource, true);
+        ResourceProcessor[] sequentialTarget = ResourceProcessor.select(resourceProcessorsTarget, true);
+        final ResourceProcessor[] parallelSource = ResourceProcessor.select(resourceProcessorsSource, false);
+        final ResourceProcessor[] parallelTarget = ResourceProcessor.select(resourceProcessorsTarget, false);
+
+        //Drop features with missing dependencies before workers copy them:
+        getFeatureManager().compilePlan();
+        final ThreadLocal<FeatureManager> workerFeatureManager = new ThreadLocal<FeatureManager>() {
+            @Override
+            protected FeatureManager initialValue() {
+                return getFeatureManager().copy();
+            }
+        };
+
+        //Buffer of pending results, kept in input order:
+        int capacity = this.threads * 64;
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        ExecutorService workers = Executors.newFixedThreadPool(this.threads);
+        try {
+            int sentenceCounter = 0;
+            while (sourceBR.ready() && targetBR.ready()) {
+                //Create source and target sentence objects:
+                final Sentence sourceSentence = new Sentence(sourceBR.readLine().trim(), sentenceCounter);
+                final Sentence targetSentence = new Sentence(targetBR.readLine().trim(), sentenceCounter);
+
+                //Run sequential processors over source and target sentences:
+                for (ResourceProcessor processor : sequentialSource) {
+                    processor.processNextSentence(sourceSentence);
+                }
+                for (ResourceProcessor processor : sequentialTarget) {
+                    processor.processNextSentence(targetSentence);
+                }
+
+                //Run remaining processors and features for sentence pair:
+                pending.add(workers.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        for (ResourceProcessor processor : parallelSource) {
+                            processor.processNextSentence(sourceSentence);
+                        }
+                        for (ResourceProcessor processor : parallelTarget) {
+                            processor.processNextSentence(targetSentence);
+                        }
+                        return workerFeatureManager.get().runFeatures(sourceSentence, targetSentence).trim();
+                    }
+                }));
+
+                //Write finished lines, waiting for the oldest one if the buffer is full:
+                while (!pending.isEmpty() && (pending.size() >= capacity || pending.peek().isDone())) {
+                    this.writeResult(outWriter, pending.poll());
+                }
+
+                //Increase sentence counter:
+                sentenceCounter++;
+            }
+
+            //Write remaining lines:
+            while (!pending.isEmpty()) {
+                this.writeResult(outWriter, pending.poll());
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void writeResult(BufferedWriter outWriter, Future<String> result) throws IOException {
+        try {
+            outWriter.write(result.get());
+            outWriter.newLine();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for feature values.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
     public void constructFolders() {
         //Create input folders:
         File f = new File(input);
@@ -219,61 +321,24 @@ public class SentenceLevelFeatureExtractor implements FeatureExtractor {
             return;
         }
         
-        if (this.casing!=null){
-            origSourceFile = new File(getSourceFile());
-            inputSourceFile = new File(sourceInputFolder + File.separator + origSourceFile.getName());
-            origTargetFile = new File(getTargetFile());
-            inputTargetFile = new File(targetInputFolder + File.separator + origTargetFile.getName());
-            String truecasePath = "";
-            if (this.casing.equals("lower")){
-                truecasePath = resourceManager.getProperty("tools.lowercase.path") + " -q ";
+        //Case and tokenize the copies in-process, without Perl:
+        try {
+            Preprocessor sourcePreprocessor = Preprocessor.create(resourceManager, "source", this.casing, tok);
+            Preprocessor targetPreprocessor = Preprocessor.create(resourceManager, "target", this.casing, tok);
+            if (sourcePreprocessor != null) {
+                String preprocessedSourceFile = inputSourceFile.getPath() + sourcePreprocessor.getExtension();
+                sourcePreprocessor.process(inputSourceFile.getPath(), preprocessedSourceFile);
+                this.sourceFile = preprocessedSourceFile;
+                System.out.println("New source file: " + sourceFile);
             }
-            else if (this.casing.equals("true")){
-                truecasePath = resourceManager.getString("tools.truecase.path") + " --model ";
+            if (targetPreprocessor != null) {
+                String preprocessedTargetFile = inputTargetFile.getPath() + targetPreprocessor.getExtension();
+                targetPreprocessor.process(inputTargetFile.getPath(), preprocessedTargetFile);
+                this.targetFile = preprocessedTargetFile;
+                System.out.println("New target file: " + targetFile);
             }
-            Caser sourceCaser = new Caser(inputSourceFile.getPath(), inputSourceFile.getPath() + ".cased", truecasePath + resourceManager.getString("source.truecase.model"), forceRun);
-            Caser targetCaser = new Caser(inputTargetFile.getPath(), inputTargetFile.getPath() + ".cased", truecasePath + resourceManager.getString("target.truecase.model"), forceRun);
-            sourceCaser.run();
-            targetCaser.run();
-            this.sourceFile = sourceCaser.getCaser();
-            System.out.println("New source file: " + sourceFile);
-            this.targetFile = targetCaser.getCaser();
-            System.out.println("New target file: " + targetFile);
-        
-        }
-
-        if (tok) {
-            origSourceFile = new File(getSourceFile());
-            inputSourceFile = new File(sourceInputFolder + File.separator + origSourceFile.getName());
-            origTargetFile = new File(getTargetFile());
-            inputTargetFile = new File(targetInputFolder + File.separator + origTargetFile.getName());
-            
-            //run tokenizer for source
-            System.out.println("Running tokenizer for source file...");
-
-            //verify language support
-            String src_abbr = this.getResourceManager().getString("source.tokenizer.lang");
-
-            String truecasePath = "";
-            Tokenizer sourceTok = new Tokenizer(inputSourceFile.getPath(), inputSourceFile.getPath() + ".tok", resourceManager.getString("tools.tokenizer.path"), src_abbr, forceRun);
-
-            sourceTok.run();
-            //Update input paths:
-            this.sourceFile = sourceTok.getTok();
-            System.out.println("New source file: " + sourceFile);
-
-            //run tokenizer for target
-            System.out.println("Running tokenizer for source file...");
-
-            //verify language support
-            String tgt_abbr = this.getResourceManager().getString("target.tokenizer.lang");
-
-            Tokenizer targetTok = new Tokenizer(inputTargetFile.getPath(), inputTargetFile.getPath() + ".tok", resourceManager.getString("tools.tokenizer.path"), tgt_abbr, forceRun);
-
-            targetTok.run();
-            //Update input paths:
-            targetFile = targetTok.getTok();
-            System.out.println("New target file: " + targetFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not pre-process the input files", e);
         }
     }
 
@@ -316,6 +381,10 @@ public class SentenceLevelFeatureExtractor implements FeatureExtractor {
         Option casing = OptionBuilder.withArgName("case").hasArgs(1)
                 .isRequired(false).create("case");
 
+        Option threads = OptionBuilder.withArgName("threads").hasArgs(1)
+                .withDescription("number of threads used to compute features")
+                .isRequired(false).create("threads");
+
         CommandLineParser parser = new PosixParser();
         Options options = new Options();
         options.addOption(help);
@@ -328,6 +397,7 @@ public class SentenceLevelFeatureExtractor implements FeatureExtractor {
         options.addOption(config);
         options.addOption(tokenize);
         options.addOption(casing);
+        options.addOption(threads);
 
         try {
             CommandLine line = parser.parse(options, args);
@@ -385,6 +455,10 @@ public class SentenceLevelFeatureExtractor implements FeatureExtractor {
             }
 
             tok = line.hasOption("tok");
+
+            if (line.hasOption("threads")) {
+                this.threads = Integer.parseInt(line.getOptionValue("threads"));
+            }
             
 
         } catch (ParseException exp) {
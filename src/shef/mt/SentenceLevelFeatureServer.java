@@ -0,0 +1,267 @@
+package shef.mt;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import shef.mt.features.util.FeatureManager;
+import shef.mt.util.PropertiesManager;
+
+/**
+ * Long-running server for sentence-level feature extraction. Resources,
+ * processors and features are loaded once at startup and kept in memory;
+ * sentence pairs are then received over HTTP on the loopback interface.<br>
+ * A POST request to /features carries one sentence pair per line, with source
+ * and target separated by a tab, and receives one line of tab-separated
+ * feature values per pair, in the same order. A GET request to /features
+ * returns the feature indeces in output order.<br> Features are computed by
+ * a QualityEstimator, so the same restrictions on processors apply.
+ *
+ * @author GustavoH
+ */
+public class SentenceLevelFeatureServer {
+
+    private String sourceLang;
+    private String targetLang;
+
+    private PropertiesManager resourceManager;
+    private FeatureManager featureManager;
+    private String configPath;
+
+    private int port = 8085;
+    private int threads = 1;
+
+    private boolean tok;
+    private String casing;
+
+    private QualityEstimator estimator;
+
+    private final AtomicInteger requestCounter = new AtomicInteger();
+
+    public SentenceLevelFeatureServer(String[] args) {
+        //Parse command line arguments:
+        System.out.println("\n********** Parsing arguments **********");
+        this.parseArguments(args);
+    }
+
+    public static void main(String[] args) throws IOException {
+        SentenceLevelFeatureServer server = new SentenceLevelFeatureServer(args);
+        server.initialize();
+        server.start();
+    }
+
+    /**
+     * Produces missing resources and loads every processor and feature.
+     */
+    public void initialize() {
+        long start = System.currentTimeMillis();
+
+        System.out.println("\n********** Loading resources **********");
+        estimator = new QualityEstimator(resourceManager, featureManager, sourceLang, targetLang);
+        try {
+            estimator.setPreprocessing(casing, tok);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not load the pre-processing models", e);
+        }
+
+        System.out.println("Features will be returned in the following order:");
+        featureManager.printFeatureIndeces();
+
+        long end = System.currentTimeMillis();
+        System.out.println("Resources loaded in " + (end - start) / 1000F + " seconds.");
+    }
+
+    /**
+     * Starts listening for requests on the loopback interface.
+     *
+     * @throws IOException if the server socket cannot be opened
+     */
+    public void start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/features", new FeatureHandler());
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.start();
+        System.out.println("Listening on " + server.getAddress());
+    }
+
+    /**
+     * Handles requests to /features.
+     */
+    private class FeatureHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            int requestId = requestCounter.incrementAndGet();
+            try {
+                if ("GET".equals(exchange.getRequestMethod())) {
+                    StringBuilder response = new StringBuilder();
+                    for (String index : estimator.getFeatureIndeces()) {
+                        response.append(index).append('\t');
+                    }
+                    respond(exchange, 200, response.toString().trim() + "\n", start);
+                    return;
+                }
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    respond(exchange, 405, "Only GET and POST are supported.\n", start);
+                    return;
+                }
+
+                //Read sentence pairs:
+                ArrayList<String> sources = new ArrayList<>();
+                ArrayList<String> targets = new ArrayList<>();
+                BufferedReader br = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), "utf-8"));
+                String line = br.readLine();
+                while (line != null) {
+                    if (!line.trim().isEmpty()) {
+                        String[] pair = line.split("\t");
+                        if (pair.length != 2) {
+                            respond(exchange, 400, "Expected one source<TAB>target pair per line.\n", start);
+                            return;
+                        }
+                        sources.add(pair[0]);
+                        targets.add(pair[1]);
+                    }
+                    line = br.readLine();
+                }
+
+                //Compute features:
+                float[][] values = estimator.estimate(sources, targets);
+                StringBuilder response = new StringBuilder();
+                for (float[] row : values) {
+                    for (int i = 0; i < row.length; i++) {
+                        if (i > 0) {
+                            response.append('\t');
+                        }
+                        response.append(row[i]);
+                    }
+                    response.append('\n');
+                }
+                respond(exchange, 200, response.toString(), start);
+                System.out.println("Request " + requestId + ": " + values.length + " sentence pairs in "
+                        + (System.nanoTime() - start) / 1000000F + " ms");
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                respond(exchange, 500, "Failed to compute features: " + e + "\n", start);
+            }
+        }
+
+        private void respond(HttpExchange exchange, int status, String body, long start) throws IOException {
+            byte[] bytes = body.getBytes("utf-8");
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.getResponseHeaders().set("X-Processing-Time-Ms", String.valueOf((System.nanoTime() - start) / 1000000F));
+            exchange.sendResponseHeaders(status, bytes.length);
+            OutputStream os = exchange.getResponseBody();
+            os.write(bytes);
+            os.close();
+        }
+    }
+
+    public void parseArguments(String[] args) {
+
+        Option lang = OptionBuilder.withArgName("lang").hasArgs(2)
+                .isRequired(false).create("lang");
+
+        Option feat = OptionBuilder.withArgName("feat").hasArgs(1)
+                .isRequired(false).create("feat");
+
+        Option config = OptionBuilder
+                .withArgName("config")
+                .withDescription("cofiguration file")
+                .hasArgs(1).isRequired(false).create("config");
+
+        Option featureset = OptionBuilder
+                .withArgName("featureset")
+                .withDescription("feature set cofiguration file")
+                .hasArgs(1).isRequired(false).create("featureset");
+
+        Option port = OptionBuilder.withArgName("port").hasArgs(1)
+                .withDescription("port to listen on")
+                .isRequired(false).create("port");
+
+        Option threads = OptionBuilder.withArgName("threads").hasArgs(1)
+                .withDescription("number of threads used to serve requests")
+                .isRequired(false).create("threads");
+
+        Option tokenize = OptionBuilder.withArgName("tok").hasArgs(0)
+                .withDescription("tokenize sentences")
+                .isRequired(false).create("tok");
+
+        Option casing = OptionBuilder.withArgName("case").hasArgs(1)
+                .withDescription("case sentences: lower, true or no")
+                .isRequired(false).create("case");
+
+        CommandLineParser parser = new PosixParser();
+        Options options = new Options();
+        options.addOption(featureset);
+        options.addOption(lang);
+        options.addOption(feat);
+        options.addOption(config);
+        options.addOption(port);
+        options.addOption(threads);
+        options.addOption(tokenize);
+        options.addOption(casing);
+
+        try {
+            CommandLine line = parser.parse(options, args);
+
+            if (line.hasOption("config")) {
+                resourceManager = new PropertiesManager(line.getOptionValue("config"));
+            } else {
+                resourceManager = new PropertiesManager();
+            }
+
+            if (line.hasOption("lang")) {
+                String[] langs = line.getOptionValues("lang");
+                sourceLang = langs[0];
+                targetLang = langs[1];
+            } else {
+                sourceLang = resourceManager.getString("sourceLang.default");
+                targetLang = resourceManager.getString("targetLang.default");
+            }
+
+            if (line.hasOption("featureset")) {
+                configPath = line.getOptionValue("featureset");
+            } else {
+                configPath = resourceManager.getString("featureConfig");
+            }
+            featureManager = new FeatureManager(configPath);
+
+            if (line.hasOption("feat")) {
+                featureManager.setFeatureList(line.getOptionValue("feat"));
+            } else {
+                featureManager.setFeatureList("all");
+            }
+
+            if (line.hasOption("port")) {
+                this.port = Integer.parseInt(line.getOptionValue("port"));
+            }
+
+            if (line.hasOption("threads")) {
+                this.threads = Integer.parseInt(line.getOptionValue("threads"));
+            }
+
+            tok = line.hasOption("tok");
+            if (line.hasOption("case") && !line.getOptionValue("case").equals("no")) {
+                this.casing = line.getOptionValue("case");
+            }
+        } catch (ParseException exp) {
+            System.out.println("Unexpected exception:" + exp.getMessage());
+        }
+    }
+}
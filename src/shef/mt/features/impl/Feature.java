@@ -19,19 +19,28 @@ import java.util.*;
  * at 0. When a new value is added the counter is incremented and point to the
  * last inserted key.
  *
+ * Float values are written into a float array, which is either owned by the
+ * feature or a slice of the output vector assigned by the FeatureManager. String
+ * values are kept aside and only used by features whose values are categorical.
+ *
  * @see Feature.run
  */
 public abstract class Feature {
 
-    private Integer featureCounter = 0;
-    private Map<Integer, String> values;
+    private int featureCounter = 0;
+    private float[] output;
+    private int outputOffset;
+    private int outputCapacity;
+    private String[] stringValues;
     private boolean computable;
     private String index;
     private String description;
     private HashSet<String> resources;
 
     public Feature() {
-        this.values = new HashMap<Integer, String>();
+        this.output = new float[4];
+        this.outputOffset = 0;
+        this.outputCapacity = -1;
         this.resources = new HashSet<String>();
     }
 
@@ -39,7 +48,37 @@ public abstract class Feature {
      * returns the value
      */
     public String getValue(Integer key) {
-        return values.get(key);
+        if (key < 1 || key > featureCounter) {
+            return null;
+        }
+        if (stringValues != null && stringValues[key - 1] != null) {
+            return stringValues[key - 1];
+        }
+        return String.valueOf(output[outputOffset + key - 1]);
+    }
+
+    /**
+     * returns a float value, or NaN if the value was set as a String
+     *
+     * @param key the position of the value, starting at 1
+     */
+    public float getFloatValue(int key) {
+        if (stringValues != null && stringValues[key - 1] != null) {
+            return Float.NaN;
+        }
+        return output[outputOffset + key - 1];
+    }
+
+    /**
+     * @param key the position of the value, starting at 1
+     * @return the String value at that position, or null if it was set as a
+     * float
+     */
+    public String getStringValue(int key) {
+        if (stringValues == null || key > stringValues.length) {
+            return null;
+        }
+        return stringValues[key - 1];
     }
 
     /**
@@ -48,8 +87,16 @@ public abstract class Feature {
      * @param value the new value
      */
     public void setValue(float value) {
+        if (featureCounter == outputCapacity) {
+            //More values than the slice can hold, so go back to own storage:
+            float[] own = new float[Math.max(4, featureCounter * 2)];
+            System.arraycopy(output, outputOffset, own, 0, featureCounter);
+            setOutput(own, 0, -1);
+        } else if (outputCapacity == -1 && featureCounter == output.length) {
+            output = Arrays.copyOf(output, output.length * 2);
+        }
+        output[outputOffset + featureCounter] = value;
         this.featureCounter++;
-        this.values.put(featureCounter, String.valueOf(value));
     }
 
     /**
@@ -58,8 +105,38 @@ public abstract class Feature {
      * @param value the new value
      */
     public void setValue(String value) {
-        this.featureCounter++;
-        this.values.put(featureCounter, value);
+        int key = this.featureCounter;
+        setValue(Float.NaN);
+        if (stringValues == null) {
+            stringValues = new String[Math.max(4, featureCounter)];
+        } else if (key >= stringValues.length) {
+            stringValues = Arrays.copyOf(stringValues, Math.max(stringValues.length * 2, featureCounter));
+        }
+        stringValues[key] = value;
+    }
+
+    /**
+     * Makes the feature write its float values into a slice of an array
+     * instead of its own storage.
+     *
+     * @param buffer the array the values are written into
+     * @param offset the position of the first value in the array
+     * @param capacity the number of values the slice can hold, or -1 if the
+     * array belongs to the feature and can be grown
+     */
+    public void setOutput(float[] buffer, int offset, int capacity) {
+        this.output = buffer;
+        this.outputOffset = offset;
+        this.outputCapacity = capacity;
+    }
+
+    /**
+     * @param buffer an array
+     * @return true if the float values of the feature are written into the
+     * given array
+     */
+    public boolean writesTo(float[] buffer) {
+        return output == buffer;
     }
 
 
@@ -67,7 +144,14 @@ public abstract class Feature {
      * returns a string representation of the Feature value
      */
     public String toString() {
-        return this.values.toString();
+        StringBuilder result = new StringBuilder("{");
+        for (int i = 1; i <= featureCounter; i++) {
+            if (i > 1) {
+                result.append(", ");
+            }
+            result.append(i).append('=').append(getValue(i));
+        }
+        return result.append('}').toString();
     }
 
     /**
@@ -165,10 +249,9 @@ public abstract class Feature {
      * @author José de Souza (desouza@fbk.eu)
      */
     public void reset() {
-        // if the number of items in the hash is too high,
-        // consider using a new instance of HashMap instead of using clear()
-        // José de Souza
-        this.values.clear();
+        if (this.stringValues != null) {
+            Arrays.fill(this.stringValues, null);
+        }
         this.featureCounter = 0;
     }
 
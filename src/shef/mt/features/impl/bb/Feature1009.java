@@ -1,6 +1,7 @@
 package shef.mt.features.impl.bb;
 
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
@@ -22,6 +23,6 @@ public class Feature1009 extends Feature {
     @Override
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
-        setValue((Float) source.getValue("logprob"));
+        setValue(source.getFloat(SentenceKey.LOGPROB));
     }
 }
@@ -4,6 +4,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * source sentence perplexity
@@ -22,6 +23,6 @@ public class Feature1010 extends Feature {
     @Override
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
-        setValue((Float) source.getValue("ppl"));
+        setValue(source.getFloat(SentenceKey.PPL));
     }
 }
@@ -4,6 +4,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  *
@@ -20,6 +21,6 @@ public class Feature1011 extends Feature {
     @Override
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
-        setValue((Float) source.getValue("ppl1"));
+        setValue(source.getFloat(SentenceKey.PPL1));
     }
 }
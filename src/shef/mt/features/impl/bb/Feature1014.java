@@ -4,6 +4,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  *
@@ -21,6 +22,6 @@ public class Feature1014 extends Feature {
     @Override
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
-        setValue((Float) target.getValue("ppl1"));
+        setValue(target.getFloat(SentenceKey.PPL1));
     }
 }
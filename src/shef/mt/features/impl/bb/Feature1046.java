@@ -8,6 +8,7 @@ import java.util.HashSet;
 import java.util.*;
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * average unigram frequency in quartile_1 of frequency (lower frequency words)
@@ -39,7 +40,7 @@ public class Feature1046 extends Feature {
         int count = 0;
         int freq;
         int cutOff;
-        LanguageModel lm = (LanguageModel) source.getValue("ngramcount");
+        LanguageModel lm = source.getValue(SentenceKey.NGRAM_COUNT);
         cutOff = lm.getCutOff(size, quart);
         while (it.hasNext()) {
             ngram = it.next();
@@ -9,6 +9,7 @@ import java.util.Iterator;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.tools.LanguageModel;
 
 /**
@@ -40,7 +41,7 @@ public class Feature1047 extends Feature {
         String ngram;
         int count = 0;
         int freq;
-        LanguageModel lm = (LanguageModel) source.getValue("ngramcount");
+        LanguageModel lm = source.getValue(SentenceKey.NGRAM_COUNT);
         int cutOffLow = lm.getCutOff(size, quart - 1);
         int cutOffHigh = lm.getCutOff(size, quart);
         while (it.hasNext()) {
@@ -10,6 +10,7 @@ import java.util.Iterator;
 import shef.mt.features.impl.Feature;
 import static shef.mt.features.impl.bb.Feature1047.size;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.tools.LanguageModel;
 
 /**
@@ -42,7 +43,7 @@ public class Feature1049 extends Feature {
         int count = 0;
         int freq;
         int totalFreq = 0;
-        LanguageModel lm = (LanguageModel) source.getValue("ngramcount");
+        LanguageModel lm = source.getValue(SentenceKey.NGRAM_COUNT);
         int cutOffLow = lm.getCutOff(size, quart - 1);
         int cutOffHigh = lm.getCutOff(size, quart);
         while (it.hasNext()) {
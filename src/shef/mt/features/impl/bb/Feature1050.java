@@ -9,6 +9,7 @@ import java.util.Iterator;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.tools.LanguageModel;
 
 /**
@@ -41,7 +42,7 @@ public class Feature1050 extends Feature {
         int count = 0;
         int freq;
         int totalFreq = 0;
-        LanguageModel lm = (LanguageModel) source.getValue("ngramcount");
+        LanguageModel lm = source.getValue(SentenceKey.NGRAM_COUNT);
         int cutOff = lm.getCutOff(size, quart);
         while (it.hasNext()) {
             ngram = it.next();
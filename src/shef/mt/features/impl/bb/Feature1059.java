@@ -8,6 +8,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.tools.LanguageModel;
 
 /**
@@ -39,7 +40,7 @@ public class Feature1059 extends Feature {
             return;
         }
         int count = 0;
-        LanguageModel lm = (LanguageModel)source.getValue("ngramcount");
+        LanguageModel lm = source.getValue(SentenceKey.NGRAM_COUNT);
         for (String ngram : unique) {
             if (lm.getFreq(ngram, size) > 0) {
                 count++;
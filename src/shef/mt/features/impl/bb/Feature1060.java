@@ -8,6 +8,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.tools.LanguageModel;
 
 /**
@@ -35,7 +36,7 @@ public class Feature1060 extends Feature {
         ArrayList<String> ngrams = source.getNGrams(size);
         HashSet<String> unique = new HashSet<String>(ngrams);
         int count = 0;
-        LanguageModel lm = (LanguageModel)source.getValue("ngramcount");
+        LanguageModel lm = source.getValue(SentenceKey.NGRAM_COUNT);
         for (String ngram : unique) {
             if (lm.getFreq(ngram, size) > 0) {
                 count++;
@@ -2,6 +2,7 @@ package shef.mt.features.impl.bb;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * absolute difference between number of periods in source and target normalised
@@ -34,10 +35,10 @@ public class Feature1063 extends Feature {
 
         float noTokensSource = 1;
         float noTokensTarget = 1;
-        if (source.isSet("noTokens")) {
+        if (source.isSet(SentenceKey.NO_TOKENS)) {
             noTokensSource = source.getNoTokens();
         }
-        if (target.isSet("noTokens")) {
+        if (target.isSet(SentenceKey.NO_TOKENS)) {
             noTokensTarget = target.getNoTokens();
         }
 
@@ -2,6 +2,7 @@ package shef.mt.features.impl.bb;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * percentage of punctuation marks in source
@@ -76,12 +77,12 @@ public class Feature1074 extends Feature {
         }
 
         float noTokensSource = 1;
-        if (source.isSet("noTokens")) {
+        if (source.isSet(SentenceKey.NO_TOKENS)) {
             noTokensSource = source.getNoTokens();
         }
         setValue(countS / noTokensSource);
 
-        source.setValue("noPunct", countS);
+        source.setInt(SentenceKey.NO_PUNCT, countS);
 
 
     }
@@ -2,6 +2,7 @@ package shef.mt.features.impl.bb;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * percentage of punctuation marks in target
@@ -77,11 +78,11 @@ public class Feature1075 extends Feature {
 
 
         float noTokensTarget = 1;
-        if (target.isSet("noTokens")) {
+        if (target.isSet(SentenceKey.NO_TOKENS)) {
             noTokensTarget = target.getNoTokens();
         }
 
-        target.setValue("noPunct", countT);
+        target.setInt(SentenceKey.NO_PUNCT, countT);
         setValue(countT / noTokensTarget);
 
 
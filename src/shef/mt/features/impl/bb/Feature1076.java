@@ -4,6 +4,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * absolute difference between number of punctuation marks between source and
@@ -29,12 +30,12 @@ public class Feature1076 extends Feature {
 
         float noPunctS = 0;
         float noPunctT = 0;
-        if (source.isSet("noPunct")) {
-            noPunctS = (Integer) source.getValue("noPunct");
+        if (source.isSet(SentenceKey.NO_PUNCT)) {
+            noPunctS = source.getInt(SentenceKey.NO_PUNCT);
         }
 
-        if (target.isSet("noPunct")) {
-            noPunctT = (Integer) target.getValue("noPunct");
+        if (target.isSet(SentenceKey.NO_PUNCT)) {
+            noPunctT = target.getInt(SentenceKey.NO_PUNCT);
         }
 
         setValue(Math.abs(noPunctS - noPunctT) / noTokensTarget);
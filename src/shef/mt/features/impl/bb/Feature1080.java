@@ -4,6 +4,7 @@
 package shef.mt.features.impl.bb;
 
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.features.util.StringOperations;
 import java.util.StringTokenizer;
 
@@ -30,11 +31,11 @@ public class Feature1080 extends Feature {
         // TODO Auto-generated method stub
         float noTokens;
         StringTokenizer st = new StringTokenizer(source.getText());
-        if (source.isSet("noTokens")) {
+        if (source.isSet(SentenceKey.NO_TOKENS)) {
             noTokens = source.getNoTokens();
         } else {
             noTokens = st.countTokens();
-            source.setValue("noTokens", noTokens);
+            source.setInt(SentenceKey.NO_TOKENS, (int) noTokens);
         }
         String token;
         int count = 0;
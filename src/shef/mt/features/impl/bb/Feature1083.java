@@ -6,6 +6,7 @@ package shef.mt.features.impl.bb;
 import shef.mt.features.impl.Feature;
 import java.util.*;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  *
@@ -29,7 +30,7 @@ public class Feature1083 extends Feature {
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
         float noWords = source.getNoTokens();
-        float noContent = (Integer) source.getValue("contentWords");
+        float noContent = source.getInt(SentenceKey.CONTENT_WORDS);
         setValue(noContent / noWords);
     }
 }
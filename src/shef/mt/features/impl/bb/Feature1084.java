@@ -7,6 +7,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * percentage of content words in the target
@@ -29,7 +30,7 @@ public class Feature1084 extends Feature {
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
         float noWords = target.getNoTokens();
-        float noContent = (Integer) target.getValue("contentWords");
+        float noContent = target.getInt(SentenceKey.CONTENT_WORDS);
         setValue(noContent / noWords);
 
     }
@@ -7,6 +7,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * ratio of percentage of content words in the source and target
@@ -30,10 +31,10 @@ public class Feature1085 extends Feature {
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
         float noWords = source.getNoTokens();
-        float noContent = (Integer) source.getValue("contentWords");
+        float noContent = source.getInt(SentenceKey.CONTENT_WORDS);
         float perc1 = noContent / noWords;
         noWords = target.getNoTokens();
-        noContent = (Integer) target.getValue("contentWords");
+        noContent = target.getInt(SentenceKey.CONTENT_WORDS);
         float perc2 = noContent / noWords;
         if (perc1 == 0 || perc2 == 0) {
             setValue(0);
@@ -4,6 +4,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * LM log probability of POS of the target
@@ -26,6 +27,6 @@ public class Feature1086 extends Feature {
     @Override
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
-        setValue((Float) target.getValue("poslogprob"));
+        setValue(target.getFloat(SentenceKey.POS_LOGPROB));
     }
 }
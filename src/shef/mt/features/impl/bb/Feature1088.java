@@ -7,6 +7,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * Percentage of nouns in the source document
@@ -29,7 +30,7 @@ public class Feature1088 extends Feature {
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
         int noWords = source.getNoTokens();
-        float noNouns = (Integer) source.getValue("nouns");
+        float noNouns = source.getInt(SentenceKey.NOUNS);
         setValue(noNouns / noWords);
 
     }
@@ -7,6 +7,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * percentage of verbs in the source
@@ -29,7 +30,7 @@ public class Feature1089 extends Feature {
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
         float noWords = source.getNoTokens();
-        float noVerbs = (Integer) source.getValue("verbs");
+        float noVerbs = source.getInt(SentenceKey.VERBS);
         setValue(noVerbs / noWords);
 
     }
@@ -7,6 +7,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * percentage of nouns in the target
@@ -29,7 +30,7 @@ public class Feature1090 extends Feature {
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
         float noWords = target.getNoTokens();
-        float noNouns = (Integer) target.getValue("nouns");
+        float noNouns = target.getInt(SentenceKey.NOUNS);
         setValue(noNouns / noWords);
 
     }
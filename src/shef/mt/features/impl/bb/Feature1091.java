@@ -7,6 +7,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * percentage of verbs in the target
@@ -29,7 +30,7 @@ public class Feature1091 extends Feature {
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
         float noWords = target.getNoTokens();
-        float noVerbs = (Integer) target.getValue("verbs");
+        float noVerbs = target.getInt(SentenceKey.VERBS);
         setValue((float) noVerbs / noWords);
 
     }
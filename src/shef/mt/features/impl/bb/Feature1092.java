@@ -7,6 +7,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  *
@@ -31,10 +32,10 @@ public class Feature1092 extends Feature {
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
         float noWords = source.getNoTokens();
-        float noContent = (Integer) source.getValue("nouns");
+        float noContent = source.getInt(SentenceKey.NOUNS);
         float perc1 = (float) noContent / noWords;
         noWords = target.getNoTokens();
-        noContent = (Integer) target.getValue("nouns");
+        noContent = target.getInt(SentenceKey.NOUNS);
         float perc2 = (float) noContent / noWords;
         if (perc2 == 0) {
             setValue(0);
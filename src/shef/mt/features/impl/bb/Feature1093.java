@@ -7,6 +7,7 @@ import java.util.HashSet;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * ratio of percentage of verbs in the source and target
@@ -31,11 +32,11 @@ public class Feature1093 extends Feature {
         // TODO Auto-generated method stub
 
         float noWords = source.getNoTokens();
-        float noContent = (Integer) source.getValue("verbs");
+        float noContent = source.getInt(SentenceKey.VERBS);
 
         float perc1 = (float) noContent / noWords;
         noWords = target.getNoTokens();
-        noContent = (Integer) target.getValue("verbs");
+        noContent = target.getInt(SentenceKey.VERBS);
 
         float perc2 = (float) noContent / noWords;
 
@@ -5,6 +5,7 @@ package shef.mt.features.impl.bb;
 
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * @author Catalina Hallett
@@ -24,7 +25,7 @@ public class Feature1200 extends Feature {
     @Override
     public void run(Sentence source, Sentence target) {
         // TODO Auto-generated method stub
-        int nouns = (Integer) source.getValue("nouns");
+        int nouns = source.getInt(SentenceKey.NOUNS);
         setValue(nouns);
     }
 }
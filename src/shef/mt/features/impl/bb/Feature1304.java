@@ -1,11 +1,8 @@
 package shef.mt.features.impl.bb;
 
-import java.util.HashMap;
-import java.util.HashSet;
-
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
-import shef.mt.tools.Triggers;
+import shef.mt.tools.TriggersProcessor;
 
 /**
  * source-target sentence inter lingual mutual information
@@ -26,24 +23,6 @@ public class Feature1304 extends Feature {
 
     @Override
     public void run(Sentence source, Sentence target) {
-        float som = 0;
-        int nb = 0;
-        HashMap<String,Integer> phrasesTarget = (HashMap<String,Integer>) target.getValue("phrases");
-        HashMap<String,Integer> phrasesSource = (HashMap<String,Integer>) source.getValue("phrases");
-        Triggers ilt = (Triggers) target.getValue("ilt");
-        
-        for( String phraseSource : phrasesSource.keySet() ){
-            for( String phraseTarget : phrasesTarget.keySet() ){
-                    som += ilt.getScore(phraseSource, phraseTarget);
-                    nb++;
-            }
-        }
-        if ( som == 0 )
-            setValue(new Float(0));
-        else
-            setValue(som/nb);
-   
-
-        //setValue((Float)target.getValue("InterLingualSourceTargetScore"));
+        setValue(TriggersProcessor.getInterLingualScore(source, target));
     }
 }
@@ -1,6 +1,5 @@
 package shef.mt.features.impl.bb;
 
-import java.util.HashSet;
 import shef.mt.features.impl.Feature;
 import shef.mt.features.util.Sentence;
 import shef.mt.tools.GlobalLexicon;
@@ -31,9 +30,9 @@ public class Feature1400 extends Feature {
         this.addResource("globallexicon");
     }
 
-    public static Double geometricMean(Double[] probs) {
-        Double sum = 0.0;
-        for (Double w: probs) {
+    public static double geometricMean(double[] probs) {
+        double sum = 0.0;
+        for (double w: probs) {
             sum += w;
         }
         return Math.pow(sum, 1.0 / probs.length);
@@ -41,20 +40,9 @@ public class Feature1400 extends Feature {
         
     @Override
     public void run(Sentence source, Sentence target) {
-        String[] s_tokens = source.getTokens();
-        String[] t_tokens = target.getTokens();
-        Double[] probs = new Double[t_tokens.length];
-        
-        Integer prob_idx = 0;
-        for (String tw : t_tokens) {
-            Double p = GlobalLexicon.getBias(tw);
-            for (String sw : s_tokens) {
-                p += GlobalLexicon.get(sw, tw);
-            }
-            p = 1./(1.+ Math.exp(-p));
-            probs[prob_idx] = p;
-            prob_idx++;
-        }
-        setValue(geometricMean(probs).floatValue());
+        int[] s_ids = GlobalLexicon.getSourceIds(source.getTokens());
+        int[] t_ids = GlobalLexicon.getTargetIds(target.getTokens());
+        double[] probs = GlobalLexicon.score(s_ids, t_ids);
+        setValue((float) geometricMean(probs));
     }
 }
@@ -3,6 +3,7 @@ package shef.mt.features.impl.wce;
 import edu.stanford.nlp.util.ArrayUtils;
 import shef.mt.features.impl.WordLevelFeature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.tools.LanguageModel;
 
 public class WordLevelFeature1015 extends WordLevelFeature {
@@ -20,7 +21,7 @@ public class WordLevelFeature1015 extends WordLevelFeature {
         String[] result = new String[target.getNoTokens()];
 
         //Get alignments object:
-        LanguageModel lm = (LanguageModel) target.getValue("ngramcount");
+        LanguageModel lm = target.getValue(SentenceKey.NGRAM_COUNT);
 
         //Ge tokens from target sentence:
         String[] targetTokens = target.getTokens();
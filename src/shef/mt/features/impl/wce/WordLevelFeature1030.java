@@ -4,6 +4,7 @@ import edu.stanford.nlp.util.ArrayUtils;
 import java.util.ArrayList;
 import shef.mt.features.impl.WordLevelFeature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.tools.LanguageModel;
 
 public class WordLevelFeature1030 extends WordLevelFeature {
@@ -22,7 +23,7 @@ public class WordLevelFeature1030 extends WordLevelFeature {
         String[] result = new String[target.getNoTokens()];
 
         //Get alignments object:
-        LanguageModel lm = (LanguageModel) target.getValue("posngramcount");
+        LanguageModel lm = target.getValue(SentenceKey.POS_NGRAM_COUNT);
 
         //Ge tokens from target sentence:
         ArrayList<String> targetPOSTokens = (ArrayList<String>) target.getValue("postags");
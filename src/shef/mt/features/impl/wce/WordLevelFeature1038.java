@@ -4,6 +4,7 @@ import edu.stanford.nlp.util.ArrayUtils;
 import java.util.HashMap;
 import shef.mt.features.impl.WordLevelFeature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.tools.LanguageModel;
 
 public class WordLevelFeature1038 extends WordLevelFeature {
@@ -22,7 +23,7 @@ public class WordLevelFeature1038 extends WordLevelFeature {
         String[] result = new String[target.getNoTokens()];
 
         //Get alignments object:
-        LanguageModel lm = (LanguageModel) source.getValue("ngramcount");
+        LanguageModel lm = source.getValue(SentenceKey.NGRAM_COUNT);
 
         //Get alignments:
         HashMap<Integer, Integer> alignments = (HashMap<Integer, Integer>) target.getValue("alignments.file");
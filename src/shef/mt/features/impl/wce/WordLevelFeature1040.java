@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import shef.mt.features.impl.WordLevelFeature;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.tools.LanguageModel;
 
 public class WordLevelFeature1040 extends WordLevelFeature {
@@ -24,7 +25,7 @@ public class WordLevelFeature1040 extends WordLevelFeature {
         String[] result = new String[target.getNoTokens()];
 
         //Get language model object:
-        LanguageModel lm = (LanguageModel) source.getValue("posngramcount");
+        LanguageModel lm = source.getValue(SentenceKey.POS_NGRAM_COUNT);
 
         //Get alignments:
         HashMap<Integer, Integer> alignments = (HashMap<Integer, Integer>) target.getValue("alignments.file");
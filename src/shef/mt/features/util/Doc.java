@@ -10,21 +10,67 @@ public class Doc {
 	private Paragraph[] paragraphs;
         private ArrayList<Sentence> sentences = new ArrayList<>();
 	private int index;
-        private HashMap<String, Object> values;
+        private ValueSlots values;
         private String document;
 
 	public Doc(Paragraph[] p, int index) {
 		this.paragraphs=p;
 		this.index = index;
-                this.values = new HashMap<String, Object>();
+                this.values = new ValueSlots();
     	}
         public Doc(ArrayList<Sentence> s, int index) {
 		this.sentences=s;
 		this.index = index;
-                this.values = new HashMap<String, Object>();
+                this.values = new ValueSlots();
     	}
         public void setValue(String key, Object value) {
-            values.put(key, value);
+            values.setObject(SentenceKey.of(key).getIndex(), value);
+        }
+
+        public void setValue(String key, float value) {
+            values.setFloat(SentenceKey.of(key).getIndex(), value);
+        }
+
+        public void setValue(String key, int value) {
+            values.setInt(SentenceKey.of(key).getIndex(), value);
+        }
+
+        public <T> void setValue(SentenceKey<T> key, T value) {
+            values.setObject(key.getIndex(), value);
+        }
+
+        /**
+         * @return the value set under key, or null if it is not set
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getValue(SentenceKey<T> key) {
+            return (T) values.getObject(key.getIndex());
+        }
+
+        public void setFloat(SentenceKey<Float> key, float value) {
+            values.setFloat(key.getIndex(), value);
+        }
+
+        /**
+         * @return the value set under key, or NaN if it is not set
+         */
+        public float getFloat(SentenceKey<Float> key) {
+            return values.getFloat(key.getIndex());
+        }
+
+        public void setInt(SentenceKey<Integer> key, int value) {
+            values.setInt(key.getIndex(), value);
+        }
+
+        /**
+         * @return the value set under key, or 0 if it is not set
+         */
+        public int getInt(SentenceKey<Integer> key) {
+            return values.getInt(key.getIndex());
+        }
+
+        public boolean isSet(SentenceKey<?> key) {
+            return values.isSet(key.getIndex());
         }
 
 	public int getIndex() {
@@ -51,11 +97,12 @@ public class Doc {
 		this.paragraphs[index]=p;
 	}
 	public Object getValue(String key) {
-           Object value = values.get(key);
+           SentenceKey<?> k = SentenceKey.find(key);
+           Object value = k == null ? null : values.getObject(k.getIndex());
            if (value == null) {
              return Float.NaN;
            }
-           return values.get(key);
+           return value;
         }
         
         public String getText() {
@@ -0,0 +1,146 @@
+package shef.mt.features.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import shef.mt.features.impl.Feature;
+import shef.mt.util.Logger;
+
+/**
+ * The order in which a FeatureManager runs its features and the layout of
+ * their output columns. <br> Features whose dependencies are not registered
+ * in the ResourceManager are dropped when the plan is compiled, so the output
+ * columns stay the same for every sentence. The number of values of each
+ * feature is only known once it has run, so the offsets of the columns are
+ * computed once, from the first sentence pair, into a new plan. Plans are not
+ * changed after they are created.
+ *
+ * @author GustavoH
+ */
+public class FeatureExecutionPlan {
+
+    private final Feature[] features;
+    private final String[] indeces;
+    private final int[] valueCounts;
+    private final int[] offsets;
+    private final int width;
+
+    /**
+     * compiles a plan from the registered features, sorted by index. Features
+     * that cannot be computed are removed from the map. The plan has no
+     * layout until withValueCounts is called.
+     *
+     * @param registered the registered features, indexed by feature index
+     */
+    public FeatureExecutionPlan(HashMap<String, Feature> registered) {
+        ArrayList<String> featureIndeces = new ArrayList<String>(registered.keySet());
+        Collections.sort(featureIndeces);
+
+        ArrayList<Feature> computable = new ArrayList<Feature>();
+        ArrayList<String> computableIndeces = new ArrayList<String>();
+        for (String index : featureIndeces) {
+            Feature f = registered.get(index);
+            if (f.isComputable()) {
+                computable.add(f);
+                computableIndeces.add(index);
+            } else {
+                Logger.log("Feature " + f.getIndex() + " cannot run because some of its dependencies are missing.");
+                System.out.println("Feature " + f.getIndex() + " cannot run because some of its dependencies are missing.");
+                registered.remove(index);
+            }
+        }
+
+        features = computable.toArray(new Feature[computable.size()]);
+        indeces = computableIndeces.toArray(new String[computableIndeces.size()]);
+        valueCounts = null;
+        offsets = null;
+        width = -1;
+    }
+
+    private FeatureExecutionPlan(FeatureExecutionPlan other, int[] valueCounts) {
+        this.features = other.features;
+        this.indeces = other.indeces;
+        this.valueCounts = valueCounts.clone();
+        this.offsets = new int[valueCounts.length];
+        int offset = 0;
+        for (int i = 0; i < valueCounts.length; i++) {
+            offsets[i] = offset;
+            offset += valueCounts[i];
+        }
+        this.width = offset;
+    }
+
+    /**
+     * lays out the output columns of the plan
+     *
+     * @param valueCounts the number of values output by each feature of the
+     * plan, in plan order
+     * @return a plan with the same features and the offsets of their columns
+     */
+    public FeatureExecutionPlan withValueCounts(int[] valueCounts) {
+        if (valueCounts.length != features.length) {
+            throw new IllegalArgumentException("Expected " + features.length + " value counts, got " + valueCounts.length);
+        }
+        return new FeatureExecutionPlan(this, valueCounts);
+    }
+
+    /**
+     * @return true if the offsets of the columns are known
+     */
+    public boolean hasLayout() {
+        return offsets != null;
+    }
+
+    /**
+     * @return the features to run, in output order
+     */
+    public Feature[] getFeatures() {
+        return features;
+    }
+
+    /**
+     * @return the indeces of the features to run, in output order
+     */
+    public String[] getIndeces() {
+        return indeces;
+    }
+
+    /**
+     * @param i the position of the feature in the plan
+     * @return the number of columns of the i-th feature, or -1 if the plan has
+     * no layout
+     */
+    public int getValueCount(int i) {
+        if (valueCounts == null) {
+            return -1;
+        }
+        return valueCounts[i];
+    }
+
+    /**
+     * @param i the position of the feature in the plan
+     * @return the position of the first output column of the i-th feature, or
+     * -1 if the plan has no layout
+     */
+    public int getOffset(int i) {
+        if (offsets == null) {
+            return -1;
+        }
+        return offsets[i];
+    }
+
+    /**
+     * @return the total number of output columns, or -1 if the plan has no
+     * layout
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the number of features in the plan
+     */
+    public int size() {
+        return features.length;
+    }
+}
@@ -25,10 +25,12 @@ import shef.mt.tools.ResourceManager;
  */
 public class FeatureManager {
 
-    static HashMap<String, Feature> features;
-    private static HashSet<String> featureList;
-    private static FeatureLoader featureLoader;
-    private static String featureConfig;
+    HashMap<String, Feature> features;
+    FeatureExecutionPlan plan;
+    private float[] vector;
+    private HashSet<String> featureList;
+    private FeatureLoader featureLoader;
+    private String featureConfig;
 
     /**
      * instantiates the FeatureManager from a list of feature indeces given as a
@@ -49,6 +51,32 @@ public class FeatureManager {
         featureConfig = featureFile;
     }
 
+    /**
+     * instantiates a FeatureManager with the same configuration and feature
+     * list as another one, but with its own Feature objects, so that the two
+     * managers can run features at the same time
+     *
+     * @param other the FeatureManager to copy
+     */
+    protected FeatureManager(FeatureManager other) {
+        featureConfig = other.featureConfig;
+        featureLoader = other.featureLoader;
+        if (other.featureList != null) {
+            featureList = new HashSet<String>(other.featureList);
+        }
+        features = other.copyFeatures();
+    }
+
+    /**
+     * Returns a copy of this FeatureManager that owns its Feature objects.
+     * Each thread that computes features should use its own copy.
+     *
+     * @return the new FeatureManager
+     */
+    public FeatureManager copy() {
+        return new FeatureManager(this);
+    }
+
     public void setFeatureList(String featureArgs) {
         if (!featureArgs.equals("all")) {
             parseFeatureArgs(featureArgs);
@@ -72,6 +100,7 @@ public class FeatureManager {
      * the feature configuration file with those requested by the application
      */
     public void registerFeatures() {
+        plan = null;
         featureLoader = new FeatureLoader(featureConfig);
         if (features == null) {
             features = new HashMap<String, Feature>();
@@ -104,6 +133,7 @@ public class FeatureManager {
      * @param index
      */
     public void deregisterFeature(String index) {
+        plan = null;
         features.remove(index);
     }
 
@@ -200,55 +230,184 @@ public class FeatureManager {
         return result;
     }
 
+    /**
+     * Creates a new instance of every registered Feature. Feature objects keep
+     * the values of the last sentence pair they were run on, so each copy of
+     * the FeatureManager needs its own set of instances.
+     *
+     * @return a map from feature index to a new Feature object
+     */
+    private HashMap<String, Feature> copyFeatures() {
+        HashMap<String, Feature> result = new HashMap<String, Feature>();
+        if (features == null) {
+            return result;
+        }
+        Iterator<Map.Entry<String, Feature>> it = features.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Feature> entry = it.next();
+            Feature original = entry.getValue();
+            try {
+                Feature f = original.getClass().getDeclaredConstructor().newInstance();
+                f.setIndex(original.getIndex());
+                f.setDescription(original.getDescription());
+                f.setResources(new HashSet<String>(original.getResources()));
+                result.put(entry.getKey(), f);
+            } catch (ReflectiveOperationException e) {
+                //A copy without the feature would write fewer columns than the header:
+                throw new RuntimeException("Feature " + original.getIndex() + " (" + original.getClass().getName() + ") cannot be copied", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compiles the execution plan of the registered features. Features whose
+     * dependencies are missing are dropped at this point, so this should be
+     * called once all processors have registered their resources. If it is
+     * not called, the plan is compiled when the first sentence pair is run.
+     *
+     * @return the execution plan
+     */
+    public FeatureExecutionPlan compilePlan() {
+        plan = new FeatureExecutionPlan(features);
+        vector = null;
+        return plan;
+    }
+
+    /**
+     * @return the execution plan, compiled if necessary
+     */
+    public FeatureExecutionPlan getPlan() {
+        if (plan == null) {
+            compilePlan();
+        }
+        return plan;
+    }
+
     //HACK
     public String runFeatures(Sentence source, Sentence target) {
-        StringBuffer result = new StringBuffer();
-        Set<String> fIndeces = features.keySet();
+        FeatureExecutionPlan plan = runPlan(source, target);
+        collectValues(plan);
+        return formatValues(plan);
+    }
 
-        ArrayList<String> featureIndeces = new ArrayList<String>(fIndeces);
+    /**
+     * Runs every feature over a sentence pair and returns their values as a
+     * vector, with columns in the order given by getFeatureIndeces(). The
+     * vector is reused for the next sentence pair, so it has to be copied if
+     * it is kept. Values set as Strings are NaN.
+     *
+     * @param source the source sentence
+     * @param target the target sentence
+     * @return the feature values
+     */
+    public float[] runFeatureVector(Sentence source, Sentence target) {
+        return collectValues(runPlan(source, target));
+    }
 
-        Collections.sort(featureIndeces);
-//		System.out.println(featureIndeces.size()+" feature indeces: "+ featureIndeces);
-        Iterator<String> it = featureIndeces.iterator();
-        Feature f;
-        while (it.hasNext()) {
-            String index = it.next();
-            //System.out.println(index);
-            f = features.get(index);
-//			System.out.println(index);
+    private FeatureExecutionPlan runPlan(Sentence source, Sentence target) {
+        FeatureExecutionPlan plan = getPlan();
+        Feature[] planned = plan.getFeatures();
+        for (int i = 0; i < planned.length; i++) {
+            Feature f = planned[i];
 
             // Modified by José de Souza
             // every new sentence pair has new features
             // therefore, the feature object state must be reset
             f.reset();
 
-            if (f.isComputable()) {
-                f.run(source, target);
-                Integer featsNumber = f.getFeaturesNumber();
-                for (int i = 1; i <= featsNumber; i++) {
-                    result.append(f.getValue(i) + "\t");
+            f.run(source, target);
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the vector holding the values of the features of the plan. The
+     * first time, the columns of the plan are laid out from the number of
+     * values each feature has just output, and each feature is given a slice
+     * of the vector, so that the following sentence pairs write their values
+     * into it directly. A feature that later outputs a different number of
+     * values keeps its own storage, and its columns are truncated or padded
+     * with NaN.
+     *
+     * @param plan the plan whose features have just been run
+     * @return the feature values
+     */
+    protected float[] collectValues(FeatureExecutionPlan plan) {
+        Feature[] planned = plan.getFeatures();
+        if (!plan.hasLayout()) {
+            int[] valueCounts = new int[planned.length];
+            for (int i = 0; i < planned.length; i++) {
+                valueCounts[i] = planned[i].getFeaturesNumber();
             }
+            plan = plan.withValueCounts(valueCounts);
+            this.plan = plan;
+        }
+        boolean bound = vector != null;
+        for (int i = 0; i < planned.length && bound; i++) {
+            bound = planned[i].writesTo(vector) && planned[i].getFeaturesNumber() == plan.getValueCount(i);
+        }
+        if (bound) {
+            return vector;
+        }
 
+        //Copy the values into a new vector and assign its slices:
+        float[] result = new float[plan.getWidth()];
+        for (int i = 0; i < planned.length; i++) {
+            Feature f = planned[i];
+            int offset = plan.getOffset(i);
+            int valueCount = plan.getValueCount(i);
+            int featsNumber = f.getFeaturesNumber();
+            for (int j = 0; j < valueCount; j++) {
+                result[offset + j] = j < featsNumber ? f.getFloatValue(j + 1) : Float.NaN;
+            }
+            if (featsNumber == valueCount) {
+                f.setOutput(result, offset, valueCount);
             } else {
-                Logger.log("Feature " + f.getIndex() + " cannot run because some of its dependencies are missing.");
-                System.out.println("Feature " + f.getIndex() + " cannot run because some of its dependencies are missing.");
-                features.remove(index);
-//				System.out.println(features.size());
+                Logger.log("Feature " + f.getIndex() + " output " + featsNumber + " values instead of " + valueCount + ".");
             }
         }
-//		System.out.println("Result:");
-//		System.out.println(result.toString());
-//		System.out.println("");
-        return result.toString();
+        vector = result;
+        return vector;
     }
 
-    public void printFeatureIndeces() {
-        Set<String> fIndeces = features.keySet();
-        ArrayList<String> featureIndeces = new ArrayList<String>(fIndeces);
+    /**
+     * formats the values the features of the plan have just output as a
+     * tab-separated line
+     *
+     * @param plan the plan whose features have just been run
+     */
+    protected String formatValues(FeatureExecutionPlan plan) {
+        StringBuilder result = new StringBuilder();
+        Feature[] planned = plan.getFeatures();
+        for (int i = 0; i < planned.length; i++) {
+            Feature f = planned[i];
+            int featsNumber = f.getFeaturesNumber();
+            for (int j = 1; j <= featsNumber; j++) {
+                String value = f.getStringValue(j);
+                if (value != null) {
+                    result.append(value);
+                } else {
+                    result.append(f.getFloatValue(j));
+                }
+                result.append('\t');
+            }
+        }
+        return result.toString();
+    }
 
+    /**
+     * returns the indeces of the registered features, in the order in which
+     * their values are output
+     */
+    public ArrayList<String> getFeatureIndeces() {
+        ArrayList<String> featureIndeces = new ArrayList<String>(features.keySet());
         Collections.sort(featureIndeces);
-        
-        Iterator<String> it = featureIndeces.iterator();
+        return featureIndeces;
+    }
+
+    public void printFeatureIndeces() {
+        Iterator<String> it = getFeatureIndeces().iterator();
         while (it.hasNext()) {
             System.out.print(it.next() + "\t");
         }
@@ -10,6 +10,8 @@ import edu.stanford.nlp.process.*;
  * pre-processing tools <br> It provides direct access to well used features of
  * a sentence, such as its text, tokens, ngrams, phrases, but also allows any
  * tool to add information related to the sentence via the setValue() method.
+ * Values are addressed by SentenceKey; the methods taking a String key name
+ * resolve the key on every call.
  *
  * @author Catalina Hallett
  */
@@ -18,7 +20,7 @@ public class Sentence {
     private int noWords = -1;
     private String sentence;
     private ArrayList<Pair> tdl;
-    private HashMap<String, Object> values;
+    private ValueSlots values;
     private ArrayList<String>[] ngrams;
     private String[] tokens;
     
@@ -35,7 +37,7 @@ public class Sentence {
         sentence = s;
         this.index = index;
         center = null;
-        values = new HashMap<String, Object>();
+        values = new ValueSlots();
         tokens = sentence.trim().split(" ");
     }
     
@@ -53,7 +55,48 @@ public class Sentence {
     }
 
     public void setValue(String key, Object value) {
-        values.put(key, value);
+        values.setObject(SentenceKey.of(key).getIndex(), value);
+    }
+
+    public <T> void setValue(SentenceKey<T> key, T value) {
+        values.setObject(key.getIndex(), value);
+    }
+
+    /**
+     * returns the value set under a key
+     *
+     * @param key the key
+     * @return the value, or null if it is not set
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getValue(SentenceKey<T> key) {
+        return (T) values.getObject(key.getIndex());
+    }
+
+    public void setFloat(SentenceKey<Float> key, float value) {
+        values.setFloat(key.getIndex(), value);
+    }
+
+    /**
+     * @return the value set under key, or NaN if it is not set
+     */
+    public float getFloat(SentenceKey<Float> key) {
+        return values.getFloat(key.getIndex());
+    }
+
+    public void setInt(SentenceKey<Integer> key, int value) {
+        values.setInt(key.getIndex(), value);
+    }
+
+    /**
+     * @return the value set under key, or 0 if it is not set
+     */
+    public int getInt(SentenceKey<Integer> key) {
+        return values.getInt(key.getIndex());
+    }
+
+    public boolean isSet(SentenceKey<?> key) {
+        return values.isSet(key.getIndex());
     }
 
     /**
@@ -84,24 +127,26 @@ public class Sentence {
     }
 
     public void setValue(String key, float value) {
-        values.put(key, new Float(value));
+        values.setFloat(SentenceKey.of(key).getIndex(), value);
     }
 
     public void setValue(String key, int value) {
-        values.put(key, new Integer(value));
+        values.setInt(SentenceKey.of(key).getIndex(), value);
     }
 
     public Object getValue(String key) {
-        Object value = values.get(key);
+        SentenceKey<?> k = SentenceKey.find(key);
+        Object value = k == null ? null : values.getObject(k.getIndex());
         if (value == null) {
             return Float.NaN;
         }
 
-        return values.get(key);
+        return value;
     }
 
     public boolean isSet(String key) {
-        return (values.get(key) != null);
+        SentenceKey<?> k = SentenceKey.find(key);
+        return k != null && values.isSet(k.getIndex());
     }
 
     /**
@@ -0,0 +1,124 @@
+package shef.mt.features.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import shef.mt.tools.LanguageModel;
+
+/**
+ * A typed key for the values that processors attach to a Sentence or Doc and
+ * features read back. <br> Every key name is registered once and given a dense
+ * index, so that values can be stored in arrays instead of a HashMap and looked
+ * up without hashing a String for every sentence. Processors and features that
+ * run once per sentence should hold on to the key object; the String versions
+ * of setValue() and getValue() resolve the key by name on every call.
+ *
+ * @param <T> the type of the values stored under this key
+ * @author GustavoH
+ */
+public final class SentenceKey<T> {
+
+    private static final ConcurrentHashMap<String, SentenceKey<?>> registry = new ConcurrentHashMap<String, SentenceKey<?>>();
+    private static int count = 0;
+
+    //Values set by the language model processors:
+    public static final SentenceKey<Float> LOGPROB = of("logprob");
+    public static final SentenceKey<Float> PPL = of("ppl");
+    public static final SentenceKey<Float> PPL1 = of("ppl1");
+    public static final SentenceKey<Float> POS_LOGPROB = of("poslogprob");
+    public static final SentenceKey<Float> POS_PPL = of("posppl");
+    public static final SentenceKey<Float> POS_PPL1 = of("posppl1");
+    public static final SentenceKey<LanguageModel> NGRAM_COUNT = of("ngramcount");
+    public static final SentenceKey<LanguageModel> POS_NGRAM_COUNT = of("posngramcount");
+
+    //Values set by the POS processors:
+    public static final SentenceKey<Integer> CONTENT_WORDS = of("contentWords");
+    public static final SentenceKey<Integer> NOUNS = of("nouns");
+    public static final SentenceKey<Integer> VERBS = of("verbs");
+    public static final SentenceKey<Integer> PRONS = of("prons");
+
+    //Values shared between features:
+    public static final SentenceKey<Integer> NO_TOKENS = of("noTokens");
+    public static final SentenceKey<Integer> NO_PUNCT = of("noPunct");
+
+    private final String name;
+    private final int index;
+
+    private SentenceKey(String name, int index) {
+        this.name = name;
+        this.index = index;
+    }
+
+    /**
+     * returns the key with the given name, registering it if necessary
+     *
+     * @param name the name of the key
+     * @return the key
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SentenceKey<T> of(String name) {
+        SentenceKey<?> result = registry.get(name);
+        if (result == null) {
+            synchronized (registry) {
+                result = registry.get(name);
+                if (result == null) {
+                    result = new SentenceKey<T>(name, count);
+                    registry.put(name, result);
+                    count++;
+                }
+            }
+        }
+        return (SentenceKey<T>) result;
+    }
+
+    /**
+     * returns the keys with the given names, registering them if necessary
+     *
+     * @param names the names of the keys
+     * @return the keys, in the order of the names
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SentenceKey<T>[] array(String... names) {
+        SentenceKey<T>[] result = (SentenceKey<T>[]) new SentenceKey<?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = of(names[i]);
+        }
+        return result;
+    }
+
+    /**
+     * returns the key with the given name without registering it
+     *
+     * @param name the name of the key
+     * @return the key, or null if no key with that name was registered
+     */
+    public static SentenceKey<?> find(String name) {
+        return registry.get(name);
+    }
+
+    /**
+     * @return the number of keys registered so far
+     */
+    public static int count() {
+        synchronized (registry) {
+            return count;
+        }
+    }
+
+    /**
+     * @return the name of the key
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the position of the values of this key in the value arrays
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
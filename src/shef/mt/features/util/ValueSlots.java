@@ -0,0 +1,122 @@
+package shef.mt.features.util;
+
+import java.util.Arrays;
+
+/**
+ * Stores the values attached to a Sentence or Doc, addressed by the index of
+ * their SentenceKey. Floats and ints are kept in primitive arrays, so they are
+ * not boxed unless they are read as Objects.
+ *
+ * @author GustavoH
+ */
+class ValueSlots {
+
+    private static final byte UNSET = 0;
+    private static final byte OBJECT = 1;
+    private static final byte FLOAT = 2;
+    private static final byte INT = 3;
+
+    private byte[] kinds = new byte[0];
+    private Object[] objects = new Object[0];
+    private float[] floats = new float[0];
+    private int[] ints = new int[0];
+
+    private void ensureCapacity(int index) {
+        if (index < kinds.length) {
+            return;
+        }
+        int size = Math.max(index + 1, SentenceKey.count());
+        kinds = Arrays.copyOf(kinds, size);
+        objects = Arrays.copyOf(objects, size);
+        floats = Arrays.copyOf(floats, size);
+        ints = Arrays.copyOf(ints, size);
+    }
+
+    void setObject(int index, Object value) {
+        ensureCapacity(index);
+        objects[index] = value;
+        kinds[index] = value == null ? UNSET : OBJECT;
+    }
+
+    void setFloat(int index, float value) {
+        ensureCapacity(index);
+        objects[index] = null;
+        floats[index] = value;
+        kinds[index] = FLOAT;
+    }
+
+    void setInt(int index, int value) {
+        ensureCapacity(index);
+        objects[index] = null;
+        ints[index] = value;
+        kinds[index] = INT;
+    }
+
+    boolean isSet(int index) {
+        return index < kinds.length && kinds[index] != UNSET;
+    }
+
+    /**
+     * @return the value, boxed if it is a float or an int, or null if it is
+     * not set
+     */
+    Object getObject(int index) {
+        if (index >= kinds.length) {
+            return null;
+        }
+        switch (kinds[index]) {
+            case OBJECT:
+                return objects[index];
+            case FLOAT:
+                return floats[index];
+            case INT:
+                return ints[index];
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the value as a float, or NaN if it is not set or not a number
+     */
+    float getFloat(int index) {
+        if (index >= kinds.length) {
+            return Float.NaN;
+        }
+        switch (kinds[index]) {
+            case FLOAT:
+                return floats[index];
+            case INT:
+                return ints[index];
+            case OBJECT:
+                if (objects[index] instanceof Number) {
+                    return ((Number) objects[index]).floatValue();
+                }
+                return Float.NaN;
+            default:
+                return Float.NaN;
+        }
+    }
+
+    /**
+     * @return the value as an int, or 0 if it is not set or not a number
+     */
+    int getInt(int index) {
+        if (index >= kinds.length) {
+            return 0;
+        }
+        switch (kinds[index]) {
+            case INT:
+                return ints[index];
+            case FLOAT:
+                return (int) floats[index];
+            case OBJECT:
+                if (objects[index] instanceof Number) {
+                    return ((Number) objects[index]).intValue();
+                }
+                return 0;
+            default:
+                return 0;
+        }
+    }
+}
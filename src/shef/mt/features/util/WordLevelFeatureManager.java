@@ -1,11 +1,7 @@
 package shef.mt.features.util;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.Set;
+import shef.mt.features.impl.Feature;
 import shef.mt.features.impl.WordLevelFeature;
-import shef.mt.util.Logger;
 
 public class WordLevelFeatureManager extends FeatureManager {
 
@@ -17,46 +13,43 @@ public class WordLevelFeatureManager extends FeatureManager {
         super(featureArgs);
     }
 
+    protected WordLevelFeatureManager(WordLevelFeatureManager other) {
+        super(other);
+    }
+
+    @Override
+    public WordLevelFeatureManager copy() {
+        return new WordLevelFeatureManager(this);
+    }
+
     @Override
     public String runFeatures(Sentence source, Sentence target) {
         //Initialize result:
         String result = "";
 
         //Get features:
-        Set<String> fIndeces = features.keySet();
-        ArrayList<String> featureIndeces = new ArrayList<String>(fIndeces);
-        Collections.sort(featureIndeces);
-        Iterator<String> it = featureIndeces.iterator();
-        WordLevelFeature f;
+        FeatureExecutionPlan plan = getPlan();
+        Feature[] planned = plan.getFeatures();
 
         //Create vector for output:
         String[] output = new String[target.getNoTokens()];
         for (int i = 0; i < output.length; i++) {
             output[i] = "";
         }
-        while (it.hasNext()) {
-
+        for (int i = 0; i < planned.length; i++) {
             //Get next feature:
-            String index = it.next();
-            f = (WordLevelFeature) features.get(index);
+            WordLevelFeature f = (WordLevelFeature) planned[i];
             f.reset();
 
             //Calculate value for each target word in translation:
-            if (f.isComputable()) {
-                try {
-                    f.run(source, target);
-                    String[] values = f.getValues();
-                    for (int i = 0; i < values.length; i++) {
-                        output[i] += values[i] + '\t';
-                    }
-                } catch (Exception e) {
-                    System.out.println("ERROR: Failed to run feature " + f.getIndex() + ". Feature omitted.");
+            try {
+                f.run(source, target);
+                String[] values = f.getValues();
+                for (int j = 0; j < values.length; j++) {
+                    output[j] += values[j] + '\t';
                 }
-
-            } else {
-                Logger.log("Feature " + f.getIndex() + " cannot run because some of its dependencies are missing.");
-                System.out.println("Feature " + f.getIndex() + " cannot run because some of its dependencies are missing.");
-                features.remove(index);
+            } catch (Exception e) {
+                System.out.println("ERROR: Failed to run feature " + f.getIndex() + ". Feature omitted.");
             }
         }
 
@@ -0,0 +1,349 @@
+package shef.mt.tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import shef.mt.util.Logger;
+import shef.mt.util.LongIntMap;
+import shef.mt.util.Vocabulary;
+
+/**
+ * A back-off language model held in memory, read from a file in ARPA format
+ * or estimated by LanguageModelEstimator, which can be written back in ARPA
+ * format.<br> Ngrams are stored as in LanguageModel: an ngram of size n is
+ * identified by the id of its first n-1 words and the id of its last word.
+ * The model is read-only once loaded and can be queried from several threads.
+ *
+ * @author GustavoH
+ */
+public class ArpaLanguageModel extends BackoffLanguageModel {
+
+    private Vocabulary vocabulary;
+    private LongIntMap[] ngramIds;	//for sizes above 1, maps (prefix id, word id) to ngram id
+    private float[][] probs;	//log10 probability of each ngram id, NaN for prefixes that are not ngrams of the model
+    private float[][] bows;	//log10 back-off weight of each ngram id
+    private int[] counts;	//number of ngram ids of each size
+
+    /**
+     * Creates a model from ngrams estimated in memory, stored as described
+     * above.
+     */
+    ArpaLanguageModel(int order, Vocabulary vocabulary, LongIntMap[] ngramIds, float[][] probs, float[][] bows, int[] counts) {
+        this.order = order;
+        this.vocabulary = vocabulary;
+        this.ngramIds = ngramIds;
+        this.probs = probs;
+        this.bows = bows;
+        this.counts = counts;
+        bosId = vocabulary.get("<s>");
+        eosId = vocabulary.get("</s>");
+        unkId = vocabulary.get("<unk>");
+    }
+
+    /**
+     * Loads an ARPA file, which may be gzipped.
+     *
+     * @param path the path of the ARPA file
+     * @param maxOrder ngrams longer than this are ignored, as with the -order
+     * option of SRILM; 0 to read every ngram
+     * @throws IOException if the file cannot be read
+     */
+    public ArpaLanguageModel(String path, int maxOrder) throws IOException {
+        System.out.println("Loading ARPA language model " + path + "...");
+        Logger.log("Loading ARPA language model " + path + "...");
+        long start = System.currentTimeMillis();
+
+        BufferedReader br = new BufferedReader(new InputStreamReader(open(path), "utf-8"), 1 << 16);
+        try {
+            //Read the number of ngrams of each size:
+            ArrayList<Integer> declared = new ArrayList<Integer>();
+            String line = br.readLine();
+            while (line != null && !line.trim().endsWith("-grams:")) {
+                line = line.trim();
+                if (line.startsWith("ngram ")) {
+                    int size = Integer.parseInt(line.substring(6, line.indexOf('=')).trim());
+                    while (declared.size() < size) {
+                        declared.add(0);
+                    }
+                    declared.set(size - 1, Integer.parseInt(line.substring(line.indexOf('=') + 1).trim()));
+                }
+                line = br.readLine();
+            }
+            order = maxOrder > 0 ? Math.min(maxOrder, declared.size()) : declared.size();
+            vocabulary = new Vocabulary(order > 0 ? declared.get(0) : 16);
+            ngramIds = new LongIntMap[order];
+            probs = new float[order][16];
+            bows = new float[order][16];
+            counts = new int[order];
+            for (int i = 1; i < order; i++) {
+                ngramIds[i] = new LongIntMap(declared.get(i));
+            }
+
+            //Read ngrams:
+            int size = 0;
+            int[] words = new int[order];
+            while (line != null) {
+                line = line.trim();
+                if (line.startsWith("\\")) {
+                    //Section header:
+                    if (line.endsWith("-grams:")) {
+                        size = Integer.parseInt(line.substring(1, line.indexOf('-')));
+                    } else {
+                        size = 0;
+                    }
+                } else if (size > 0 && size <= order && !line.isEmpty()) {
+                    addNGram(line, size, words);
+                }
+                line = br.readLine();
+            }
+        } finally {
+            br.close();
+        }
+
+        bosId = vocabulary.get("<s>");
+        eosId = vocabulary.get("</s>");
+        unkId = vocabulary.get("<unk>");
+
+        long elapsed = System.currentTimeMillis() - start;
+        Logger.log("ARPA language model loaded in " + elapsed / 1000F + " sec");
+        System.out.println("ARPA language model loaded in " + elapsed / 1000F + " sec");
+    }
+
+    private static InputStream open(String path) throws IOException {
+        InputStream in = new FileInputStream(path);
+        if (path.endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        return in;
+    }
+
+    /**
+     * Checks whether a file is a language model in ARPA format, i.e., whether
+     * its first line that is not empty is \data\.
+     *
+     * @param path the path of the file, which may be gzipped
+     * @return true if the file is in ARPA format
+     */
+    public static boolean isArpa(String path) {
+        if (path == null) {
+            return false;
+        }
+        try {
+            BufferedReader br = new BufferedReader(new InputStreamReader(open(path), "utf-8"));
+            try {
+                String line = br.readLine();
+                while (line != null && line.trim().isEmpty()) {
+                    line = br.readLine();
+                }
+                return line != null && line.trim().equals("\\data\\");
+            } finally {
+                br.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * parses an ngram line: log10 probability, words and, optionally, log10
+     * back-off weight, separated by whitespace
+     */
+    private void addNGram(String line, int size, int[] words) {
+        int length = line.length();
+        int start = 0;
+        int end = nextSpace(line, start);
+        float prob = Float.parseFloat(line.substring(start, end));
+        for (int i = 0; i < size; i++) {
+            start = skipSpaces(line, end);
+            end = nextSpace(line, start);
+            words[i] = vocabulary.add(line, start, end);
+        }
+        start = skipSpaces(line, end);
+        float bow = 0;
+        if (start < length) {
+            bow = Float.parseFloat(line.substring(start, nextSpace(line, start)));
+        }
+
+        //Find or create the ids of the ngram and its prefixes:
+        int id = words[0];
+        ensureId(0, id);
+        for (int i = 1; i < size; i++) {
+            long key = LanguageModel.pack(id, words[i]);
+            int next = ngramIds[i].get(key, -1);
+            if (next == -1) {
+                next = counts[i];
+                ngramIds[i].put(key, next);
+                ensureId(i, next);
+            }
+            id = next;
+        }
+        probs[size - 1][id] = prob;
+        bows[size - 1][id] = bow;
+    }
+
+    private void ensureId(int size, int id) {
+        if (id >= probs[size].length) {
+            int newLength = Math.max(id + 1, probs[size].length * 2);
+            probs[size] = Arrays.copyOf(probs[size], newLength);
+            bows[size] = Arrays.copyOf(bows[size], newLength);
+        }
+        if (id >= counts[size]) {
+            Arrays.fill(probs[size], counts[size], id + 1, Float.NaN);
+            Arrays.fill(bows[size], counts[size], id + 1, 0);
+            counts[size] = id + 1;
+        }
+    }
+
+    /**
+     * @return the id of the ngram formed by words[from] to words[to-1], or -1
+     * if the model does not contain it
+     */
+    private int getNGramId(int[] words, int from, int to) {
+        int id = words[from];
+        if (id < 0 || id >= counts[0]) {
+            return -1;
+        }
+        for (int i = from + 1; i < to && id != -1; i++) {
+            id = words[i] < 0 ? -1 : ngramIds[i - from].get(LanguageModel.pack(id, words[i]), -1);
+        }
+        return id;
+    }
+
+    @Override
+    protected int getWordId(String text, int start, int end) {
+        int id = vocabulary.get(text, start, end);
+        if (id == -1 || id >= counts[0] || Float.isNaN(probs[0][id])) {
+            return -1;
+        }
+        return id;
+    }
+
+    @Override
+    protected float getProb(int[] words, int position, int maxOrder) {
+        int word = words[position];
+        if (word < 0 || word >= counts[0] || Float.isNaN(probs[0][word])) {
+            return Float.NaN;
+        }
+        float backoff = 0;
+        for (int context = Math.min(maxOrder - 1, position); context >= 0; context--) {
+            int contextId = -1;
+            if (context > 0) {
+                contextId = getNGramId(words, position - context, position);
+                if (contextId == -1) {
+                    continue;
+                }
+            }
+            int id = context == 0 ? word : ngramIds[context].get(LanguageModel.pack(contextId, word), -1);
+            if (id != -1 && !Float.isNaN(probs[context][id])) {
+                return backoff + probs[context][id];
+            }
+            if (context > 0) {
+                backoff += bows[context - 1][contextId];
+            }
+        }
+        return Float.NaN;
+    }
+
+    /**
+     * Writes the model in ARPA format.
+     *
+     * @param path the path of the ARPA file, which is gzipped if it ends with
+     * .gz
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String path) throws IOException {
+        OutputStream out = new FileOutputStream(path);
+        if (path.endsWith(".gz")) {
+            out = new GZIPOutputStream(out, 1 << 16);
+        }
+        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, "utf-8"), 1 << 16);
+        try {
+            //Write the number of ngrams of each size:
+            bw.write("\n\\data\\\n");
+            for (int size = 1; size <= order; size++) {
+                int n = 0;
+                for (int id = 0; id < counts[size - 1]; id++) {
+                    if (!Float.isNaN(probs[size - 1][id])) {
+                        n++;
+                    }
+                }
+                bw.write("ngram " + size + "=" + n + "\n");
+            }
+
+            //Write ngrams, rebuilding their words from their prefixes:
+            String[] previous = new String[0];
+            for (int size = 1; size <= order; size++) {
+                bw.write("\n\\" + size + "-grams:\n");
+                String[] current = new String[counts[size - 1]];
+                if (size == 1) {
+                    for (int id = 0; id < counts[0]; id++) {
+                        current[id] = vocabulary.getWord(id);
+                    }
+                } else {
+                    LongIntMap ids = ngramIds[size - 1];
+                    for (int slot = 0; slot < ids.capacity(); slot++) {
+                        if (ids.isUsed(slot)) {
+                            long key = ids.keyAt(slot);
+                            current[ids.valueAt(slot)] = previous[(int) (key >>> 32)] + " " + vocabulary.getWord((int) key);
+                        }
+                    }
+                }
+                for (int id = 0; id < counts[size - 1]; id++) {
+                    if (!Float.isNaN(probs[size - 1][id])) {
+                        bw.write(Float.toString(probs[size - 1][id]) + "\t" + current[id]);
+                        if (size < order) {
+                            bw.write("\t" + Float.toString(bows[size - 1][id]));
+                        }
+                        bw.write("\n");
+                    }
+                }
+                previous = current;
+            }
+            bw.write("\n\\end\\\n");
+        } finally {
+            bw.close();
+        }
+    }
+
+    Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * @return the map from (prefix id, word id) to ngram id for ngrams of the
+     * given size, which must be above 1
+     */
+    LongIntMap getNGramIds(int size) {
+        return ngramIds[size - 1];
+    }
+
+    /**
+     * @return the log10 probabilities of the ngrams of the given size, indexed
+     * by ngram id; only the first getIdCount(size) are valid
+     */
+    float[] getProbs(int size) {
+        return probs[size - 1];
+    }
+
+    /**
+     * @return the log10 back-off weights of the ngrams of the given size,
+     * indexed by ngram id
+     */
+    float[] getBows(int size) {
+        return bows[size - 1];
+    }
+
+    int getIdCount(int size) {
+        return counts[size - 1];
+    }
+}
@@ -0,0 +1,167 @@
+package shef.mt.tools;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * A back-off language model, which computes sentence log probabilities and
+ * perplexities in the same way as SRILM's <code>ngram -ppl</code>:
+ * out-of-vocabulary words are not scored and are left out of the perplexity,
+ * as are words with a zero probability (-99 in the ARPA file), and every
+ * sentence ends with &lt;/s&gt;. Values are rounded to the 6 significant
+ * digits SRILM prints.<br> The ngrams are stored by the subclasses: in memory
+ * by ArpaLanguageModel, or in a compiled file by TrieLanguageModel.
+ *
+ * @author GustavoH
+ */
+public abstract class BackoffLanguageModel {
+
+    private static final MathContext PRINTED_DIGITS = new MathContext(6);
+
+    protected int order;
+    protected int bosId;
+    protected int eosId;
+    protected int unkId;
+
+    /**
+     * returns the id of the word formed by the characters start to end-1 of
+     * text, or -1 if it has no unigram probability in the model
+     */
+    protected abstract int getWordId(String text, int start, int end);
+
+    /**
+     * Computes the back-off log10 probability of words[position] given the
+     * words before it, or NaN if the word is not in the vocabulary.
+     *
+     * @param words the word ids of the sentence, starting with &lt;s&gt;
+     * @param position the position of the word to score
+     * @param maxOrder the highest ngram size to use, at most getOrder()
+     */
+    protected abstract float getProb(int[] words, int position, int maxOrder);
+
+    /**
+     * Computes the log10 probability and the perplexities of a sentence.
+     *
+     * @param sentence the sentence, with tokens separated by whitespace
+     * @return the log probability, the perplexity counting the end of sentence
+     * (ppl) and the perplexity without it (ppl1); a perplexity is NaN when
+     * SRILM would print "undefined"
+     */
+    public float[] getPerplexity(String sentence) {
+        return getPerplexity(sentence, order);
+    }
+
+    /**
+     * Computes the log10 probability and the perplexities of a sentence using
+     * only the ngrams of the model up to a size, as SRILM does with the -order
+     * option.
+     *
+     * @param sentence the sentence, with tokens separated by whitespace
+     * @param maxOrder the highest ngram size to use
+     * @return the log probability, ppl and ppl1, as in getPerplexity(String)
+     */
+    public float[] getPerplexity(String sentence, int maxOrder) {
+        maxOrder = Math.min(maxOrder, order);
+        //Convert words to ids, with <s> and </s> around them:
+        int capacity = sentence.length() / 2 + 3;
+        int[] words = new int[capacity];
+        boolean[] unknown = new boolean[capacity];
+        int wordCount = 0;
+        words[0] = bosId;
+        int start = skipSpaces(sentence, 0);
+        while (start < sentence.length()) {
+            int end = nextSpace(sentence, start);
+            wordCount++;
+            int id = getWordId(sentence, start, end);
+            if (id == -1) {
+                //Unknown words are not scored, but SRILM maps them to <unk> in contexts:
+                unknown[wordCount] = true;
+                id = unkId;
+            }
+            words[wordCount] = id;
+            start = skipSpaces(sentence, end);
+        }
+        words[wordCount + 1] = eosId;
+
+        //Score words and end of sentence:
+        double logprob = 0;
+        int oovs = 0;
+        int zeroprobs = 0;
+        for (int i = 1; i <= wordCount + 1; i++) {
+            float prob = unknown[i] ? Float.NaN : getProb(words, i, maxOrder);
+            if (Float.isNaN(prob)) {
+                oovs++;
+            } else if (prob <= -99) {
+                zeroprobs++;
+            } else {
+                logprob += prob;
+            }
+        }
+
+        int denominator = wordCount - oovs - zeroprobs;
+        float[] result = new float[3];
+        result[0] = round(logprob);
+        result[1] = denominator + 1 > 0 ? round(Math.pow(10, -logprob / (denominator + 1))) : Float.NaN;
+        result[2] = denominator > 0 ? round(Math.pow(10, -logprob / denominator)) : Float.NaN;
+        return result;
+    }
+
+    /**
+     * rounds a value to the digits SRILM prints
+     */
+    private static float round(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return (float) value;
+        }
+        return Float.parseFloat(new BigDecimal(value).round(PRINTED_DIGITS).toString());
+    }
+
+    protected static int nextSpace(String line, int start) {
+        int i = start;
+        while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    protected static int skipSpaces(String line, int start) {
+        int i = start;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Loads a language model either in ARPA format or compiled by
+     * TrieLanguageModel.
+     *
+     * @param path the path of the model
+     * @param maxOrder ngrams longer than this are ignored
+     * @return the language model
+     * @throws IOException if the file cannot be read
+     */
+    public static BackoffLanguageModel load(String path, int maxOrder) throws IOException {
+        if (TrieLanguageModel.isTrie(path)) {
+            return new TrieLanguageModel(path, maxOrder);
+        }
+        return new ArpaLanguageModel(path, maxOrder);
+    }
+
+    /**
+     * @param path the path of a file
+     * @return true if the file is a language model that can be loaded by
+     * load()
+     */
+    public static boolean canLoad(String path) {
+        return ArpaLanguageModel.isArpa(path) || TrieLanguageModel.isTrie(path);
+    }
+
+    /**
+     * @return the highest ngram size of the model
+     */
+    public int getOrder() {
+        return order;
+    }
+}
@@ -0,0 +1,192 @@
+package shef.mt.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+import shef.mt.util.Logger;
+import shef.mt.util.Vocabulary;
+
+/**
+ * The frequency of every word of a corpus, read from a binary index that is
+ * memory-mapped instead of being loaded on the heap. Words are the strings
+ * between single spaces of each line, as counted by FileModel. <br> The index
+ * is built once from the corpus and written next to it by load(), or by
+ * running this class:
+ * <pre>
+ * java shef.mt.tools.CorpusFrequencyIndex corpus.en [corpus.en.freq]
+ * </pre> The index holds the total number of tokens, the vocabulary and the
+ * count of each word.
+ *
+ * @author GustavoH
+ */
+public class CorpusFrequencyIndex {
+
+    private static final int MAGIC = 0x46524551;
+    private static final int VERSION = 1;
+
+    private long totalTokens;
+    private MappedVocabulary vocabulary;
+    private MappedByteBuffer counts;
+
+    /**
+     * maps a compiled frequency index
+     *
+     * @param path the path of the index
+     * @throws IOException if the file cannot be read or is not an index
+     */
+    public CorpusFrequencyIndex(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            if (file.length() < 8 || file.readInt() != MAGIC || file.readInt() != VERSION) {
+                throw new IOException(path + " is not a corpus frequency index.");
+            }
+            totalTokens = file.readLong();
+            vocabulary = new MappedVocabulary(file, file.getFilePointer());
+            counts = MappedVocabulary.map(file.getChannel(), vocabulary.getEnd(), vocabulary.size() * 4L);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Maps the index of a corpus. The index is looked for next to the corpus,
+     * with the extension ".freq", and is built there first if it is missing or
+     * older than the corpus, or in the temporary folder if the folder of the
+     * corpus cannot be written.
+     *
+     * @param corpus the path of the corpus
+     * @return the index
+     * @throws IOException if the corpus cannot be read or the index cannot be
+     * written
+     */
+    public static CorpusFrequencyIndex load(String corpus) throws IOException {
+        File index = new File(corpus + ".freq");
+        File text = new File(corpus);
+        if (!index.isFile() || (text.isFile() && index.lastModified() < text.lastModified())) {
+            try {
+                compile(corpus, index.getPath());
+            } catch (IOException e) {
+                Logger.log("Could not write " + index.getPath() + ": " + e.getMessage());
+                System.out.println("Could not write " + index.getPath() + ": " + e.getMessage());
+                index = File.createTempFile("corpus", ".freq");
+                index.deleteOnExit();
+                compile(corpus, index.getPath());
+            }
+        }
+        return new CorpusFrequencyIndex(index.getPath());
+    }
+
+    /**
+     * returns the number of times a word appears in the corpus
+     */
+    public int getFrequency(String word) {
+        int id = vocabulary.get(word);
+        return id == -1 ? 0 : counts.getInt(id * 4);
+    }
+
+    /**
+     * @return the number of tokens of the corpus
+     */
+    public long getTotalTokens() {
+        return totalTokens;
+    }
+
+    /**
+     * @return the number of distinct words of the corpus
+     */
+    public int size() {
+        return vocabulary.size();
+    }
+
+    /**
+     * counts the words of a corpus and writes them as a binary index
+     *
+     * @param corpus the path of the corpus
+     * @param path the path of the index
+     * @throws IOException if the corpus cannot be read or the index cannot be
+     * written
+     */
+    public static void compile(String corpus, String path) throws IOException {
+        Logger.log("Indexing word frequencies of " + corpus + "...");
+        System.out.println("Indexing word frequencies of " + corpus + "...");
+        long start = System.currentTimeMillis();
+
+        //Count words, splitting lines as String.split(" ") does:
+        Vocabulary words = new Vocabulary(1 << 16);
+        int[] wordCounts = new int[1 << 16];
+        long tokens = 0;
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(corpus), "utf-8"), 1 << 16);
+        try {
+            String line = br.readLine();
+            while (line != null) {
+                int end = line.length();
+                while (end > 0 && line.charAt(end - 1) == ' ') {
+                    end--;
+                }
+                //A line of spaces alone has no words:
+                int wordStart = end == 0 && line.length() > 0 ? 1 : 0;
+                while (wordStart <= end) {
+                    int wordEnd = line.indexOf(' ', wordStart);
+                    if (wordEnd == -1 || wordEnd > end) {
+                        wordEnd = end;
+                    }
+                    int id = words.add(line, wordStart, wordEnd);
+                    if (id == wordCounts.length) {
+                        wordCounts = Arrays.copyOf(wordCounts, id * 2);
+                    }
+                    wordCounts[id]++;
+                    tokens++;
+                    wordStart = wordEnd + 1;
+                }
+                line = br.readLine();
+            }
+        } finally {
+            br.close();
+        }
+
+        //Write to a temporary file first, so that no partial index is left:
+        File partial = new File(path + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(tokens);
+            MappedVocabulary.write(out, words);
+            for (int id = 0; id < words.size(); id++) {
+                out.writeInt(wordCounts[id]);
+            }
+        } finally {
+            out.close();
+        }
+        File index = new File(path);
+        if (index.exists() && !index.delete() || !partial.renameTo(index)) {
+            partial.delete();
+            throw new IOException("Could not replace " + path);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        Logger.log(words.size() + " words and " + tokens + " tokens indexed in " + elapsed / 1000F + " sec");
+        System.out.println(words.size() + " words and " + tokens + " tokens indexed in " + elapsed / 1000F + " sec");
+    }
+
+    /**
+     * builds the frequency index of a corpus
+     *
+     * @param args the corpus and, optionally, the path of the index, which
+     * defaults to the corpus followed by ".freq"
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: CorpusFrequencyIndex <corpus> [<index file>]");
+            return;
+        }
+        compile(args[0], args.length > 1 ? args[1] : args[0] + ".freq");
+    }
+}
@@ -36,6 +36,16 @@ public class DiscourseRepetition extends ResourceProcessor {
     
     
     public DiscourseRepetition(){
+        this.startDocument(null);
+    }
+
+    /**
+     * forgets the repetitions counted in the previous document
+     *
+     * @param input not used
+     */
+    @Override
+    public void startDocument(String input) {
         this.wordRepetition = new HashMap<String,Integer>(); 
         this.lemmaRepetition = new HashMap<String,Integer>(); 
         this.nounRepetition = new HashMap<String,Integer>(); 
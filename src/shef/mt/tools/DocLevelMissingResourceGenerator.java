@@ -13,7 +13,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import shef.mt.DocLevelFeatureExtractor;
-import shef.mt.util.NGramSorter;
 
 public class DocLevelMissingResourceGenerator {
 
@@ -133,79 +132,37 @@ public class DocLevelMissingResourceGenerator {
         //Check if source LM is missing:
         if (required.contains("logprob") || required.contains("ppl") || required.contains("ppl1")) {
             if (this.dlfe.getResourceManager().getProperty(this.dlfe.getSourceLang() + ".lm") == null) {
-                if (this.dlfe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.dlfe.getResourceManager().getProperty(this.dlfe.getSourceLang() + ".corpus") != null) {
-                        if (this.dlfe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: " + this.dlfe.getSourceLang() + ".lm");
-                            String outputPath = this.dlfe.getResourceManager().getProperty("resourcesPath") + File.separator + this.dlfe.getSourceLang() + File.separator + this.dlfe.getSourceLang() + "_lm.lm";
-                            String[] args = new String[]{
-                                this.dlfe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.dlfe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.dlfe.getResourceManager().getProperty(this.dlfe.getSourceLang() + ".corpus"),
-                                "-lm",
-                                outputPath};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-                                this.dlfe.getResourceManager().setProperty(this.dlfe.getSourceLang() + ".lm",
-                                        outputPath);
-                                System.out.println("Resource " + this.dlfe.getSourceLang() + ".lm " + "saved at: " + outputPath);
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource " + this.dlfe.getSourceLang() + ".lm and resources path is not defined!");
+                if (this.dlfe.getResourceManager().getProperty(this.dlfe.getSourceLang() + ".corpus") != null) {
+                    if (this.dlfe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: " + this.dlfe.getSourceLang() + ".lm");
+                        String outputPath = this.dlfe.getResourceManager().getProperty("resourcesPath") + File.separator + this.dlfe.getSourceLang() + File.separator + this.dlfe.getSourceLang() + "_lm.lm";
+                        if (MissingResourceGenerator.produceLanguageModel(this.dlfe.getResourceManager().getProperty(this.dlfe.getSourceLang() + ".corpus"), outputPath, this.getNgramSize())) {
+                            this.dlfe.getResourceManager().setProperty(this.dlfe.getSourceLang() + ".lm", outputPath);
+                            System.out.println("Resource " + this.dlfe.getSourceLang() + ".lm" + " saved at: " + outputPath);
                         }
                     } else {
-                        System.out.println("Missing resource " + this.dlfe.getSourceLang() + ".lm and corpus is not available!");
+                        System.out.println("Missing resource " + this.dlfe.getSourceLang() + ".lm and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource " + this.dlfe.getSourceLang() + ".lm and SRILM is not available!");
+                    System.out.println("Missing resource " + this.dlfe.getSourceLang() + ".lm and corpus is not available!");
                 }
             }
 
             //Check if target LM is missing:
             if (this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".lm") == null) {
-                if (this.dlfe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".corpus") != null) {
-                        if (this.dlfe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: " + this.dlfe.getTargetLang() + ".lm");
-                            String outputPath = this.dlfe.getResourceManager().getProperty("resourcesPath") + File.separator + this.dlfe.getTargetLang() + File.separator + this.dlfe.getSourceLang() + "_lm.lm";
-                            String[] args = new String[]{
-                                this.dlfe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.dlfe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".corpus"),
-                                "-lm",
-                                outputPath};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-                                this.dlfe.getResourceManager().setProperty(this.dlfe.getTargetLang() + ".lm",
-                                        outputPath);
-                                System.out.println("Resource " + this.dlfe.getTargetLang() + ".lm " + "saved at: " + outputPath);
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".lm and resources path is not defined!");
+                if (this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".corpus") != null) {
+                    if (this.dlfe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: " + this.dlfe.getTargetLang() + ".lm");
+                        String outputPath = this.dlfe.getResourceManager().getProperty("resourcesPath") + File.separator + this.dlfe.getTargetLang() + File.separator + this.dlfe.getTargetLang() + "_lm.lm";
+                        if (MissingResourceGenerator.produceLanguageModel(this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".corpus"), outputPath, this.getNgramSize())) {
+                            this.dlfe.getResourceManager().setProperty(this.dlfe.getTargetLang() + ".lm", outputPath);
+                            System.out.println("Resource " + this.dlfe.getTargetLang() + ".lm" + " saved at: " + outputPath);
                         }
                     } else {
-                        System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".lm and corpus is not available!");
+                        System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".lm and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".lm and SRILM is not available!");
+                    System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".lm and corpus is not available!");
                 }
             }
         }
@@ -215,141 +172,65 @@ public class DocLevelMissingResourceGenerator {
         //Check if source NGRAM file is missing:
         if (required.contains("ngramcount")) {
             if (this.dlfe.getResourceManager().getProperty(this.dlfe.getSourceLang() + ".ngram") == null) {
-                if (this.dlfe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.dlfe.getResourceManager().getProperty(this.dlfe.getSourceLang() + ".corpus") != null) {
-                        if (this.dlfe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: " + this.dlfe.getSourceLang() + ".ngram");
-                            String rawNgramFile = this.dlfe.getResourceManager().getProperty("resourcesPath") + File.separator + this.dlfe.getSourceLang() + File.separator + this.dlfe.getSourceLang() + "_ngram.ngram";
-                            String[] args = new String[]{
-                                this.dlfe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.dlfe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.dlfe.getResourceManager().getProperty(this.dlfe.getSourceLang() + ".corpus"),
-                                "-write",
-                                rawNgramFile};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-
-                                NGramSorter.run(rawNgramFile, 4, Integer.parseInt(this.dlfe.getResourceManager().getProperty("ngramsize")), 2, rawNgramFile);
-
-                                this.dlfe.getResourceManager().setProperty(this.dlfe.getSourceLang() + ".ngram", rawNgramFile + ".clean");
-                                System.out.println("Resource " + this.dlfe.getSourceLang() + ".ngram " + "saved at: " + rawNgramFile + ".clean");
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource " + this.dlfe.getSourceLang() + ".ngram and resources path is not defined!");
+                if (this.dlfe.getResourceManager().getProperty(this.dlfe.getSourceLang() + ".corpus") != null) {
+                    if (this.dlfe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: " + this.dlfe.getSourceLang() + ".ngram");
+                        String rawNgramFile = this.dlfe.getResourceManager().getProperty("resourcesPath") + File.separator + this.dlfe.getSourceLang() + File.separator + this.dlfe.getSourceLang() + "_ngram.ngram";
+                        if (MissingResourceGenerator.produceNgramCounts(this.dlfe.getResourceManager().getProperty(this.dlfe.getSourceLang() + ".corpus"), rawNgramFile, this.getNgramSize())) {
+                            this.dlfe.getResourceManager().setProperty(this.dlfe.getSourceLang() + ".ngram", rawNgramFile + ".clean");
+                            System.out.println("Resource " + this.dlfe.getSourceLang() + ".ngram" + " saved at: " + rawNgramFile + ".clean");
                         }
                     } else {
-                        System.out.println("Missing resource " + this.dlfe.getSourceLang() + ".ngram and corpus is not available!");
+                        System.out.println("Missing resource " + this.dlfe.getSourceLang() + ".ngram and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource " + this.dlfe.getSourceLang() + ".ngram and SRILM is not available!");
+                    System.out.println("Missing resource " + this.dlfe.getSourceLang() + ".ngram and corpus is not available!");
                 }
             }
 
             //Check if target NGRAM file is missing:
             if (this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".ngram") == null) {
-                if (this.dlfe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".corpus") != null) {
-                        if (this.dlfe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: " + this.dlfe.getTargetLang() + ".ngram");
-                            String rawNgramFile = this.dlfe.getResourceManager().getProperty("resourcesPath") + File.separator + this.dlfe.getTargetLang() + File.separator + this.dlfe.getTargetLang() + "_ngram.ngram";
-                            String[] args = new String[]{
-                                this.dlfe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.dlfe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".corpus"),
-                                "-write",
-                                rawNgramFile};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-
-                                NGramSorter.run(rawNgramFile, 4, Integer.parseInt(this.dlfe.getResourceManager().getProperty("ngramsize")), 2, rawNgramFile);
-
-                                this.dlfe.getResourceManager().setProperty(this.dlfe.getTargetLang() + ".ngram", rawNgramFile + ".clean");
-                                System.out.println("Resource " + this.dlfe.getTargetLang() + ".ngram saved at: " + rawNgramFile + ".clean");
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".ngram and resources path is not defined!");
+                if (this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".corpus") != null) {
+                    if (this.dlfe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: " + this.dlfe.getTargetLang() + ".ngram");
+                        String rawNgramFile = this.dlfe.getResourceManager().getProperty("resourcesPath") + File.separator + this.dlfe.getTargetLang() + File.separator + this.dlfe.getTargetLang() + "_ngram.ngram";
+                        if (MissingResourceGenerator.produceNgramCounts(this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".corpus"), rawNgramFile, this.getNgramSize())) {
+                            this.dlfe.getResourceManager().setProperty(this.dlfe.getTargetLang() + ".ngram", rawNgramFile + ".clean");
+                            System.out.println("Resource " + this.dlfe.getTargetLang() + ".ngram" + " saved at: " + rawNgramFile + ".clean");
                         }
                     } else {
-                        System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".ngram and corpus is not available!");
+                        System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".ngram and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".ngram and SRILM is not available!");
+                    System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".ngram and corpus is not available!");
                 }
             }
         }
     }
 
     private void produceMissingPOSNgramCounts(HashSet<String> required) {
-        //Check if source NGRAM file is missing:
+        //Check if target POS NGRAM file is missing:
         if (required.contains("posngramcount")) {
-            //Check if target NGRAM file is missing:
             if (this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".posngram") == null) {
-                if (this.dlfe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".poscorpus") != null) {
-                        if (this.dlfe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: " + this.dlfe.getTargetLang() + ".posngram");
-                            String rawNgramFile = this.dlfe.getResourceManager().getProperty("resourcesPath") + File.separator + this.dlfe.getTargetLang() + File.separator + this.dlfe.getTargetLang() + "_posngram.posngram";
-                            String[] args = new String[]{
-                                this.dlfe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.dlfe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".poscorpus"),
-                                "-write",
-                                rawNgramFile};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-
-                                NGramSorter.run(rawNgramFile, 4, Integer.parseInt(this.dlfe.getResourceManager().getProperty("ngramsize")), 2, rawNgramFile);
-
-                                this.dlfe.getResourceManager().setProperty(this.dlfe.getTargetLang() + ".posngram", rawNgramFile + ".clean");
-                                System.out.println("Resource " + this.dlfe.getTargetLang() + ".posngram saved at: " + rawNgramFile + ".clean");
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".posngram and resources path is not defined!");
+                if (this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".poscorpus") != null) {
+                    if (this.dlfe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: " + this.dlfe.getTargetLang() + ".posngram");
+                        String rawNgramFile = this.dlfe.getResourceManager().getProperty("resourcesPath") + File.separator + this.dlfe.getTargetLang() + File.separator + this.dlfe.getTargetLang() + "_posngram.posngram";
+                        if (MissingResourceGenerator.produceNgramCounts(this.dlfe.getResourceManager().getProperty(this.dlfe.getTargetLang() + ".poscorpus"), rawNgramFile, this.getNgramSize())) {
+                            this.dlfe.getResourceManager().setProperty(this.dlfe.getTargetLang() + ".posngram", rawNgramFile + ".clean");
+                            System.out.println("Resource " + this.dlfe.getTargetLang() + ".posngram" + " saved at: " + rawNgramFile + ".clean");
                         }
                     } else {
-                        System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".posngram and corpus is not available!");
+                        System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".posngram and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".posngram and SRILM is not available!");
+                    System.out.println("Missing resource " + this.dlfe.getTargetLang() + ".posngram and corpus is not available!");
                 }
             }
         }
     }
-    
-
-    
- }
-
-
-
-
-
-
 
+    private int getNgramSize() {
+        return Integer.parseInt(this.dlfe.getResourceManager().getProperty("ngramsize"));
+    }
+}
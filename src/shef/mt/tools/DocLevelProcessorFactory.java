@@ -24,6 +24,15 @@ public class DocLevelProcessorFactory {
     
     private ArrayList<ResourceProcessor> docTargetProcessors;
 
+    //Document processors that are bound again to each document:
+    private POSTaggerProcessor[] posTaggerProcessors;
+
+    private PPLProcessor[] pplProcessors;
+
+    private PPLProcessor posLMProcessor;
+
+    private DiscourseRepetition[] discRepProcessors;
+
     public DocLevelProcessorFactory(FeatureExtractor fe) {
         //Setup initial instance of ResourceProcessor matrix:
         this.resourceProcessors = null;
@@ -160,7 +169,26 @@ public class DocLevelProcessorFactory {
     private PPLProcessor[] getLMProcessors() {
         ResourceManager.registerResource("target.lm");
         ResourceManager.registerResource("source.lm");
-        
+
+        //Run SRILM over the current document:
+        String[] outputs = this.runLMs();
+
+        //Generate PPL processors:
+        PPLProcessor pplPosProcSource = new PPLProcessor(outputs[0],
+                new String[]{"logprob", "ppl", "ppl1"});
+        PPLProcessor pplPosProcTarget = new PPLProcessor(outputs[1],
+                new String[]{"logprob", "ppl", "ppl1"});
+
+        //Return processors:
+        return new PPLProcessor[]{pplPosProcSource, pplPosProcTarget};
+    }
+
+    /**
+     * computes the perplexities of the current source and target documents
+     *
+     * @return the paths of the source and target perplexity files
+     */
+    private String[] runLMs() {
         //Generate output paths:
         String sourceOutput = this.fe.getSourceFile() + ".ppl";
         String targetOutput = this.fe.getTargetFile() + ".ppl";
@@ -191,14 +219,8 @@ public class DocLevelProcessorFactory {
         }
         System.out.println("SRILM finished!");
 
-        //Generate PPL processors:
-        PPLProcessor pplPosProcSource = new PPLProcessor(sourceOutput,
-                new String[]{"logprob", "ppl", "ppl1"});
-        PPLProcessor pplPosProcTarget = new PPLProcessor(targetOutput,
-                new String[]{"logprob", "ppl", "ppl1"});
-
-        //Return processors:
-        return new PPLProcessor[]{pplPosProcSource, pplPosProcTarget};
+        //Return output paths:
+        return new String[]{sourceOutput, targetOutput};
     }
 
     private LanguageModel[] getNGramModels() {
@@ -242,6 +264,24 @@ public class DocLevelProcessorFactory {
     private POSTaggerProcessor[] getPOSTaggerProcessors() {
         ResourceManager.registerResource("source.postagger");
         ResourceManager.registerResource("target.postagger");
+
+        //Run the taggers over the current document:
+        String[] outputs = this.runPOSTaggers();
+
+        //Generate POSTagger processors:
+        POSTaggerProcessor posTaggerProcTarget = new POSTaggerProcessor(outputs[1]);
+        POSTaggerProcessor posTaggerProcSource = new POSTaggerProcessor(outputs[0]);
+
+        //Return processors:
+        return new POSTaggerProcessor[]{posTaggerProcSource, posTaggerProcTarget};
+    }
+
+    /**
+     * tags the current source and target documents
+     *
+     * @return the paths of the source and target tagger outputs
+     */
+    private String[] runPOSTaggers() {
         String posNameSource = "shef.mt.tools.PosTreeTagger";
         String posNameTarget = "shef.mt.tools.PosTreeTagger";
         String outputPathSource = this.fe.getResourceManager().getProperty("input") + File.separator + this.fe.getSourceLang()+File.separator;
@@ -280,15 +320,9 @@ public class DocLevelProcessorFactory {
         } catch (Exception e) {
             e.printStackTrace();
         }
-        
-        //Generate POSTagger processors:
-        POSTaggerProcessor posTaggerProcTarget = new POSTaggerProcessor(targetOutput);
-        POSTaggerProcessor posTaggerProcSource = new POSTaggerProcessor(sourceOutput);
-
 
-        //Return processors:
-        return new POSTaggerProcessor[]{posTaggerProcSource, posTaggerProcTarget};
-        //return null;
+        //Return output paths:
+        return new String[]{sourceOutput, targetOutput};
     }
 
     private DiscourseRepetition[] getDiscourseRepetitionProcessors() {
@@ -300,7 +334,7 @@ public class DocLevelProcessorFactory {
 
     private GizaProcessor getGizaProcessor() {
         ResourceManager.registerResource("giza.path");
-        FileModel fm = new FileModel(this.fe.getSourceFile(), this.fe.getResourceManager().getString("source.corpus"));
+        FileModel fm = new FileModel(this.fe.getResourceManager().getString("source.corpus"));
         String gizaPath = this.fe.getResourceManager().getString("giza.path");
         GizaProcessor gizaProc = new GizaProcessor(gizaPath);
         return gizaProc;
@@ -309,7 +343,21 @@ public class DocLevelProcessorFactory {
     private PPLProcessor getPOSLMProcessor() {
         //Register resources:
         ResourceManager.registerResource("target.poslm");
-        
+
+        //Generate PPL processors:
+        PPLProcessor pplProcTarget = new PPLProcessor(this.runPOSLM(),
+                new String[]{"poslogprob", "posppl", "posppl1"});
+
+        //Return processors:
+        return pplProcTarget;
+    }
+
+    /**
+     * computes the POS perplexities of the current target document
+     *
+     * @return the path of the perplexity file
+     */
+    private String runPOSLM() {
         //Generate output paths:
         String targetOutput = this.fe.getTargetFile() + ".XPOS.ppl";
 
@@ -325,12 +373,8 @@ public class DocLevelProcessorFactory {
         nge.runNGramPerplex(this.fe.getTargetFile(), targetOutput, targetLM);
         System.out.println("SRILM finished!");
 
-        //Generate PPL processors:
-        PPLProcessor pplProcTarget = new PPLProcessor(targetOutput,
-                new String[]{"poslogprob", "posppl", "posppl1"});
-
-        //Return processors:
-        return pplProcTarget;
+        //Return output path:
+        return targetOutput;
     }
     
     private TopicDistributionProcessor getSourceTopicDistributionProcessor() {
@@ -372,7 +416,18 @@ public class DocLevelProcessorFactory {
     }
     
     
+    /**
+     * Prepares the document processors for the current document. They are
+     * built for the first document, loading corpus-level resources such as
+     * Giza once; for the next documents, only the per-document tools are run
+     * again and the processors are bound to their new outputs.
+     */
     public void execProcessors(){
+        if (docResourceProcessors != null) {
+            this.rebindProcessors();
+            return;
+        }
+
         //Allocate source and target processor vectors:
         docSourceProcessors = new ArrayList<>();
         docTargetProcessors = new ArrayList<>();
@@ -389,7 +444,7 @@ public class DocLevelProcessorFactory {
         
         if (requirements.contains("source.postagger") || requirements.contains("target.postagger")) {
             //Get POSTagger processors:
-            POSTaggerProcessor[] posTaggerProcessors = this.getPOSTaggerProcessors();
+            posTaggerProcessors = this.getPOSTaggerProcessors();
             POSTaggerProcessor posTaggerProcSource = posTaggerProcessors[0];
             POSTaggerProcessor posTaggerProcTarget = posTaggerProcessors[1];
 
@@ -400,7 +455,7 @@ public class DocLevelProcessorFactory {
         
         if (requirements.contains("source.lm") || requirements.contains("target.lm")) {
             //Run SRILM on language models:
-            PPLProcessor[] pplProcessors = this.getLMProcessors();
+            pplProcessors = this.getLMProcessors();
             PPLProcessor pplProcSource = pplProcessors[0];
             PPLProcessor pplProcTarget = pplProcessors[1];
 
@@ -411,16 +466,15 @@ public class DocLevelProcessorFactory {
         
         if (requirements.contains("target.poslm")) {
             //Run SRILM on language models:
-            //Run SRILM on language models:
-            PPLProcessor pplProcTarget = this.getPOSLMProcessor();
+            posLMProcessor = this.getPOSLMProcessor();
 
             //Add them to processor vectors:
-            docTargetProcessors.add(pplProcTarget);
+            docTargetProcessors.add(posLMProcessor);
         }
         
         if (requirements.contains("discrep")) {
             //Get stopwords processors:
-            DiscourseRepetition[] discRepProcessors = this.getDiscourseRepetitionProcessors();
+            discRepProcessors = this.getDiscourseRepetitionProcessors();
             DiscourseRepetition discRepProcSource = discRepProcessors[0];
             DiscourseRepetition discRepProcTarget = discRepProcessors[1];
 
@@ -439,6 +493,30 @@ public class DocLevelProcessorFactory {
         this.docResourceProcessors = new ResourceProcessor[][]{sourceProcessorVector, targetProcessorVector};
     }
     
+    /**
+     * runs the per-document tools over the current document and binds the
+     * document processors to their outputs
+     */
+    private void rebindProcessors() {
+        if (posTaggerProcessors != null) {
+            String[] outputs = this.runPOSTaggers();
+            posTaggerProcessors[0].startDocument(outputs[0]);
+            posTaggerProcessors[1].startDocument(outputs[1]);
+        }
+        if (pplProcessors != null) {
+            String[] outputs = this.runLMs();
+            pplProcessors[0].startDocument(outputs[0]);
+            pplProcessors[1].startDocument(outputs[1]);
+        }
+        if (posLMProcessor != null) {
+            posLMProcessor.startDocument(this.runPOSLM());
+        }
+        if (discRepProcessors != null) {
+            discRepProcessors[0].startDocument(null);
+            discRepProcessors[1].startDocument(null);
+        }
+    }
+    
          /**
      * @return the resourceProcessors
      */
@@ -4,106 +4,80 @@
 package shef.mt.tools;
 
 import shef.mt.util.Logger;
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.util.*;
-
-import shef.mt.features.util.StringOperations;
 
 /**
  * A FileModel contains information about the input text: the words contained
  * and their frequency in the reference corpus It registers 2 resources: "words"
- * and "freq", required by BB features 20-29
+ * and "freq", required by BB features 20-29<br>
+ * Frequencies are read from a CorpusFrequencyIndex of the reference corpus,
+ * which is built once and then memory-mapped, so every word of any input can
+ * be looked up without scanning the corpus again.
  *
  * @author Catalina Hallett
  *
  */
 public class FileModel {
 
-    private static HashMap<String, Integer> words;
-    private static int wordCount;
+    private static CorpusFrequencyIndex index;
+    private static String indexedCorpus;
 
+    /**
+     * Builds the word model of an input file. Since frequencies are read from
+     * the index of the whole reference corpus, the input file is not read.
+     *
+     * @param inFile the path to the input file
+     * @param sourceCorpus the path to the reference corpus
+     */
     public FileModel(String inFile, String sourceCorpus) {
-        Logger.log("Building the word model for the input file");
-        System.out.println("Building the input file model");
-        long start = System.currentTimeMillis();
-        //System.out.println(inFile+"  "+sourceCorpus);
-        words = new HashMap<String, Integer>();
-        String wordLower;
-        try {
-            String wordsSplit[];
-
-            BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inFile), "utf-8"));
-            String line = br.readLine();
+        this(sourceCorpus);
+    }
 
-            while (line != null) {
-                wordsSplit = line.split(" ");
-                for (String word : wordsSplit) {
-//					wordLower = word.toLowerCase(ParamManager.getSourceLocale());
-                    if (!words.containsKey(word)) {
-                        words.put(word, new Integer(0));
-                    }
-                }
-                line = br.readLine();
+    /**
+     * Builds the word model from the reference corpus alone, keeping the
+     * frequency of every word in it. The corpus index is mapped once and kept
+     * for later models of the same corpus.
+     *
+     * @param sourceCorpus the path to the reference corpus
+     */
+    public FileModel(String sourceCorpus) {
+        synchronized (FileModel.class) {
+            if (index != null && sourceCorpus.equals(indexedCorpus)) {
+                return;
             }
-            br.close();
-            wordCount = words.size();
-            Logger.log(wordCount + " words identified. Computing frequencies... ");
-            ResourceManager.registerResource("Words");
-        } catch (java.io.IOException e) {
-            e.printStackTrace();
-        }
-
-        try {
-            String wordsSplit[];
-            BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(sourceCorpus), "utf-8"));
-            String line = br.readLine();
-            while (line != null) {
-                wordsSplit = line.split(" ");
-
-                for (String word : wordsSplit) {
-                    //	wordLower = word.toLowerCase(ParamManager.getSourceLocale());
-                    if (words.containsKey(word)) {
-                        words.put(word, words.get(word) + 1);
-                    }
-                }
-                line = br.readLine();
+            Logger.log("Building the word model for the reference corpus");
+            System.out.println("Building the corpus model");
+            try {
+                index = CorpusFrequencyIndex.load(sourceCorpus);
+                indexedCorpus = sourceCorpus;
+                Logger.log(index.size() + " words identified.");
+                ResourceManager.registerResource("Words");
+                ResourceManager.registerResource("source.corpus");
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-            br.close();
-            ResourceManager.registerResource("source.corpus");
-            //	print();
-        } catch (Exception e) {
-            e.printStackTrace();
+            System.out.println("Corpus model built!");
         }
-        System.out.println("Input file model built!");
-    }
-
-    public static Set getWords() {
-        return words.keySet();
     }
 
     public static boolean containsWord(String word) {
-        return words.containsKey(word);
+        return index.getFrequency(word) > 0;
     }
 
+    /**
+     * returns the number of times a word appears in the reference corpus
+     */
     public static int getFrequency(String word) {
-        if (!words.containsKey(word)) {
-            return -1;
-        }
-        return words.get(word);
+        return index.getFrequency(word);
     }
 
-    public static void print() {
-        Iterator<String> it = words.keySet().iterator();
-        String word;
-        while (it.hasNext()) {
-            word = it.next();
-            System.out.println(word + "\t" + words.get(word));
-        }
+    /**
+     * returns the number of tokens of the reference corpus
+     */
+    public static long getTotalTokens() {
+        return index.getTotalTokens();
     }
 
     public static void main(String[] args) {
         FileModel fm = new FileModel(args[0], args[1]);
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,20 @@
 package shef.mt.tools;
 
 import shef.mt.util.Logger;
-import shef.mt.util.Pair;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.*;
 
 /**
- * This class models the information stored in a giza translation file <br> In
- * order to minimise the amount of giza information we store in memory, we will
- * only hold in the translations for those words found in the source text
+ * This class models the information stored in a giza translation file <br>
+ * The translations are kept in a TranslationTable indexed by source word, so
+ * that translations, translation counts and probabilities are looked up
+ * without going through the whole table. The whole table is held, whatever
+ * the input, and it can be compiled by MappedTranslationTable into a binary
+ * file that is memory-mapped instead of being parsed.
  *
  * @author cat
  */
@@ -19,16 +23,13 @@ public class Giza extends Resource {
     public static final Float[] PROBS_VALUES = new Float[]{0.05f, 0.01f, 0.10f, 0.20f, 0.50f};
     public static final HashSet<Float> PROBS_SET = new HashSet<Float>(Arrays.asList(PROBS_VALUES));
     /**
-     * stores pairs of <word, int[] probability counts>, where int[i] = the
-     * number of translations for the word that have the probability >=
-     * PROBS_VALUES[i]
+     * stores the translations of each source word, with the number of
+     * translations for the word that have the probability > PROBS_VALUES[i]
      */
-    private static HashMap<String, int[]> transProbCount;
-    private static HashMap<Pair, Float> translations;
+    private static TranslationTable table;
     private static float minProb = 0.01f;
     private static float transMinProb = 0.1f;
 
-    // in order to minimise the amount of giza information we store in memory, we will only hold in the translations for those words found in the source text
     public Giza() {
         super(null);
     }
@@ -41,96 +42,129 @@ public class Giza extends Resource {
     public Giza(String gizaFilePath) {
         super(null);
         Logger.log("initiating Giza from file: " + gizaFilePath);
-        transProbCount = new HashMap<String, int[]>();
-        translations = new HashMap<Pair, Float>();
         if (loadGiza(gizaFilePath) != -1) {
             ResourceManager.registerResource("Giza");
         }
     }
 
+    /**
+     * Loads the translations. If a binary table compiled by
+     * MappedTranslationTable is found next to the giza file and is not older
+     * than it, the binary table is mapped instead of parsing the file.
+     *
+     * @param filePath the path of the giza file
+     * @return 0 if the translations were loaded, -1 otherwise
+     */
     public int loadGiza(String filePath) {
         long start = System.currentTimeMillis();
+        File index = new File(filePath.endsWith(".bin") ? filePath : filePath + ".bin");
+        File text = new File(filePath);
+        if (index.isFile() && (!text.isFile() || text.equals(index) || index.lastModified() >= text.lastModified())) {
+            Logger.log("Mapping Giza table " + index.getPath() + "...");
+            System.out.println("Mapping Giza table " + index.getPath() + "...");
+            try {
+                TranslationTable mapped = new MappedTranslationTable(index.getPath());
+                if (Arrays.equals(mapped.getThresholds(), getThresholds())) {
+                    table = mapped;
+                    long elapsed = System.currentTimeMillis() - start;
+                    System.out.println("Giza mapped in " + elapsed / 1000F + " sec");
+                    Logger.log("Giza mapped in " + elapsed / 1000F + " sec");
+                    return 0;
+                }
+                Logger.log("Giza table " + index.getPath() + " was compiled with other probability thresholds");
+                System.out.println("Giza table " + index.getPath() + " was compiled with other probability thresholds");
+            } catch (IOException e) {
+                Logger.log("Could not map " + index.getPath() + ": " + e.getMessage());
+                System.out.println("Could not map " + index.getPath() + ": " + e.getMessage());
+            }
+        }
+
         Logger.log("Loading Giza...");
         System.out.println("Loading Giza...");
         try {
-            BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(filePath), "utf-8"));
-            String line = br.readLine();
-            while (line != null) {
-                parseLine(line);
-                line = br.readLine();
-            }
+            table = readTable(filePath);
             long elapsed = System.currentTimeMillis() - start;
             System.out.println("Giza loaded in " + elapsed / 1000F + " sec");
             Logger.log("Giza loaded in " + elapsed / 1000F + " sec");
-        } catch (java.io.IOException e) {
+        } catch (IOException e) {
             e.printStackTrace();
             return -1;
         }
         return 0;
     }
 
-    private void parseLine(String line) {
-        String[] comps = line.split("\\s+");
-        if (comps.length != 3) {
-            System.err.println("Invalid giza line: " + line);
-            return;
-        }
-        String word = comps[0];
-        String trans = comps[1];
-        float prob = Float.parseFloat(comps[2]);
-        if (prob < minProb) {
-            return;
-        }
-        if (!FileModel.containsWord(word)) {
-            return;
+    private static float[] getThresholds() {
+        float[] thresholds = new float[PROBS_VALUES.length];
+        for (int i = 0; i < thresholds.length; i++) {
+            thresholds[i] = PROBS_VALUES[i];
         }
+        return thresholds;
+    }
 
-        if (prob >= transMinProb) {
-            Pair p = new Pair(word, trans);
-            translations.put(p, prob);
-//			System.out.println("added translation: "+p);
-        }
-        //HashMap<Float,Integer> probs;
-        int[] probs;
-        Iterator probsIt;
-        int probCount;
-        int pCount; //for iterating through PROBS
-        float f;
-        if (transProbCount.containsKey(word)) {
-            probs = transProbCount.get(word);
-            for (pCount = 0; pCount < PROBS_VALUES.length; pCount++) {
-                f = PROBS_VALUES[pCount];
-                if (prob > f) {
-                    probs[pCount]++;
-                }
+    /**
+     * parses a giza file into a TranslationTable held in memory
+     *
+     * @param filePath the path of the giza file
+     * @return the table
+     * @throws IOException if the file cannot be read
+     */
+    static TranslationTable readTable(String filePath) throws IOException {
+        HeapTranslationTable loaded = new HeapTranslationTable(getThresholds());
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(filePath), "utf-8"));
+        try {
+            String line = br.readLine();
+            while (line != null) {
+                parseLine(line, loaded);
+                line = br.readLine();
             }
-            return;
+        } finally {
+            br.close();
         }
+        loaded.index();
+        return loaded;
+    }
 
-
-        probs = new int[PROBS_VALUES.length];
-        for (pCount = 0; pCount < PROBS_VALUES.length; pCount++) {
-            f = PROBS_VALUES[pCount];
-            if (prob > f) {
-                probs[pCount] = 1;
-            } else {
-                probs[pCount] = 0;
+    private static void parseLine(String line, HeapTranslationTable loaded) {
+        //Find the three whitespace-separated fields of the line:
+        int[] bounds = new int[6];
+        int fields = 0;
+        int i = 0;
+        int length = line.length();
+        while (i < length) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
             }
+            if (fields == 3) {
+                fields++;
+                break;
+            }
+            bounds[fields * 2] = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            bounds[fields * 2 + 1] = i;
+            fields++;
         }
-
-        transProbCount.put(word, probs);
-//		System.out.println(comps[0]+" "+probs);
+        if (fields != 3) {
+            System.err.println("Invalid giza line: " + line);
+            return;
+        }
+        float prob = Float.parseFloat(line.substring(bounds[4], bounds[5]));
+        if (!(prob >= minProb)) {
+            return;
+        }
+        loaded.add(line, bounds[0], bounds[1], bounds[2], bounds[3], prob);
     }
 
     public void print() {
         System.out.println("Loaded Giza");
-        Iterator<String> it = transProbCount.keySet().iterator();
-        while (it.hasNext()) {
-            String word = it.next();
-            System.out.print("\r\n" + word + "\t");
-            int[] values = transProbCount.get(word);
-            for (int i = 0; i < values.length; i++) {
-                System.out.print(PROBS_VALUES[i] + ":" + values[i] + "\t");
+        for (int id = 0; id < table.getSourceCount(); id++) {
+            System.out.print("\r\n" + table.getSource(id) + "\t");
+            for (int i = 0; i < PROBS_VALUES.length; i++) {
+                System.out.print(PROBS_VALUES[i] + ":" + table.getCount(id, i) + "\t");
             }
         }
     }
@@ -141,7 +175,8 @@ public class Giza extends Resource {
     }
 
     public static int getWordProbabilityCount(String word, float prob) {
-        if (!transProbCount.containsKey(word)) {
+        int id = table.getSourceId(word);
+        if (id == -1) {
             return 0;
         }
         float probVal = 0;
@@ -151,7 +186,7 @@ public class Giza extends Resource {
             probVal = PROBS_VALUES[count];
         }
         if (prob == probVal) {
-            return transProbCount.get(word)[count];
+            return table.getCount(id, count);
         }
         return 0;
     }
@@ -165,13 +200,8 @@ public class Giza extends Resource {
      * @return the probability of sourceWord to be translated as targetWord
      */
     public static float getTranslationProbability(String sourceWord, String targetWord) {
-        Pair p = new Pair(sourceWord, targetWord);
-        if (!translations.containsKey(p)) {
-            return 0;
-        } else {
-            return translations.get(p).floatValue();
-        }
-
+        float prob = table.getProbability(sourceWord, targetWord);
+        return prob >= transMinProb ? prob : 0;
     }
 
     /**
@@ -181,21 +211,57 @@ public class Giza extends Resource {
      * @return translations for word
      */
     public static HashSet<String> getTranslations(String word, float thresh) {
-        word = word.trim();
         HashSet<String> result = new HashSet<String>();
-        Iterator<Map.Entry<Pair, Float>> it = translations.entrySet().iterator();
-        Pair p;
-        Map.Entry<Pair, Float> entry;
-        while (it.hasNext()) {
-            entry = it.next();
-            p = entry.getKey();
-
-            if (p.getKey().trim().equals(word) && entry.getValue() >= thresh) {
-                result.add(p.getValue());
-            }
+        int count = getTranslationCount(word, thresh);
+        for (int i = 0; i < count; i++) {
+            result.add(getTranslation(word, i));
+        }
+        return result;
+    }
 
+    /**
+     * Returns the number of translations for a specified word with a
+     * probability of at least thresh, which are the first translations
+     * returned by getTranslation
+     *
+     * @param word
+     * @param thresh
+     * @return the number of translations for word
+     */
+    public static int getTranslationCount(String word, float thresh) {
+        int id = table.getSourceId(word.trim());
+        if (id == -1) {
+            return 0;
+        }
+        //Find the first translation below the threshold:
+        float min = Math.max(thresh, transMinProb);
+        int low = table.start(id);
+        int high = table.end(id);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (table.getProbability(mid) >= min) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
+        return low - table.start(id);
+    }
 
-        return result;
+    /**
+     * Returns a translation for a specified word, translations being sorted by
+     * decreasing probability
+     *
+     * @param word
+     * @param rank the position of the translation, starting at 0
+     * @return the translation, or null if the word is unknown or has fewer
+     * translations
+     */
+    public static String getTranslation(String word, int rank) {
+        int id = table.getSourceId(word.trim());
+        if (id < 0 || rank < 0 || table.start(id) + rank >= table.end(id)) {
+            return null;
+        }
+        return table.getTarget(table.getTargetId(table.start(id) + rank));
     }
 }
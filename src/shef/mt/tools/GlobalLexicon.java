@@ -1,79 +1,184 @@
 package shef.mt.tools;
 
 import shef.mt.util.Logger;
-import java.io.BufferedReader;
+import shef.mt.util.LongIntMap;
+import shef.mt.util.Vocabulary;
 import java.io.FileInputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.Scanner;
-import java.util.HashMap;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
 
 /**
+ * Weights of a Global Lexicon Model, read from a gzipped file of "target source
+ * weight" triples. Words are kept as int ids and weights in a primitive array
+ * indexed through a hash table from (source id, target id), so that a whole
+ * sentence pair can be scored with score() without boxing.
+ *
  * @author cbuck@lantis.de
  */
 public class GlobalLexicon extends Resource {
-    
-    private static HashMap<String, HashMap<String, Double>> weights;
+
+    private static final String BIAS = "**BIAS**";
+
+    private static Vocabulary sources;
+    private static Vocabulary targets;
+    private static LongIntMap pairs;
+    private static double[] weights;
+    private static int biasId;
     private Integer n_weights;
-    
-    private void readFile(String filename, Double minvalue) throws 
-            java.io.FileNotFoundException, 
-            java.io.UnsupportedEncodingException, 
+    private int targetId;
+    private String sourceWord;
+
+    private void readFile(String filename, Double minvalue) throws
+            java.io.FileNotFoundException,
+            java.io.UnsupportedEncodingException,
             java.io.IOException {
-        BufferedReader br = new BufferedReader(new InputStreamReader(
-                new GZIPInputStream(new FileInputStream(filename)), "utf-8"));
-        Scanner scan = new Scanner(br);
+        Reader reader = new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(filename), 1 << 16), "utf-8");
         n_weights = 0;
-        while (scan.hasNext()) {
-            String targetWord = scan.next();
-            String sourceWord = scan.next();
-            double weight = scan.nextDouble();
-            if (Math.abs(weight) >= minvalue) {
-                continue;
+        try {
+            //Split the file in "target source weight" triples of fields:
+            char[] buffer = new char[1 << 16];
+            StringBuilder field = new StringBuilder();
+            int fieldCount = 0;
+            int read = reader.read(buffer);
+            while (read != -1) {
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (!Character.isWhitespace(c)) {
+                        field.append(c);
+                    } else if (field.length() > 0) {
+                        readField(field, fieldCount++ % 3, minvalue);
+                    }
+                }
+                read = reader.read(buffer);
             }
-            if (!sourceWord.equals("**BIAS**") && !FileModel.containsWord(sourceWord)) {
-                continue;
+            if (field.length() > 0) {
+                readField(field, fieldCount % 3, minvalue);
             }
-            if (!weights.containsKey(sourceWord)) {
-                weights.put(sourceWord, new HashMap<String, Double>());
+        } finally {
+            reader.close();
+        }
+        biasId = sources.get(BIAS);
+    }
+
+    /**
+     * handles the target word, source word or weight of a triple, and empties
+     * the field
+     */
+    private void readField(StringBuilder field, int position, Double minvalue) {
+        if (position == 0) {
+            targetId = targets.add(field, 0, field.length());
+        } else if (position == 1) {
+            sourceWord = field.toString();
+        } else {
+            double weight = Double.parseDouble(field.toString());
+            if (!(Math.abs(weight) >= minvalue)) {
+                addWeight(sources.add(sourceWord), targetId, weight);
+                n_weights++;
             }
-            weights.get(sourceWord).put(targetWord, weight);
-            n_weights++;
         }
+        field.setLength(0);
     }
-    
+
+    private static void addWeight(int sourceId, int targetId, double weight) {
+        long key = LanguageModel.pack(sourceId, targetId);
+        int index = pairs.get(key, -1);
+        if (index == -1) {
+            index = pairs.size();
+            pairs.put(key, index);
+            if (index == weights.length) {
+                weights = Arrays.copyOf(weights, index * 2);
+            }
+        }
+        weights[index] = weight;
+    }
+
+    private static double getWeight(int sourceId, int targetId) {
+        if (sourceId == -1 || targetId == -1) {
+            return 0.0;
+        }
+        int index = pairs.get(LanguageModel.pack(sourceId, targetId), -1);
+        return index == -1 ? 0.0 : weights[index];
+    }
+
     public Integer size() {
         return n_weights;
     }
-    
+
     public static Double get(final String sourceWord, final String targetWord) {
-        if (weights.containsKey(sourceWord)) {
-            if (weights.get(sourceWord).containsKey(targetWord)) {
-                return weights.get(sourceWord).get(targetWord);
-            }
-        }
-        return 0.0;
+        return getWeight(sources.get(sourceWord), targets.get(targetWord));
     }
-    
+
     public static Double getBias(final String targetWord) {
-        return get("**BIAS**", targetWord);
+        return get(BIAS, targetWord);
+    }
+
+    /**
+     * returns the ids of source words, -1 standing for words without weights
+     */
+    public static int[] getSourceIds(String[] words) {
+        int[] ids = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            ids[i] = sources.get(words[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * returns the ids of target words, -1 standing for words without weights
+     */
+    public static int[] getTargetIds(String[] words) {
+        int[] ids = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            ids[i] = targets.get(words[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Computes the probability of each target word appearing in the
+     * translation of a source sentence, i.e. the sigmoid of the bias of the
+     * target word plus its weights with every source word.
+     *
+     * @param sourceIds the ids of the source words, as given by getSourceIds
+     * @param targetIds the ids of the target words, as given by getTargetIds
+     * @return the probability of each target word
+     */
+    public static double[] score(int[] sourceIds, int[] targetIds) {
+        double[] probs = new double[targetIds.length];
+        for (int t = 0; t < targetIds.length; t++) {
+            double p = getWeight(biasId, targetIds[t]);
+            if (targetIds[t] != -1) {
+                for (int sourceId : sourceIds) {
+                    p += getWeight(sourceId, targetIds[t]);
+                }
+            }
+            probs[t] = 1. / (1. + Math.exp(-p));
+        }
+        return probs;
     }
-    
+
     public GlobalLexicon(final String glfilename, final Double minweight) {
         super(null);
         long start = System.currentTimeMillis();
         Logger.log("Loading GlobalLexicon from file: " + glfilename);
         System.out.println("Loading GlobalLexicon from file: " + glfilename);
-        weights = new HashMap<String, HashMap<String, Double>>();
+        sources = new Vocabulary(1 << 16);
+        targets = new Vocabulary(1 << 16);
+        pairs = new LongIntMap(1 << 16);
+        weights = new double[1 << 16];
+        biasId = -1;
         try {
             readFile(glfilename, 0.5);
         } catch (java.io.IOException e) {
             e.printStackTrace();
         }
         long elapsed = System.currentTimeMillis() - start;
-        Logger.log("GlobalLexicon loaded " + weights.size() + 
+        Logger.log("GlobalLexicon loaded " + sources.size() +
                 " weights in " + elapsed / 1000F + " sec");
-        System.out.println("GlobalLexicon loaded " + weights.size() + 
+        System.out.println("GlobalLexicon loaded " + sources.size() +
                 " weights in " + elapsed / 1000F + " sec");
         ResourceManager.registerResource("GlobalLexicon");
     }
@@ -83,4 +188,3 @@ public class GlobalLexicon extends Resource {
         GlobalLexicon gl = new GlobalLexicon(args[0], minweight);
     }
 }
-
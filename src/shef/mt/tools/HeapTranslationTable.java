@@ -0,0 +1,207 @@
+package shef.mt.tools;
+
+import java.util.Arrays;
+import shef.mt.util.LongIntMap;
+import shef.mt.util.Vocabulary;
+
+/**
+ * A TranslationTable built in memory from the entries of a giza
+ * <code>lex.e2s</code> file. The translations of each source word are kept in
+ * two primitive arrays of target word ids and probabilities, sorted by
+ * decreasing probability, so that the translations of a word above a threshold
+ * are a prefix of its entries. The number of translations above each of a
+ * fixed set of thresholds is counted once, and pairs of words are found
+ * through a hash table from (source id, target id) to entry. No lookup
+ * allocates memory. <br> Entries are added with add() and the table is built
+ * with index(), after which it cannot be changed.
+ *
+ * @author GustavoH
+ */
+class HeapTranslationTable extends TranslationTable {
+
+    private Vocabulary sources;
+    private Vocabulary targets;
+    private float[] thresholds;
+
+    //Entries while the table is being filled:
+    private int[] entrySources;
+    private int[] entryTargets;
+    private float[] entryProbs;
+    private int size;
+
+    //Index:
+    private int[] offsets;
+    private int[] targetIds;
+    private float[] probs;
+    private int[] counts;
+    private LongIntMap pairs;
+
+    /**
+     * @param thresholds the probabilities for which the number of translations
+     * of each source word with a higher probability is counted
+     */
+    HeapTranslationTable(float[] thresholds) {
+        this.thresholds = thresholds;
+        sources = new Vocabulary(1 << 16);
+        targets = new Vocabulary(1 << 16);
+        entrySources = new int[1024];
+        entryTargets = new int[1024];
+        entryProbs = new float[1024];
+    }
+
+    /**
+     * adds a translation, given as the characters start to end-1 of a line
+     */
+    void add(CharSequence line, int sourceStart, int sourceEnd, int targetStart, int targetEnd, float prob) {
+        if (size == entryProbs.length) {
+            entrySources = Arrays.copyOf(entrySources, size * 2);
+            entryTargets = Arrays.copyOf(entryTargets, size * 2);
+            entryProbs = Arrays.copyOf(entryProbs, size * 2);
+        }
+        entrySources[size] = sources.add(line, sourceStart, sourceEnd);
+        entryTargets[size] = targets.add(line, targetStart, targetEnd);
+        entryProbs[size] = prob;
+        size++;
+    }
+
+    /**
+     * builds the index from the entries added so far
+     */
+    void index() {
+        int sourceCount = sources.size();
+
+        //Group entries by source word:
+        offsets = new int[sourceCount + 1];
+        for (int i = 0; i < size; i++) {
+            offsets[entrySources[i] + 1]++;
+        }
+        for (int id = 0; id < sourceCount; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+        //Keys sort by decreasing probability, then by target id, since the
+        //bits of positive floats are ordered as the floats:
+        long[] keys = new long[size];
+        int[] next = Arrays.copyOf(offsets, sourceCount);
+        for (int i = 0; i < size; i++) {
+            long bits = Integer.MAX_VALUE - Float.floatToIntBits(entryProbs[i]);
+            keys[next[entrySources[i]]++] = bits << 32 | entryTargets[i];
+        }
+        entrySources = null;
+        entryTargets = null;
+        entryProbs = null;
+
+        //Sort the translations of each source word:
+        targetIds = new int[size];
+        probs = new float[size];
+        counts = new int[sourceCount * thresholds.length];
+        pairs = new LongIntMap(size);
+        for (int id = 0; id < sourceCount; id++) {
+            Arrays.sort(keys, offsets[id], offsets[id + 1]);
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                targetIds[i] = (int) keys[i];
+                probs[i] = Float.intBitsToFloat(Integer.MAX_VALUE - (int) (keys[i] >>> 32));
+                if (!pairs.containsKey(LanguageModel.pack(id, targetIds[i]))) {
+                    pairs.put(LanguageModel.pack(id, targetIds[i]), i);
+                }
+                for (int t = 0; t < thresholds.length; t++) {
+                    if (probs[i] > thresholds[t]) {
+                        counts[id * thresholds.length + t]++;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    float[] getThresholds() {
+        return thresholds;
+    }
+
+    /**
+     * returns the id of a source word, or -1 if it has no translations
+     */
+    @Override
+    int getSourceId(String word) {
+        return sources.get(word);
+    }
+
+    /**
+     * returns the id of a target word, or -1 if it is not a translation
+     */
+    @Override
+    int getTargetId(String word) {
+        return targets.get(word);
+    }
+
+    @Override
+    int getSourceCount() {
+        return sources.size();
+    }
+
+    @Override
+    String getSource(int sourceId) {
+        return sources.getWord(sourceId);
+    }
+
+    @Override
+    int getTargetCount() {
+        return targets.size();
+    }
+
+    @Override
+    String getTarget(int targetId) {
+        return targets.getWord(targetId);
+    }
+
+    /**
+     * @return the first entry of the translations of a source word
+     */
+    @Override
+    int start(int sourceId) {
+        return offsets[sourceId];
+    }
+
+    /**
+     * @return the entry after the last translation of a source word
+     */
+    @Override
+    int end(int sourceId) {
+        return offsets[sourceId + 1];
+    }
+
+    @Override
+    int getEntryCount() {
+        return offsets[offsets.length - 1];
+    }
+
+    @Override
+    int getTargetId(int entry) {
+        return targetIds[entry];
+    }
+
+    @Override
+    float getProbability(int entry) {
+        return probs[entry];
+    }
+
+    /**
+     * returns the number of translations of a source word with a probability
+     * higher than one of the thresholds
+     *
+     * @param sourceId the id of the source word
+     * @param threshold the index of the threshold
+     */
+    @Override
+    int getCount(int sourceId, int threshold) {
+        return counts[sourceId * thresholds.length + threshold];
+    }
+
+    /**
+     * returns the entry of a pair of source and target word ids, or -1 if the
+     * pair is not in the table
+     */
+    @Override
+    int getEntry(int sourceId, int targetId) {
+        return pairs.get(LanguageModel.pack(sourceId, targetId), -1);
+    }
+}
@@ -0,0 +1,101 @@
+package shef.mt.tools;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import shef.mt.features.util.Doc;
+import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
+
+/**
+ * Computes the log probability and perplexities of each sentence with a
+ * language model loaded in memory, and sets them to the sentence under the same
+ * names as PPLProcessor does with the output of SRILM.
+ *
+ * @author GustavoH
+ */
+public class LMScoreProcessor extends ResourceProcessor {
+
+    private BackoffLanguageModel lm;
+    private SentenceKey<Float>[] valKeys;
+    private BufferedReader br;
+
+    /**
+     * Creates a processor that scores the text of each sentence.
+     *
+     * @param lm the language model
+     * @param valNames the names of the log probability, perplexity and
+     * perplexity without end of sentence values
+     */
+    public LMScoreProcessor(BackoffLanguageModel lm, String[] valNames) {
+        this.lm = lm;
+        this.valKeys = SentenceKey.array(valNames);
+    }
+
+    /**
+     * Creates a processor that scores, for each sentence, the next line of a
+     * file, such as the POS tags of the input.
+     *
+     * @param lm the language model
+     * @param valNames the names of the log probability, perplexity and
+     * perplexity without end of sentence values
+     * @param inputFile the file with one line per sentence
+     */
+    public LMScoreProcessor(BackoffLanguageModel lm, String[] valNames, String inputFile) {
+        this(lm, valNames);
+        try {
+            br = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), "utf-8"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void processNextSentence(Sentence s) {
+        String text = s.getText();
+        if (br != null) {
+            try {
+                text = br.readLine();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            if (text == null) {
+                System.out.println("Input of language model ended before sentence " + s.getIndex());
+                return;
+            }
+        }
+        float[] values = lm.getPerplexity(text);
+        for (int i = 0; i < valKeys.length; i++) {
+            //SRILM prints "undefined", which PPLProcessor reads as 0:
+            s.setFloat(valKeys[i], Float.isNaN(values[i]) ? 0.0f : values[i]);
+        }
+    }
+
+    @Override
+    public void processNextDocument(Doc d) {
+        ArrayList<Sentence> sentences = d.getSentences();
+        for (int i = 0; i < sentences.size(); i++) {
+            processNextSentence(sentences.get(i));
+        }
+    }
+
+    /**
+     * @return true only if lines are read from a file
+     */
+    @Override
+    public boolean isSequential() {
+        return br != null;
+    }
+
+    public void close() {
+        if (br != null) {
+            try {
+                br.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
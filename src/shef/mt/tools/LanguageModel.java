@@ -1,41 +1,44 @@
 package shef.mt.tools;
 
 import java.util.*;
+import shef.mt.util.LongIntMap;
+import shef.mt.util.Vocabulary;
 
 /**
  * A LanguageModel stores information about the ngram content of language model
  * file It provides access to information such as the frequency of ngrams, and
  * the cut-off points for various ngram frequencies
  *
+ * Ngrams are not stored as Strings: every word is given an int id, and an ngram
+ * of size n is identified by the pair (id of its first n-1 words, id of its
+ * last word), packed into a long. Each ngram size has its own primitive map from
+ * these keys to dense ngram ids, and an int array from ngram ids to
+ * frequencies.
+ *
  * @author cat
  */
 public class LanguageModel {
 
-    private int sliceNo = 4;
-    private HashMap<String, Integer>[] ngrams;
-//	private ArrayList freqs;	//for storing frequencies in a sortable container
-    private int[][] cutOffs;	//for storing cut-off frequencies
-
-    /**
-     * @return the ngrams
-     */
-    public HashMap<String, Integer>[] getNgrams() {
-        return ngrams;
-    }
+    protected static final int NO_FREQ = -1;
 
-    /**
-     * @param aNgrams the ngrams to set
-     */
-    public void setNgrams(HashMap<String, Integer>[] aNgrams) {
-        ngrams = aNgrams;
-    }
+    protected static final int sliceNo = 4;
+    private Vocabulary vocabulary;
+    private LongIntMap[] ngramIds;	//for sizes above 1, maps (prefix id, word id) to ngram id
+    private int[][] freqs;	//frequency of each ngram id, NO_FREQ for prefixes that are not ngrams of the file
+    private int[] counts;	//number of ngram ids of each size
+    private int[][] cutOffs;	//for storing cut-off frequencies
 
     public LanguageModel(int nSize) {
-        ngrams = new HashMap[sliceNo];
+        vocabulary = new Vocabulary();
+        ngramIds = new LongIntMap[sliceNo];
+        freqs = new int[sliceNo][];
+        counts = new int[sliceNo];
         for (int i = 0; i < sliceNo; i++) {
-            ngrams[i] = new HashMap<String, Integer>();
+            if (i > 0) {
+                ngramIds[i] = new LongIntMap();
+            }
+            freqs[i] = new int[16];
         }
-        //	freqs = new ArrayList();
         cutOffs = new int[nSize][sliceNo];
     }
 
@@ -44,30 +47,155 @@ public class LanguageModel {
     }
 
     public void addNGram(String ngram, int freq, int size) {
-        getNgrams()[size - 1].put(ngram, new Integer(freq));
-        //freqs.add(freq);
+        addNGram(ngram, freq);
     }
 
     public void addNGram(String ngram, int freq) {
-        String[] ngramSplit = ngram.split(" ");
-        int size = ngramSplit.length;
-        getNgrams()[size - 1].put(ngram, new Integer(freq));
-        //freqs.add(freq);
+        int id = -1;
+        int size = 0;
+        int start = 0;
+        int length = ngram.length();
+        while (start <= length) {
+            if (size == sliceNo) {
+                return;
+            }
+            int end = ngram.indexOf(' ', start);
+            if (end == -1) {
+                end = length;
+            }
+            int word = vocabulary.add(ngram, start, end);
+            if (size == 0) {
+                id = word;
+                ensureId(0, id);
+            } else {
+                long key = pack(id, word);
+                id = ngramIds[size].get(key, -1);
+                if (id == -1) {
+                    id = counts[size];
+                    ngramIds[size].put(key, id);
+                    ensureId(size, id);
+                }
+            }
+            size++;
+            start = end + 1;
+        }
+        freqs[size - 1][id] = freq;
+    }
+
+    /**
+     * makes sure that the frequency array of the given size covers id, with
+     * NO_FREQ for the ids that were not set yet
+     */
+    private void ensureId(int size, int id) {
+        if (id >= freqs[size].length) {
+            int oldLength = freqs[size].length;
+            freqs[size] = Arrays.copyOf(freqs[size], Math.max(id + 1, oldLength * 2));
+            Arrays.fill(freqs[size], oldLength, freqs[size].length, NO_FREQ);
+        }
+        if (id >= counts[size]) {
+            Arrays.fill(freqs[size], counts[size], id + 1, NO_FREQ);
+            counts[size] = id + 1;
+        }
+    }
+
+    protected static long pack(int prefix, int word) {
+        return ((long) prefix << 32) | (word & 0xffffffffL);
+    }
+
+    /**
+     * returns the frequency of an ngram, or NO_FREQ if it is not in the model
+     *
+     * @param ngram the space-separated words of the ngram
+     * @param size the expected number of words, or -1 to accept any size
+     */
+    protected int lookup(String ngram, int size) {
+        int id = -1;
+        int found = 0;
+        int start = 0;
+        int length = ngram.length();
+        while (start <= length) {
+            if (found == sliceNo) {
+                return NO_FREQ;
+            }
+            int end = ngram.indexOf(' ', start);
+            if (end == -1) {
+                end = length;
+            }
+            int word = vocabulary.get(ngram, start, end);
+            if (word == -1) {
+                return NO_FREQ;
+            }
+            if (found == 0) {
+                id = word;
+            } else {
+                id = ngramIds[found].get(pack(id, word), -1);
+                if (id == -1) {
+                    return NO_FREQ;
+                }
+            }
+            found++;
+            start = end + 1;
+        }
+        if (size != -1 && found != size) {
+            return NO_FREQ;
+        }
+        if (id >= counts[found - 1]) {
+            return NO_FREQ;
+        }
+        return freqs[found - 1][id];
+    }
+
+    int[][] getCutOffs() {
+        return cutOffs;
+    }
+
+    Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * @return the map from (prefix id, word id) to ngram id for ngrams of the
+     * given size, which must be above 1
+     */
+    LongIntMap getNGramIds(int size) {
+        return ngramIds[size - 1];
+    }
+
+    /**
+     * @return the frequencies of the ngrams of the given size, indexed by
+     * ngram id; only the first getIdCount(size) are valid
+     */
+    int[] getFreqs(int size) {
+        return freqs[size - 1];
+    }
+
+    int getIdCount(int size) {
+        return counts[size - 1];
     }
 
     public int getCutOff(int ngramSize, int pos) {
         return cutOffs[ngramSize - 1][pos - 1];
     }
 
+    /**
+     * @return the frequency of the ngram, or null if it is not in the model
+     */
     public Integer getFreq(String word) {
-        String[] split = word.split(" ");
-        return getNgrams()[split.length - 1].get(word);
+        int freq = lookup(word, -1);
+        if (freq == NO_FREQ) {
+            return null;
+        }
+        return freq;
     }
 
+    /**
+     * @return the frequency of the ngram, or 0 if it is not in the model
+     */
     public Integer getFreq(String ngram, int size) {
-        if (getNgrams()[size - 1].get(ngram) == null) {
+        int freq = lookup(ngram, size);
+        if (freq == NO_FREQ) {
             return 0;
         }
-        return getNgrams()[size - 1].get(ngram);
+        return freq;
     }
 }
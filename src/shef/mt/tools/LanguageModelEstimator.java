@@ -0,0 +1,600 @@
+package shef.mt.tools;
+
+import java.util.Arrays;
+import shef.mt.util.LongIntMap;
+import shef.mt.util.Vocabulary;
+
+/**
+ * Counts the ngrams of a set of sentences and estimates a back-off language
+ * model from them in memory. By default, the model is estimated in the same
+ * way as SRILM's <code>ngram-count</code> with its default options:
+ * Good-Turing discounting of the counts up to 1 for unigrams and up to 7 for
+ * longer ngrams, and ngrams of size 3 or more that occur only once are left
+ * out. As in SRILM, the probability mass left over by the unigrams is spread
+ * over every word, and the denominator of a context is incremented when its
+ * discounted probabilities leave no mass for backing off.<br> The model can
+ * also be estimated with interpolated modified Kneser-Ney smoothing, as with
+ * <code>ngram-count -kndiscount -interpolate</code>: the counts of ngrams
+ * shorter than the order are replaced by the number of distinct words seen
+ * before them, three discounts are estimated for each size from the counts of
+ * counts, and only the singletons of the highest size are left out, when it is
+ * 3 or more.<br> Counts are stored as in LanguageModel: an ngram of size n is
+ * identified by the id of its first n-1 words and the id of its last word.
+ *
+ * @author GustavoH
+ */
+public class LanguageModelEstimator {
+
+    private static final double PROB_EPSILON = 3e-06;
+    private static final float LOGP_ZERO = -99;
+    //SRILM's default -gtNmin and -gtNmax values, indexed by ngram size:
+    private static final int[] GT_MIN = {1, 1, 1, 2, 2, 2, 2, 2, 2, 2};
+    private static final int[] GT_MAX = {5, 1, 7, 7, 7, 7, 7, 7, 7, 7};
+
+    private int order;
+    private boolean kneserNey;
+    private Vocabulary vocabulary;
+    private LongIntMap[] ngramIds;	//for sizes above 1, maps (prefix id, word id) to ngram id
+    private int[][] freqs;	//count of each ngram id
+    private int[] counts;	//number of ngram ids of each size
+    private int bosId;
+    private int eosId;
+    private int[] words;
+
+    /**
+     * Creates an estimator with Good-Turing discounting.
+     *
+     * @param order the highest ngram size to count
+     */
+    public LanguageModelEstimator(int order) {
+        this(order, false);
+    }
+
+    /**
+     * @param order the highest ngram size to count
+     * @param kneserNey true for interpolated modified Kneser-Ney smoothing,
+     * false for Good-Turing discounting
+     */
+    public LanguageModelEstimator(int order, boolean kneserNey) {
+        this.order = order;
+        this.kneserNey = kneserNey;
+        vocabulary = new Vocabulary(1024);
+        ngramIds = new LongIntMap[order];
+        freqs = new int[order][1024];
+        counts = new int[order];
+        for (int i = 1; i < order; i++) {
+            ngramIds[i] = new LongIntMap(1024);
+        }
+        bosId = vocabulary.add("<s>");
+        eosId = vocabulary.add("</s>");
+        words = new int[64];
+    }
+
+    /**
+     * Counts the ngrams of a sentence, with &lt;s&gt; and &lt;/s&gt; around
+     * it.
+     *
+     * @param sentence the sentence, with tokens separated by whitespace
+     */
+    public void addSentence(String sentence) {
+        //Convert words to ids:
+        int length = 0;
+        words[length++] = bosId;
+        int start = skipSpaces(sentence, 0);
+        while (start < sentence.length()) {
+            int end = nextSpace(sentence, start);
+            if (length + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            words[length++] = vocabulary.add(sentence, start, end);
+            start = skipSpaces(sentence, end);
+        }
+        words[length++] = eosId;
+
+        //Count every ngram starting at each position:
+        for (int i = 0; i < length; i++) {
+            int id = words[i];
+            increment(0, id);
+            for (int size = 2; size <= order && i + size <= length; size++) {
+                long key = LanguageModel.pack(id, words[i + size - 1]);
+                int next = ngramIds[size - 1].get(key, -1);
+                if (next == -1) {
+                    next = counts[size - 1];
+                    ngramIds[size - 1].put(key, next);
+                }
+                increment(size - 1, next);
+                id = next;
+            }
+        }
+    }
+
+    /**
+     * Adds the count of an ngram counted elsewhere, such as in a count file
+     * written by NGramCounter.
+     *
+     * @param ngram the words of the ngram, separated by single spaces
+     * @param count the number of times it was seen
+     */
+    public void addCount(String ngram, int count) {
+        int spaces = 0;
+        for (int i = ngram.indexOf(' '); i != -1; i = ngram.indexOf(' ', i + 1)) {
+            spaces++;
+        }
+        if (spaces >= order) {
+            return;
+        }
+        int size = 0;
+        int id = -1;
+        int start = 0;
+        while (start <= ngram.length()) {
+            int end = ngram.indexOf(' ', start);
+            if (end == -1) {
+                end = ngram.length();
+            }
+            int word = vocabulary.add(ngram, start, end);
+            if (size == 0) {
+                id = word;
+            } else {
+                long key = LanguageModel.pack(id, word);
+                id = ngramIds[size].get(key, -1);
+                if (id == -1) {
+                    id = counts[size];
+                    ngramIds[size].put(key, id);
+                }
+            }
+            increment(size, id, 0);
+            size++;
+            start = end + 1;
+        }
+        increment(size - 1, id, count);
+    }
+
+    private void increment(int size, int id) {
+        increment(size, id, 1);
+    }
+
+    private void increment(int size, int id, int count) {
+        if (id >= freqs[size].length) {
+            freqs[size] = Arrays.copyOf(freqs[size], Math.max(id + 1, freqs[size].length * 2));
+        }
+        if (id >= counts[size]) {
+            counts[size] = id + 1;
+        }
+        freqs[size][id] += count;
+    }
+
+    /**
+     * @return the number of distinct ngrams counted so far
+     */
+    public int size() {
+        int result = 0;
+        for (int count : counts) {
+            result += count;
+        }
+        return result;
+    }
+
+    /**
+     * @return a line for each ngram counted so far, with its words and its
+     * count separated by a tab, sorted as NGramCounter.compareNGrams() does
+     */
+    String[] getSortedCounts() {
+        String[] result = new String[size()];
+        String[] previous = new String[0];
+        int n = 0;
+        for (int size = 1; size <= order; size++) {
+            String[] current = new String[counts[size - 1]];
+            if (size == 1) {
+                for (int id = 0; id < counts[0]; id++) {
+                    current[id] = vocabulary.getWord(id);
+                }
+            } else {
+                LongIntMap ids = ngramIds[size - 1];
+                for (int slot = 0; slot < ids.capacity(); slot++) {
+                    if (ids.isUsed(slot)) {
+                        long key = ids.keyAt(slot);
+                        current[ids.valueAt(slot)] = previous[(int) (key >>> 32)] + " " + vocabulary.getWord((int) key);
+                    }
+                }
+            }
+            for (int id = 0; id < current.length; id++) {
+                if (freqs[size - 1][id] > 0) {
+                    result[n++] = current[id] + "\t" + freqs[size - 1][id];
+                }
+            }
+            previous = current;
+        }
+        result = Arrays.copyOf(result, n);
+        Arrays.sort(result, NGramCounter.NGRAM_ORDER);
+        return result;
+    }
+
+    private static int nextSpace(String line, int start) {
+        int i = start;
+        while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipSpaces(String line, int start) {
+        int i = start;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Estimates a back-off language model from the ngrams counted so far.
+     *
+     * @return the language model
+     */
+    public ArpaLanguageModel estimate() {
+        float[][] probs = new float[order][];
+        float[][] bows = new float[order][];
+        int[][] prefixes = new int[order][];
+        int[][] lastWords = new int[order][];
+        for (int size = 1; size <= order; size++) {
+            probs[size - 1] = new float[counts[size - 1]];
+            bows[size - 1] = new float[counts[size - 1]];
+            Arrays.fill(probs[size - 1], Float.NaN);
+            prefixes[size - 1] = new int[counts[size - 1]];
+            lastWords[size - 1] = new int[counts[size - 1]];
+            if (size == 1) {
+                for (int id = 0; id < counts[0]; id++) {
+                    lastWords[0][id] = id;
+                }
+            } else {
+                LongIntMap ids = ngramIds[size - 1];
+                for (int slot = 0; slot < ids.capacity(); slot++) {
+                    if (ids.isUsed(slot)) {
+                        prefixes[size - 1][ids.valueAt(slot)] = (int) (ids.keyAt(slot) >>> 32);
+                        lastWords[size - 1][ids.valueAt(slot)] = (int) ids.keyAt(slot);
+                    }
+                }
+            }
+        }
+        ArpaLanguageModel lm = new ArpaLanguageModel(order, vocabulary, ngramIds, probs, bows, counts.clone());
+
+        int[][] estimated = kneserNey ? continuationCounts(prefixes, lastWords) : freqs;
+        for (int size = 1; size <= order; size++) {
+            if (kneserNey) {
+                estimateKneserNey(lm, size, estimated[size - 1], probs[size - 1], prefixes, lastWords);
+            } else {
+                estimateGoodTuring(size, estimated[size - 1], probs[size - 1], prefixes[size - 1], lastWords[size - 1]);
+            }
+
+            //Compute the back-off weights of the contexts:
+            if (size == 1) {
+                distributeLeftOver(probs[0]);
+            } else {
+                computeBows(lm, size, probs[size - 1], bows[size - 2], prefixes, lastWords);
+            }
+        }
+        return lm;
+    }
+
+    /**
+     * computes the Good-Turing discounted probabilities of the ngrams of a
+     * size
+     */
+    private void estimateGoodTuring(int size, int[] freq, float[] prob, int[] prefix, int[] word) {
+        double[] discounts = goodTuring(size, freq, word);
+        int minCount = GT_MIN[Math.min(size, GT_MIN.length - 1)];
+
+        //Total the counts of the words following each context:
+        int contextCount = size == 1 ? 1 : counts[size - 2];
+        long[] totals = new long[contextCount];
+        double[] discounted = new double[contextCount];
+        for (int id = 0; id < counts[size - 1]; id++) {
+            if (word[id] != bosId && freq[id] > 0) {
+                totals[prefix[id]] += freq[id];
+                discounted[prefix[id]] += discount(discounts, minCount, freq[id]) * freq[id];
+            }
+        }
+
+        //Leave some probability mass for backing off from every context:
+        for (int context = 0; context < contextCount; context++) {
+            while (totals[context] > 0 && discounted[context] / totals[context] > 1.0 - PROB_EPSILON) {
+                totals[context]++;
+            }
+        }
+
+        //Compute discounted probabilities:
+        for (int id = 0; id < counts[size - 1]; id++) {
+            if (word[id] == bosId) {
+                if (size == 1) {
+                    prob[id] = LOGP_ZERO;
+                }
+            } else if (totals[prefix[id]] > 0 && freq[id] > 0) {
+                double discount = discount(discounts, minCount, freq[id]);
+                if (discount != 0.0) {
+                    prob[id] = (float) Math.log10(discount * freq[id] / totals[prefix[id]]);
+                }
+            }
+        }
+    }
+
+    /**
+     * computes the interpolated modified Kneser-Ney probabilities of the
+     * ngrams of a size, from their counts or their numbers of distinct
+     * preceding words
+     */
+    private void estimateKneserNey(ArpaLanguageModel lm, int size, int[] freq, float[] prob, int[][] prefixes, int[][] lastWords) {
+        int[] prefix = prefixes[size - 1];
+        int[] word = lastWords[size - 1];
+        double[] discounts = kneserNeyDiscounts(size, freq, word);
+        int minCount = size == order ? GT_MIN[Math.min(size, GT_MIN.length - 1)] : 1;
+
+        //Total the counts following each context and the mass taken from them:
+        int contextCount = size == 1 ? 1 : counts[size - 2];
+        long[] totals = new long[contextCount];
+        double[] discounted = new double[contextCount];
+        for (int id = 0; id < counts[size - 1]; id++) {
+            if (word[id] != bosId && freq[id] > 0) {
+                totals[prefix[id]] += freq[id];
+                discounted[prefix[id]] += discounts[Math.min(freq[id], 3)];
+            }
+        }
+
+        //Interpolate discounted probabilities with the shorter context:
+        int vocabSize = bosId < counts[0] ? counts[0] - 1 : counts[0];
+        int[] ngram = new int[size];
+        int[] shorter = new int[Math.max(size - 1, 1)];
+        for (int id = 0; id < counts[size - 1]; id++) {
+            if (word[id] == bosId) {
+                if (size == 1) {
+                    prob[id] = LOGP_ZERO;
+                }
+                continue;
+            }
+            long total = totals[prefix[id]];
+            if (total == 0 || freq[id] < Math.max(minCount, 1)) {
+                continue;
+            }
+            double lower;
+            if (size == 1) {
+                lower = 1.0 / vocabSize;
+            } else {
+                getWords(size, id, ngram, prefixes, lastWords);
+                System.arraycopy(ngram, 1, shorter, 0, size - 1);
+                lower = Math.pow(10, lm.getProb(shorter, size - 2, size - 1));
+            }
+            double p = Math.max(freq[id] - discounts[Math.min(freq[id], 3)], 0) / total + discounted[prefix[id]] / total * lower;
+            prob[id] = (float) Math.log10(p);
+        }
+    }
+
+    /**
+     * replaces the count of each ngram shorter than the order by the number of
+     * distinct words seen before it, except for the ngrams that start with
+     * &lt;s&gt;, which cannot be preceded by any word
+     */
+    private int[][] continuationCounts(int[][] prefixes, int[][] lastWords) {
+        int[][] result = new int[order][];
+        result[order - 1] = freqs[order - 1];
+        int[] ngram = new int[order];
+        for (int size = 1; size < order; size++) {
+            result[size - 1] = new int[counts[size - 1]];
+            for (int id = 0; id < counts[size]; id++) {
+                if (freqs[size][id] > 0) {
+                    getWords(size + 1, id, ngram, prefixes, lastWords);
+                    int suffix = getId(ngram, 1, size + 1);
+                    if (suffix != -1) {
+                        result[size - 1][suffix]++;
+                    }
+                }
+            }
+            for (int id = 0; id < counts[size - 1]; id++) {
+                if (firstWord(size, id, prefixes) == bosId) {
+                    result[size - 1][id] = freqs[size - 1][id];
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int firstWord(int size, int id, int[][] prefixes) {
+        for (int i = size - 1; i > 0; i--) {
+            id = prefixes[i][id];
+        }
+        return id;
+    }
+
+    /**
+     * fills ngram with the word ids of an ngram
+     */
+    private static void getWords(int size, int id, int[] ngram, int[][] prefixes, int[][] lastWords) {
+        for (int i = size - 1; i >= 0; i--) {
+            ngram[i] = lastWords[i][id];
+            id = prefixes[i][id];
+        }
+    }
+
+    /**
+     * @return the id of the ngram formed by words[from] to words[to-1], or -1
+     * if it was not counted
+     */
+    private int getId(int[] words, int from, int to) {
+        int id = words[from];
+        for (int i = from + 1; i < to && id != -1; i++) {
+            id = ngramIds[i - from].get(LanguageModel.pack(id, words[i]), -1);
+        }
+        return id;
+    }
+
+    /**
+     * @return the number of ngrams of a size seen once, twice, etc., up to
+     * max times, not counting &lt;s&gt;
+     */
+    private long[] countOfCounts(int size, int[] freq, int[] word, int max) {
+        long[] result = new long[max + 1];
+        for (int id = 0; id < counts[size - 1]; id++) {
+            if (word[id] != bosId && freq[id] > 0 && freq[id] <= max) {
+                result[freq[id]]++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the Good-Turing discount coefficients of the counts of the
+     * ngrams of a size, indexed by count up to the highest discounted count
+     */
+    private double[] goodTuring(int size, int[] freq, int[] word) {
+        int maxCount = GT_MAX[Math.min(size, GT_MAX.length - 1)];
+        long[] countOfCounts = countOfCounts(size, freq, word, maxCount + 1);
+        if (countOfCounts[1] == 0) {
+            maxCount = 0;
+        }
+        while (maxCount > 0 && countOfCounts[maxCount + 1] == 0) {
+            maxCount--;
+        }
+        double[] result = new double[maxCount + 1];
+        if (maxCount > 0) {
+            double commonTerm = (maxCount + 1) * (double) countOfCounts[maxCount + 1] / (double) countOfCounts[1];
+            for (int i = 1; i <= maxCount; i++) {
+                double coeff = 1.0;
+                if (countOfCounts[i] != 0) {
+                    double coeff0 = (i + 1) * (double) countOfCounts[i + 1] / (i * (double) countOfCounts[i]);
+                    coeff = (coeff0 - commonTerm) / (1.0 - commonTerm);
+                    //Coefficients out of range are not used:
+                    if (Double.isNaN(coeff) || Double.isInfinite(coeff) || coeff <= PROB_EPSILON || coeff0 > 1.0) {
+                        coeff = 1.0;
+                    }
+                }
+                result[i] = coeff;
+            }
+        }
+        return result;
+    }
+
+    private static double discount(double[] discounts, int minCount, int count) {
+        if (count <= 0) {
+            return 1.0;
+        } else if (count < minCount) {
+            return 0.0;
+        } else if (count >= discounts.length) {
+            return 1.0;
+        }
+        return discounts[count];
+    }
+
+    /**
+     * @return the discounts of the counts 1, 2 and 3 or more of the ngrams of
+     * a size, as estimated by Chen and Goodman
+     */
+    private double[] kneserNeyDiscounts(int size, int[] freq, int[] word) {
+        long[] n = countOfCounts(size, freq, word, 4);
+        double[] result = new double[4];
+        if (n[1] > 0 && n[2] > 0 && n[3] > 0 && n[4] > 0) {
+            double y = (double) n[1] / (n[1] + 2 * n[2]);
+            result[1] = 1 - 2 * y * n[2] / n[1];
+            result[2] = 2 - 3 * y * n[3] / n[2];
+            result[3] = 3 - 4 * y * n[4] / n[3];
+        }
+        if (!(result[1] > 0 && result[2] > 0 && result[3] > 0)) {
+            //Too few counts for three discounts, so a single one is used:
+            double d = n[1] > 0 ? (double) n[1] / (n[1] + 2 * n[2]) : 0.5;
+            result[1] = d;
+            result[2] = d;
+            result[3] = d;
+        }
+        return result;
+    }
+
+    /**
+     * spreads the probability mass left over by the unigrams over every word
+     * but &lt;s&gt;, or only over the words with no probability if there are
+     * any
+     */
+    private void distributeLeftOver(float[] prob) {
+        double mass = 1.0;
+        int wordCount = 0;
+        int zeroCount = 0;
+        for (int id = 0; id < prob.length; id++) {
+            if (id != bosId) {
+                wordCount++;
+                if (Float.isNaN(prob[id]) || prob[id] <= LOGP_ZERO) {
+                    zeroCount++;
+                } else {
+                    mass -= Math.pow(10, prob[id]);
+                }
+            }
+        }
+        if (mass < 0.0 && mass > -PROB_EPSILON) {
+            mass = 0.0;
+        }
+        if (mass < 0.0 || wordCount == 0) {
+            return;
+        }
+        for (int id = 0; id < prob.length; id++) {
+            if (id == bosId) {
+                continue;
+            }
+            boolean zero = Float.isNaN(prob[id]) || prob[id] <= LOGP_ZERO;
+            if (zeroCount > 0) {
+                if (zero) {
+                    prob[id] = (float) Math.log10(mass / zeroCount);
+                }
+            } else {
+                prob[id] = (float) Math.log10(Math.pow(10, prob[id]) + mass / wordCount);
+            }
+        }
+    }
+
+    /**
+     * computes the back-off weight of each context of size-1 words as the
+     * probability mass left by its ngrams of the given size, normalized by the
+     * mass left by the same words in the shorter context
+     */
+    private void computeBows(ArpaLanguageModel lm, int size, float[] prob, float[] bow, int[][] prefixes, int[][] lastWords) {
+        int contextCount = bow.length;
+        double[] numerators = new double[contextCount];
+        double[] denominators = new double[contextCount];
+        Arrays.fill(numerators, 1.0);
+        Arrays.fill(denominators, 1.0);
+        int[] ngram = new int[size];
+        int[] shorter = new int[size - 1];
+        for (int id = 0; id < counts[size - 1]; id++) {
+            if (Float.isNaN(prob[id])) {
+                continue;
+            }
+            int context = prefixes[size - 1][id];
+            numerators[context] -= Math.pow(10, prob[id]);
+
+            //Words of the ngram, whose first one is dropped to back off:
+            getWords(size, id, ngram, prefixes, lastWords);
+            System.arraycopy(ngram, 1, shorter, 0, size - 1);
+            denominators[context] -= Math.pow(10, lm.getProb(shorter, size - 2, size - 1));
+        }
+
+        for (int context = 0; context < contextCount; context++) {
+            double numerator = numerators[context];
+            double denominator = denominators[context];
+            if (numerator < 0.0 && numerator > -PROB_EPSILON) {
+                numerator = 0.0;
+            }
+            if (denominator < 0.0 && denominator > -PROB_EPSILON) {
+                denominator = 0.0;
+            }
+            if (denominator == 0.0 && numerator > PROB_EPSILON) {
+                //No mass is left to back off, so probabilities are scaled to sum to 1:
+                float scale = (float) Math.log10(1.0 - numerator);
+                for (int id = 0; id < counts[size - 1]; id++) {
+                    if (prefixes[size - 1][id] == context && !Float.isNaN(prob[id])) {
+                        prob[id] -= scale;
+                    }
+                }
+                bow[context] = 0;
+            } else if (numerator < 0.0 || denominator <= 0.0) {
+                bow[context] = 0;
+            } else if (numerator == 0.0) {
+                bow[context] = LOGP_ZERO;
+            } else {
+                bow[context] = (float) (Math.log10(numerator) - Math.log10(denominator));
+            }
+        }
+    }
+}
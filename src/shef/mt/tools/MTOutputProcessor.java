@@ -4,11 +4,12 @@
 package shef.mt.tools;
 
 import shef.mt.util.Logger;
-import shef.mt.util.ExtensionFilter;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import shef.mt.features.util.Translation;
 import shef.mt.features.util.Phrase;
 import java.io.*;
+import java.util.ArrayList;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import org.w3c.dom.*;
@@ -17,7 +18,9 @@ import shef.mt.features.util.Doc;
 
 /**
  * This class receives as input an XML file containing sentences and lists of
- * translation with various attributes and reads it into Sentence objects
+ * translation with various attributes and reads it into Sentence objects. For
+ * each sentence, a language model is estimated in memory from its n-best list
+ * and used to score the sentence with every ngram size up to ngramSize.
  *
  * @author Catalina Hallett
  *
@@ -27,21 +30,20 @@ public class MTOutputProcessor extends ResourceProcessor {
     private int sentCount;
     private Document doc;
     private NodeList sentences;
-    private BufferedWriter nbestOut;
-    private BufferedWriter sentOut;
     private File input;
-    private String nbestPath;
-    private NGramExec ngramExec;
     private int ngramSize;
+    private ArrayList<SentenceKey<Float>[]> valKeys;
 
-    public MTOutputProcessor(String input, String nbestPath, String ngramPath, int ngramSize) {
+    public MTOutputProcessor(String input, int ngramSize) {
         Logger.log("[MTOutputProcessor]");
         this.input = new File(input);
-        this.nbestPath = nbestPath;
         this.ngramSize = ngramSize;
         initialiseXML();
         sentCount = 0;
-        ngramExec = new NGramExec(ngramPath);
+        valKeys = new ArrayList<SentenceKey<Float>[]>();
+        for (int i = 1; i <= ngramSize; i++) {
+            valKeys.add(SentenceKey.<Float>array(i + "_nb_logprob", i + "_nb_ppl", i + "_nb_ppl1"));
+        }
     }
 
     public void initialiseXML() {
@@ -63,11 +65,7 @@ public class MTOutputProcessor extends ResourceProcessor {
             return;
         }
         try {
-            String ngramSentFile = nbestPath + File.separator + input.getName().trim() + "_" + sent.getIndex() + ".nbest";
-            String sentFile = nbestPath + File.separator + input.getName().trim() + "_" + sent.getIndex() + ".sent";
-
-            nbestOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(ngramSentFile), "utf-8"));
-            sentOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(sentFile), "utf-8"));
+            LanguageModelEstimator nbestLM = new LanguageModelEstimator(ngramSize);
 
             Element sentNode = (Element) sentences.item(sentCount);
             NamedNodeMap attrs = sentNode.getAttributes();
@@ -97,21 +95,16 @@ public class MTOutputProcessor extends ResourceProcessor {
                 }
                 t.countTokens();
                 sent.addTranslation(t);
-
-                nbestOut.write(trans.getAttribute("text") + "\r\n");
-
+                nbestLM.addSentence(trans.getAttribute("text"));
             }
-            sentOut.write(sent.getText());
-            nbestOut.close();
-            sentOut.close();
+
+            //Score the sentence with the language model of its n-best list:
+            BackoffLanguageModel lm = nbestLM.estimate();
             for (int i = 1; i <= ngramSize; i++) {
-                String sentLMFile = nbestPath + File.separator + i + "_" + input.getName().trim() + "_" + sent.getIndex() + ".lm";
-                String pplFile = nbestPath + File.separator + i + "_" + input.getName().trim() + "_" + sent.getIndex() + ".ppl";
-                ngramExec.runNGramCount(ngramSentFile, sentLMFile, ngramSize);
-                ngramExec.runNGramPerplex(sentFile, pplFile, sentLMFile, i);
-                PPLProcessor pplProcSource = new PPLProcessor(pplFile, new String[]{i + "_nb_logprob", i + "_nb_ppl", i + "_nb_ppl1"});
-                pplProcSource.processNextSentence(sent);
-                pplProcSource.close();
+                float[] values = lm.getPerplexity(sent.getText(), i);
+                for (int j = 0; j < values.length; j++) {
+                    sent.setFloat(valKeys.get(i - 1)[j], Float.isNaN(values[j]) ? 0.0f : values[j]);
+                }
             }
 
             NodeList phrases = sentNode.getElementsByTagName("phrase");
@@ -132,18 +125,6 @@ public class MTOutputProcessor extends ResourceProcessor {
         return;
     }
 
-    public void deleteTempFiles() {
-
-        File f = new File(nbestPath);
-        if (f.isDirectory()) {
-            File[] files = f.listFiles(new ExtensionFilter(new String[]{".sent", ".nbest"}));
-            for (File file : files) {
-                file.delete();
-            }
-        }
-
-    }
-
     @Override
     public void processNextDocument(Doc source) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
@@ -0,0 +1,232 @@
+package shef.mt.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import shef.mt.util.LongIntMap;
+
+/**
+ * A LanguageModel read from a binary ngram count index, which is memory-mapped
+ * instead of being loaded on the heap. Loading takes the same time whatever the
+ * size of the index, and the pages of the file are shared by every process
+ * that maps it. <br> The index is compiled once from a ngram count file (the
+ * .ngram.clean files read by NGramProcessor) by running this class:
+ * <pre>
+ * java shef.mt.tools.MappedLanguageModel english.ngram.clean [english.ngram.clean.bin]
+ * </pre> NGramProcessor uses the index instead of the text file when the index
+ * is found next to it.<br> The index holds the cut-off frequencies, the
+ * vocabulary and, for each ngram size, the ngram frequencies and an
+ * open-addressing hash table from (prefix id, word id) to ngram id, laid out
+ * the same way as in LanguageModel. Each table must be smaller than 2GB.
+ *
+ * @author GustavoH
+ */
+public class MappedLanguageModel extends LanguageModel {
+
+    private static final int MAGIC = 0x514E4749;
+    private static final int VERSION = 1;
+
+    private MappedVocabulary vocabulary;
+    private MappedByteBuffer[] freqs;
+    private int[] idCounts;
+    private MappedByteBuffer[] ngramTables;
+    private int[] ngramMasks;
+
+    /**
+     * maps a compiled ngram count index
+     *
+     * @param path the path of the index
+     * @throws IOException if the file cannot be read or is not an index
+     */
+    public MappedLanguageModel(String path) throws IOException {
+        super(0);
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+                throw new IOException(path + " is not a ngram count index.");
+            }
+
+            //Read cut-offs:
+            int nSize = file.readInt();
+            int quartiles = file.readInt();
+            int[][] cutOffs = new int[nSize][quartiles];
+            for (int i = 0; i < nSize; i++) {
+                for (int j = 0; j < quartiles; j++) {
+                    cutOffs[i][j] = file.readInt();
+                }
+            }
+            setCutOffs(cutOffs);
+
+            //Map vocabulary:
+            vocabulary = new MappedVocabulary(file, file.getFilePointer());
+            long position = vocabulary.getEnd();
+
+            //Map ngrams:
+            freqs = new MappedByteBuffer[sliceNo];
+            idCounts = new int[sliceNo];
+            ngramTables = new MappedByteBuffer[sliceNo];
+            ngramMasks = new int[sliceNo];
+            for (int size = 1; size <= sliceNo; size++) {
+                file.seek(position);
+                idCounts[size - 1] = file.readInt();
+                position += 4;
+                freqs[size - 1] = MappedVocabulary.map(channel, position, idCounts[size - 1] * 4L);
+                position += idCounts[size - 1] * 4L;
+                if (size > 1) {
+                    file.seek(position);
+                    int tableSize = file.readInt();
+                    position += 4;
+                    ngramTables[size - 1] = MappedVocabulary.map(channel, position, tableSize * 12L);
+                    ngramMasks[size - 1] = tableSize - 1;
+                    position += tableSize * 12L;
+                }
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    private static int hashKey(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int getNGramId(int size, long key) {
+        MappedByteBuffer table = ngramTables[size - 1];
+        int mask = ngramMasks[size - 1];
+        int i = hashKey(key) & mask;
+        int id = table.getInt(i * 12 + 8);
+        while (id != -1) {
+            if (table.getLong(i * 12) == key) {
+                return id;
+            }
+            i = (i + 1) & mask;
+            id = table.getInt(i * 12 + 8);
+        }
+        return -1;
+    }
+
+    @Override
+    protected int lookup(String ngram, int size) {
+        int id = -1;
+        int found = 0;
+        int start = 0;
+        int length = ngram.length();
+        while (start <= length) {
+            if (found == sliceNo) {
+                return NO_FREQ;
+            }
+            int end = ngram.indexOf(' ', start);
+            if (end == -1) {
+                end = length;
+            }
+            int word = vocabulary.get(ngram, start, end);
+            if (word == -1) {
+                return NO_FREQ;
+            }
+            if (found == 0) {
+                id = word;
+            } else {
+                id = getNGramId(found + 1, pack(id, word));
+                if (id == -1) {
+                    return NO_FREQ;
+                }
+            }
+            found++;
+            start = end + 1;
+        }
+        if (size != -1 && found != size) {
+            return NO_FREQ;
+        }
+        if (id >= idCounts[found - 1]) {
+            return NO_FREQ;
+        }
+        return freqs[found - 1].getInt(id * 4);
+    }
+
+    /**
+     * writes a LanguageModel loaded in memory as a binary ngram count index
+     *
+     * @param lm the LanguageModel
+     * @param path the path of the index
+     * @throws IOException if the index cannot be written
+     */
+    public static void compile(LanguageModel lm, String path) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            //Write cut-offs:
+            int[][] cutOffs = lm.getCutOffs();
+            out.writeInt(cutOffs.length);
+            out.writeInt(cutOffs.length == 0 ? 0 : cutOffs[0].length);
+            for (int[] row : cutOffs) {
+                for (int cutOff : row) {
+                    out.writeInt(cutOff);
+                }
+            }
+
+            //Write vocabulary:
+            MappedVocabulary.write(out, lm.getVocabulary());
+
+            //Write ngrams:
+            for (int size = 1; size <= sliceNo; size++) {
+                int idCount = lm.getIdCount(size);
+                int[] sizeFreqs = lm.getFreqs(size);
+                out.writeInt(idCount);
+                for (int id = 0; id < idCount; id++) {
+                    out.writeInt(sizeFreqs[id]);
+                }
+                if (size > 1) {
+                    LongIntMap ids = lm.getNGramIds(size);
+                    int ngramTableSize = MappedVocabulary.tableSize(ids.size());
+                    long[] keys = new long[ngramTableSize];
+                    int[] values = new int[ngramTableSize];
+                    Arrays.fill(values, -1);
+                    for (int slot = 0; slot < ids.capacity(); slot++) {
+                        if (ids.isUsed(slot)) {
+                            int i = hashKey(ids.keyAt(slot)) & (ngramTableSize - 1);
+                            while (values[i] != -1) {
+                                i = (i + 1) & (ngramTableSize - 1);
+                            }
+                            keys[i] = ids.keyAt(slot);
+                            values[i] = ids.valueAt(slot);
+                        }
+                    }
+                    out.writeInt(ngramTableSize);
+                    for (int i = 0; i < ngramTableSize; i++) {
+                        out.writeLong(keys[i]);
+                        out.writeInt(values[i]);
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * compiles a ngram count file into a binary index
+     *
+     * @param args the ngram count file and, optionally, the path of the index,
+     * which defaults to the ngram count file followed by ".bin"
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: MappedLanguageModel <ngram count file> [<index file>]");
+            return;
+        }
+        String output = args.length > 1 ? args[1] : args[0] + ".bin";
+        LanguageModel lm = new NGramProcessor(args[0]).parse();
+        long start = System.currentTimeMillis();
+        compile(lm, output);
+        System.out.println("Index written to " + output + " in " + (System.currentTimeMillis() - start) / 1000F + " sec");
+    }
+}
@@ -0,0 +1,292 @@
+package shef.mt.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import shef.mt.util.Vocabulary;
+
+/**
+ * A TranslationTable read from a binary file, which is memory-mapped instead
+ * of being loaded on the heap. The binary file holds the whole lexical table,
+ * whatever the input, so it is ready at once for any sentence. <br> The file
+ * is compiled once from a giza lexical table (<code>lex.e2s</code>) by running
+ * this class:
+ * <pre>
+ * java shef.mt.tools.MappedTranslationTable lex.e2s [lex.e2s.bin]
+ * </pre> Giza uses the binary file instead of the text file when it is found
+ * next to it.<br> The file holds the count thresholds, the source and target
+ * vocabularies, the offset of the translations of each source word, the
+ * target ids and probabilities of the translations, the counts of
+ * translations above each threshold and an open-addressing hash table from
+ * (source id, target id) to translation. Each section must be smaller than
+ * 2GB.
+ *
+ * @author GustavoH
+ */
+class MappedTranslationTable extends TranslationTable {
+
+    private static final int MAGIC = 0x4C455854;
+    private static final int VERSION = 1;
+
+    private float[] thresholds;
+    private MappedVocabulary sources;
+    private MappedVocabulary targets;
+    private MappedByteBuffer offsets;
+    private MappedByteBuffer targetIds;
+    private MappedByteBuffer probs;
+    private MappedByteBuffer counts;
+    private MappedByteBuffer pairs;
+    private int pairMask;
+
+    /**
+     * maps a compiled translation table
+     *
+     * @param path the path of the binary file
+     * @throws IOException if the file cannot be read or is not a translation
+     * table
+     */
+    MappedTranslationTable(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (!isTable(file)) {
+                throw new IOException(path + " is not a binary translation table.");
+            }
+            thresholds = new float[file.readInt()];
+            for (int i = 0; i < thresholds.length; i++) {
+                thresholds[i] = file.readFloat();
+            }
+
+            //Map vocabularies:
+            sources = new MappedVocabulary(file, file.getFilePointer());
+            targets = new MappedVocabulary(file, sources.getEnd());
+            long position = targets.getEnd();
+
+            //Map translations:
+            int sourceCount = sources.size();
+            offsets = MappedVocabulary.map(channel, position, (sourceCount + 1) * 4L);
+            position += (sourceCount + 1) * 4L;
+            int entryCount = offsets.getInt(sourceCount * 4);
+            targetIds = MappedVocabulary.map(channel, position, entryCount * 4L);
+            position += entryCount * 4L;
+            probs = MappedVocabulary.map(channel, position, entryCount * 4L);
+            position += entryCount * 4L;
+            counts = MappedVocabulary.map(channel, position, (long) sourceCount * thresholds.length * 4L);
+            position += (long) sourceCount * thresholds.length * 4L;
+            file.seek(position);
+            int tableSize = file.readInt();
+            position += 4;
+            pairs = MappedVocabulary.map(channel, position, tableSize * 12L);
+            pairMask = tableSize - 1;
+        } finally {
+            file.close();
+        }
+    }
+
+    private static boolean isTable(RandomAccessFile file) throws IOException {
+        return file.length() >= 8 && file.readInt() == MAGIC && file.readInt() == VERSION;
+    }
+
+    /**
+     * checks whether a file is a compiled translation table
+     */
+    static boolean isTable(String path) {
+        try {
+            RandomAccessFile file = new RandomAccessFile(path, "r");
+            try {
+                return isTable(file);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static int hashKey(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    float[] getThresholds() {
+        return thresholds;
+    }
+
+    @Override
+    int getSourceId(String word) {
+        return sources.get(word);
+    }
+
+    @Override
+    int getTargetId(String word) {
+        return targets.get(word);
+    }
+
+    @Override
+    int getSourceCount() {
+        return sources.size();
+    }
+
+    @Override
+    String getSource(int sourceId) {
+        return sources.getWord(sourceId);
+    }
+
+    @Override
+    int getTargetCount() {
+        return targets.size();
+    }
+
+    @Override
+    String getTarget(int targetId) {
+        return targets.getWord(targetId);
+    }
+
+    @Override
+    int start(int sourceId) {
+        return offsets.getInt(sourceId * 4);
+    }
+
+    @Override
+    int end(int sourceId) {
+        return offsets.getInt(sourceId * 4 + 4);
+    }
+
+    @Override
+    int getEntryCount() {
+        return offsets.getInt(sources.size() * 4);
+    }
+
+    @Override
+    int getTargetId(int entry) {
+        return targetIds.getInt(entry * 4);
+    }
+
+    @Override
+    float getProbability(int entry) {
+        return probs.getFloat(entry * 4);
+    }
+
+    @Override
+    int getCount(int sourceId, int threshold) {
+        return counts.getInt((sourceId * thresholds.length + threshold) * 4);
+    }
+
+    @Override
+    int getEntry(int sourceId, int targetId) {
+        long key = LanguageModel.pack(sourceId, targetId);
+        int i = hashKey(key) & pairMask;
+        int entry = pairs.getInt(i * 12 + 8);
+        while (entry != -1) {
+            if (pairs.getLong(i * 12) == key) {
+                return entry;
+            }
+            i = (i + 1) & pairMask;
+            entry = pairs.getInt(i * 12 + 8);
+        }
+        return -1;
+    }
+
+    /**
+     * writes a TranslationTable as a binary file
+     *
+     * @param table the table
+     * @param path the path of the binary file
+     * @throws IOException if the file cannot be written
+     */
+    static void compile(TranslationTable table, String path) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            float[] tableThresholds = table.getThresholds();
+            out.writeInt(tableThresholds.length);
+            for (float threshold : tableThresholds) {
+                out.writeFloat(threshold);
+            }
+
+            //Write vocabularies:
+            int sourceCount = table.getSourceCount();
+            Vocabulary vocabulary = new Vocabulary(sourceCount);
+            for (int id = 0; id < sourceCount; id++) {
+                vocabulary.add(table.getSource(id));
+            }
+            MappedVocabulary.write(out, vocabulary);
+            int targetCount = table.getTargetCount();
+            vocabulary = new Vocabulary(targetCount);
+            for (int id = 0; id < targetCount; id++) {
+                vocabulary.add(table.getTarget(id));
+            }
+            MappedVocabulary.write(out, vocabulary);
+            vocabulary = null;
+
+            //Write translations:
+            int entryCount = table.getEntryCount();
+            for (int id = 0; id < sourceCount; id++) {
+                out.writeInt(table.start(id));
+            }
+            out.writeInt(entryCount);
+            for (int entry = 0; entry < entryCount; entry++) {
+                out.writeInt(table.getTargetId(entry));
+            }
+            for (int entry = 0; entry < entryCount; entry++) {
+                out.writeFloat(table.getProbability(entry));
+            }
+            for (int id = 0; id < sourceCount; id++) {
+                for (int t = 0; t < tableThresholds.length; t++) {
+                    out.writeInt(table.getCount(id, t));
+                }
+            }
+
+            //Write pairs, keeping the first translation of a repeated pair:
+            int tableSize = MappedVocabulary.tableSize(entryCount);
+            long[] keys = new long[tableSize];
+            int[] values = new int[tableSize];
+            Arrays.fill(values, -1);
+            for (int id = 0; id < sourceCount; id++) {
+                for (int entry = table.start(id); entry < table.end(id); entry++) {
+                    long key = LanguageModel.pack(id, table.getTargetId(entry));
+                    int i = hashKey(key) & (tableSize - 1);
+                    while (values[i] != -1 && keys[i] != key) {
+                        i = (i + 1) & (tableSize - 1);
+                    }
+                    if (values[i] == -1) {
+                        keys[i] = key;
+                        values[i] = entry;
+                    }
+                }
+            }
+            out.writeInt(tableSize);
+            for (int i = 0; i < tableSize; i++) {
+                out.writeLong(keys[i]);
+                out.writeInt(values[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * compiles a giza lexical table into a binary file
+     *
+     * @param args the lexical table and, optionally, the path of the binary
+     * file, which defaults to the lexical table followed by ".bin"
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: MappedTranslationTable <lexical table> [<binary file>]");
+            return;
+        }
+        String output = args.length > 1 ? args[1] : args[0] + ".bin";
+        TranslationTable table = Giza.readTable(args[0]);
+        long start = System.currentTimeMillis();
+        compile(table, output);
+        System.out.println("Binary table written to " + output + " in " + (System.currentTimeMillis() - start) / 1000F + " sec");
+    }
+}
@@ -0,0 +1,171 @@
+package shef.mt.tools;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import shef.mt.util.Vocabulary;
+
+/**
+ * A Vocabulary written into a binary file and read back by memory-mapping it,
+ * as used by the binary language model formats. The section holds the number
+ * of words, an open-addressing hash table of word ids and the characters of
+ * every word.
+ *
+ * @author GustavoH
+ */
+class MappedVocabulary {
+
+    private int size;
+    private MappedByteBuffer table;
+    private int mask;
+    private MappedByteBuffer offsets;
+    private MappedByteBuffer chars;
+    private long end;
+
+    /**
+     * maps the vocabulary section that starts at a position of a file
+     *
+     * @param file the file
+     * @param position the position of the section
+     * @throws IOException if the file cannot be read
+     */
+    MappedVocabulary(RandomAccessFile file, long position) throws IOException {
+        FileChannel channel = file.getChannel();
+        file.seek(position);
+        size = file.readInt();
+        int tableSize = file.readInt();
+        position += 8;
+        table = map(channel, position, tableSize * 4L);
+        mask = tableSize - 1;
+        position += tableSize * 4L;
+        offsets = map(channel, position, (size + 1) * 4L);
+        position += (size + 1) * 4L;
+        int charCount = offsets.getInt(size * 4);
+        chars = map(channel, position, charCount * 2L);
+        end = position + charCount * 2L;
+    }
+
+    /**
+     * @return the position of the file right after the vocabulary section
+     */
+    long getEnd() {
+        return end;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * returns the id of a word, or -1 if it is not in the vocabulary
+     */
+    int get(String word) {
+        return get(word, 0, word.length());
+    }
+
+    /**
+     * returns the word with the given id
+     */
+    String getWord(int id) {
+        int offset = offsets.getInt(id * 4);
+        int length = offsets.getInt(id * 4 + 4) - offset;
+        char[] word = new char[length];
+        for (int k = 0; k < length; k++) {
+            word[k] = chars.getChar((offset + k) * 2);
+        }
+        return new String(word);
+    }
+
+    /**
+     * returns the id of the word formed by the characters start to end-1 of
+     * text, or -1 if it is not in the vocabulary
+     */
+    int get(CharSequence text, int start, int end) {
+        int i = hash(text, start, end) & mask;
+        int id = table.getInt(i * 4);
+        while (id != -1) {
+            int offset = offsets.getInt(id * 4);
+            int length = offsets.getInt(id * 4 + 4) - offset;
+            if (length == end - start) {
+                int k = 0;
+                while (k < length && chars.getChar((offset + k) * 2) == text.charAt(start + k)) {
+                    k++;
+                }
+                if (k == length) {
+                    return id;
+                }
+            }
+            i = (i + 1) & mask;
+            id = table.getInt(i * 4);
+        }
+        return -1;
+    }
+
+    /**
+     * writes a vocabulary section
+     *
+     * @param out the stream of the binary file
+     * @param vocabulary the vocabulary
+     */
+    static void write(DataOutputStream out, Vocabulary vocabulary) throws IOException {
+        int vocabSize = vocabulary.size();
+        int tableSize = tableSize(vocabSize);
+        int[] table = new int[tableSize];
+        Arrays.fill(table, -1);
+        for (int id = 0; id < vocabSize; id++) {
+            String word = vocabulary.getWord(id);
+            int i = hash(word, 0, word.length()) & (tableSize - 1);
+            while (table[i] != -1) {
+                i = (i + 1) & (tableSize - 1);
+            }
+            table[i] = id;
+        }
+        out.writeInt(vocabSize);
+        out.writeInt(tableSize);
+        for (int id : table) {
+            out.writeInt(id);
+        }
+        int offset = 0;
+        for (int id = 0; id < vocabSize; id++) {
+            out.writeInt(offset);
+            offset += vocabulary.getWord(id).length();
+        }
+        out.writeInt(offset);
+        for (int id = 0; id < vocabSize; id++) {
+            out.writeChars(vocabulary.getWord(id));
+        }
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return a power of two large enough for an open-addressing table of
+     * count entries
+     */
+    static int tableSize(int count) {
+        int result = 2;
+        while (result * 3 / 4 < count) {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    /**
+     * maps a section of a file, which must be smaller than 2GB
+     */
+    static MappedByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Section of " + length + " bytes is too large to be mapped.");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+}
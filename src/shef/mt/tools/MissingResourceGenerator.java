@@ -138,81 +138,39 @@ public class MissingResourceGenerator {
         //Check if source LM is missing:
         if (required.contains("source.lm")) {
             if (this.fe.getResourceManager().getProperty("source.lm") == null) {
-                if (this.fe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.fe.getResourceManager().getProperty("source.corpus") != null) {
-                        if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: source.lm");
-                            String outputPath = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getSourceLang() + File.separator + this.fe.getSourceLang() + "_lm.lm";
-                            String[] args = new String[]{
-                                this.fe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.fe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.fe.getResourceManager().getProperty("source.corpus"),
-                                "-lm",
-                                outputPath};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-                                this.fe.getResourceManager().setProperty("source.lm",
-                                        outputPath);
-                                System.out.println("Resource source.lm saved at: " + outputPath);
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource source.lm and resources path is not defined!");
+                if (this.fe.getResourceManager().getProperty("source.corpus") != null) {
+                    if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: source.lm");
+                        String outputPath = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getSourceLang() + File.separator + this.fe.getSourceLang() + "_lm.lm";
+                        if (produceLanguageModel(this.fe.getResourceManager().getProperty("source.corpus"), outputPath, this.getNgramSize())) {
+                            this.fe.getResourceManager().setProperty("source.lm", outputPath);
+                            System.out.println("Resource source.lm saved at: " + outputPath);
                         }
                     } else {
-                        System.out.println("Missing resource source.lm and corpus is not available!");
+                        System.out.println("Missing resource source.lm and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource source.lm and SRILM is not available!");
+                    System.out.println("Missing resource source.lm and corpus is not available!");
                 }
             }
         }
 
+        //Check if target LM is missing:
         if (required.contains("target.lm")) {
-            //Check if target LM is missing:
             if (this.fe.getResourceManager().getProperty("target.lm") == null) {
-                if (this.fe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.fe.getResourceManager().getProperty("target.corpus") != null) {
-                        if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: target.lm");
-                            String outputPath = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getTargetLang() + File.separator + this.fe.getSourceLang() + "_lm.lm";
-                            String[] args = new String[]{
-                                this.fe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.fe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.fe.getResourceManager().getProperty("target.corpus"),
-                                "-lm",
-                                outputPath};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-                                this.fe.getResourceManager().setProperty("target.lm",
-                                        outputPath);
-                                System.out.println("Resource " + "target.lm " + "saved at: " + outputPath);
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource target.lm and resources path is not defined!");
+                if (this.fe.getResourceManager().getProperty("target.corpus") != null) {
+                    if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: target.lm");
+                        String outputPath = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getTargetLang() + File.separator + this.fe.getTargetLang() + "_lm.lm";
+                        if (produceLanguageModel(this.fe.getResourceManager().getProperty("target.corpus"), outputPath, this.getNgramSize())) {
+                            this.fe.getResourceManager().setProperty("target.lm", outputPath);
+                            System.out.println("Resource target.lm saved at: " + outputPath);
                         }
                     } else {
-                        System.out.println("Missing resource target.lm and corpus is not available!");
+                        System.out.println("Missing resource target.lm and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource target.lm and SRILM is not available!");
+                    System.out.println("Missing resource target.lm and corpus is not available!");
                 }
             }
         }
@@ -222,176 +180,140 @@ public class MissingResourceGenerator {
         //Check if source NGRAM file is missing:
         if (required.contains("source.ngram")) {
             if (this.fe.getResourceManager().getProperty("source.ngram") == null) {
-                if (this.fe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.fe.getResourceManager().getProperty("source.corpus") != null) {
-                        if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: " + "source.ngram");
-                            String rawNgramFile = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getSourceLang() + File.separator + this.fe.getSourceLang() + "_ngram.ngram";
-                            String[] args = new String[]{
-                                this.fe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.fe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.fe.getResourceManager().getProperty("source.corpus"),
-                                "-write",
-                                rawNgramFile};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-
-                                NGramSorter.run(rawNgramFile, 4, Integer.parseInt(this.fe.getResourceManager().getProperty("ngramsize")), 2, rawNgramFile);
-
-                                this.fe.getResourceManager().setProperty("source.ngram", rawNgramFile + ".clean");
-                                System.out.println("Resource source.ngram " + "saved at: " + rawNgramFile + ".clean");
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource source.ngram and resources path is not defined!");
+                if (this.fe.getResourceManager().getProperty("source.corpus") != null) {
+                    if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: source.ngram");
+                        String rawNgramFile = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getSourceLang() + File.separator + this.fe.getSourceLang() + "_ngram.ngram";
+                        if (produceNgramCounts(this.fe.getResourceManager().getProperty("source.corpus"), rawNgramFile, this.getNgramSize())) {
+                            this.fe.getResourceManager().setProperty("source.ngram", rawNgramFile + ".clean");
+                            System.out.println("Resource source.ngram saved at: " + rawNgramFile + ".clean");
                         }
                     } else {
-                        System.out.println("Missing resource source.ngram and corpus is not available!");
+                        System.out.println("Missing resource source.ngram and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource source.ngram and SRILM is not available!");
+                    System.out.println("Missing resource source.ngram and corpus is not available!");
                 }
             }
         }
 
+        //Check if target NGRAM file is missing:
         if (required.contains("target.ngram")) {
-            //Check if target NGRAM file is missing:
             if (this.fe.getResourceManager().getProperty("target.ngram") == null) {
-                if (this.fe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.fe.getResourceManager().getProperty("target.corpus") != null) {
-                        if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: target.ngram");
-                            String rawNgramFile = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getTargetLang() + File.separator + this.fe.getTargetLang() + "_ngram.ngram";
-                            String[] args = new String[]{
-                                this.fe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.fe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.fe.getResourceManager().getProperty("target.corpus"),
-                                "-write",
-                                rawNgramFile};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-
-                                NGramSorter.run(rawNgramFile, 4, Integer.parseInt(this.fe.getResourceManager().getProperty("ngramsize")), 2, rawNgramFile);
-
-                                this.fe.getResourceManager().setProperty("target.ngram", rawNgramFile + ".clean");
-                                System.out.println("Resource target.ngram saved at: " + rawNgramFile + ".clean");
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource target.ngram and resources path is not defined!");
+                if (this.fe.getResourceManager().getProperty("target.corpus") != null) {
+                    if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: target.ngram");
+                        String rawNgramFile = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getTargetLang() + File.separator + this.fe.getTargetLang() + "_ngram.ngram";
+                        if (produceNgramCounts(this.fe.getResourceManager().getProperty("target.corpus"), rawNgramFile, this.getNgramSize())) {
+                            this.fe.getResourceManager().setProperty("target.ngram", rawNgramFile + ".clean");
+                            System.out.println("Resource target.ngram saved at: " + rawNgramFile + ".clean");
                         }
                     } else {
-                        System.out.println("Missing resource target.ngram and corpus is not available!");
+                        System.out.println("Missing resource target.ngram and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource target.ngram and SRILM is not available!");
+                    System.out.println("Missing resource target.ngram and corpus is not available!");
                 }
             }
         }
     }
 
     private void produceMissingPOSNgramCounts(HashSet<String> required) {
-        //Check if source NGRAM file is missing:
+        //Check if target POS NGRAM file is missing:
         if (required.contains("target.posngram")) {
-            //Check if target NGRAM file is missing:
             if (this.fe.getResourceManager().getProperty("target.posngram") == null) {
-                if (this.fe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.fe.getResourceManager().getProperty("target.poscorpus") != null) {
-                        if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: target.posngram");
-                            String rawNgramFile = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getTargetLang() + File.separator + this.fe.getTargetLang() + "_posngram.posngram";
-                            String[] args = new String[]{
-                                this.fe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.fe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.fe.getResourceManager().getProperty("target.poscorpus"),
-                                "-write",
-                                rawNgramFile};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-
-                                NGramSorter.run(rawNgramFile, 4, Integer.parseInt(this.fe.getResourceManager().getProperty("ngramsize")), 2, rawNgramFile);
-
-                                this.fe.getResourceManager().setProperty("target.posngram", rawNgramFile + ".clean");
-                                System.out.println("Resource target.posngram saved at: " + rawNgramFile + ".clean");
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource target.posngram and resources path is not defined!");
+                if (this.fe.getResourceManager().getProperty("target.poscorpus") != null) {
+                    if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: target.posngram");
+                        String rawNgramFile = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getTargetLang() + File.separator + this.fe.getTargetLang() + "_posngram.posngram";
+                        if (produceNgramCounts(this.fe.getResourceManager().getProperty("target.poscorpus"), rawNgramFile, this.getNgramSize())) {
+                            this.fe.getResourceManager().setProperty("target.posngram", rawNgramFile + ".clean");
+                            System.out.println("Resource target.posngram saved at: " + rawNgramFile + ".clean");
                         }
                     } else {
-                        System.out.println("Missing resource target.posngram and corpus is not available!");
+                        System.out.println("Missing resource target.posngram and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource target.posngram and SRILM is not available!");
+                    System.out.println("Missing resource target.posngram and corpus is not available!");
                 }
             }
         }
 
+        //Check if source POS NGRAM file is missing:
         if (required.contains("source.posngram")) {
-            //Check if target NGRAM file is missing:
             if (this.fe.getResourceManager().getProperty("source.posngram") == null) {
-                if (this.fe.getResourceManager().getProperty("tools.ngram.path") != null) {
-                    if (this.fe.getResourceManager().getProperty("source.poscorpus") != null) {
-                        if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
-                            System.out.println("Producing resource: source.posngram");
-                            String rawNgramFile = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getSourceLang() + File.separator + this.fe.getSourceLang() + "_posngram.posngram";
-                            String[] args = new String[]{
-                                this.fe.getResourceManager().getProperty("tools.ngram.path") + File.separator + "ngram-count",
-                                "-order",
-                                this.fe.getResourceManager().getProperty("ngramsize"),
-                                "-text",
-                                this.fe.getResourceManager().getProperty("source.poscorpus"),
-                                "-write",
-                                rawNgramFile};
-                            try {
-                                Process process = Runtime.getRuntime().exec(args);
-                                process.waitFor();
-
-                                NGramSorter.run(rawNgramFile, 4, Integer.parseInt(this.fe.getResourceManager().getProperty("ngramsize")), 2, rawNgramFile);
-
-                                this.fe.getResourceManager().setProperty("source.posngram", rawNgramFile + ".clean");
-                                System.out.println("Resource source.posngram saved at: " + rawNgramFile + ".clean");
-                            } catch (IOException e) {
-                                System.out.println("ERROR: Problem while running SRILM.");
-                                e.printStackTrace();
-                            } catch (InterruptedException e) {
-                                System.out.println("ERROR: SRILM could not finish file creation.");
-                                e.printStackTrace();
-                            }
-                        } else {
-                            System.out.println("Missing resource source.posngram and resources path is not defined!");
+                if (this.fe.getResourceManager().getProperty("source.poscorpus") != null) {
+                    if (this.fe.getResourceManager().getProperty("resourcesPath") != null) {
+                        System.out.println("Producing resource: source.posngram");
+                        String rawNgramFile = this.fe.getResourceManager().getProperty("resourcesPath") + File.separator + this.fe.getSourceLang() + File.separator + this.fe.getSourceLang() + "_posngram.posngram";
+                        if (produceNgramCounts(this.fe.getResourceManager().getProperty("source.poscorpus"), rawNgramFile, this.getNgramSize())) {
+                            this.fe.getResourceManager().setProperty("source.posngram", rawNgramFile + ".clean");
+                            System.out.println("Resource source.posngram saved at: " + rawNgramFile + ".clean");
                         }
                     } else {
-                        System.out.println("Missing resource source.posngram and corpus is not available!");
+                        System.out.println("Missing resource source.posngram and resources path is not defined!");
                     }
                 } else {
-                    System.out.println("Missing resource source.posngram and SRILM is not available!");
+                    System.out.println("Missing resource source.posngram and corpus is not available!");
                 }
             }
         }
     }
+
+    private int getNgramSize() {
+        return Integer.parseInt(this.fe.getResourceManager().getProperty("ngramsize"));
+    }
+
+    /**
+     * Counts the ngrams of a corpus and estimates an interpolated Kneser-Ney
+     * language model from them.
+     *
+     * @param corpus the path of the corpus
+     * @param outputPath the path of the ARPA file
+     * @param ngramSize the order of the language model
+     * @return true if the language model was written
+     */
+    static boolean produceLanguageModel(String corpus, String outputPath, int ngramSize) {
+        File folder = new File(outputPath).getAbsoluteFile().getParentFile();
+        folder.mkdirs();
+        NGramCounter counter = new NGramCounter(ngramSize, Runtime.getRuntime().availableProcessors(), 2000000, folder);
+        try {
+            counter.count(corpus);
+            counter.estimate(true).write(outputPath);
+            return true;
+        } catch (IOException e) {
+            System.out.println("ERROR: Problem while estimating language model.");
+            e.printStackTrace();
+            return false;
+        } finally {
+            counter.close();
+        }
+    }
+
+    /**
+     * Counts the ngrams of a corpus and writes them, followed by the cleaned
+     * count file with cut-off frequencies produced by NGramSorter.
+     *
+     * @param corpus the path of the corpus
+     * @param rawNgramFile the path of the count file
+     * @param ngramSize the highest ngram size to count
+     * @return true if the count files were written
+     */
+    static boolean produceNgramCounts(String corpus, String rawNgramFile, int ngramSize) {
+        File folder = new File(rawNgramFile).getAbsoluteFile().getParentFile();
+        folder.mkdirs();
+        NGramCounter counter = new NGramCounter(ngramSize, Runtime.getRuntime().availableProcessors(), 2000000, folder);
+        try {
+            counter.count(corpus);
+            counter.writeCounts(rawNgramFile);
+        } catch (IOException e) {
+            System.out.println("ERROR: Problem while counting ngrams.");
+            e.printStackTrace();
+            return false;
+        } finally {
+            counter.close();
+        }
+        NGramSorter.run(rawNgramFile, 4, ngramSize, 2, rawNgramFile);
+        return true;
+    }
 }
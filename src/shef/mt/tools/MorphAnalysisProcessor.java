@@ -3,6 +3,7 @@ package shef.mt.tools;
 import shef.mt.features.util.Doc;
 import shef.mt.features.util.Sentence;
 import shef.mt.features.util.PronMorph;
+import shef.mt.util.AnnotationReader;
 import java.io.*;
 import java.util.*;
 
@@ -15,29 +16,27 @@ import java.util.*;
  */
 public class MorphAnalysisProcessor extends ResourceProcessor {
 
-    BufferedReader brInput;
+    AnnotationReader<ArrayList<PronMorph>> morphs;
     private static String SENT_START = ";;; SENTENCE ";
     private static String SENT_END = "SENTENCE";
     private static String WORD_START = ";;WORD";
     int count = 0;
 
-    public MorphAnalysisProcessor(String inputFile) {
-        try {
-            System.out.println("input to map: " + inputFile);
-            brInput = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile)));
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    public void processNextSentence(Sentence sent) {
-        try {
+    /**
+     * Reads the pronouns of the next sentence of the MADA output.
+     */
+    private static final AnnotationReader.Parser<ArrayList<PronMorph>> PARSER = new AnnotationReader.Parser<ArrayList<PronMorph>>() {
+        @Override
+        public ArrayList<PronMorph> next(BufferedReader brInput) throws IOException {
+            ArrayList<PronMorph> sent = new ArrayList<PronMorph>();
             int position = -1;
-            count = 0;
             String line = brInput.readLine();
             while (line != null && !line.startsWith(SENT_START)) {
                 line = brInput.readLine();
             }
+            if (line == null) {
+                return null;
+            }
 //            System.out.println("new sentence:"+line);
             //we've found a new sentence; now let's read the next lines to get the words
             while (line != null && !line.startsWith(SENT_END)) {
@@ -50,7 +49,7 @@ public class MorphAnalysisProcessor extends ResourceProcessor {
                 //we get the word from it
                 if (line == null) {
                     //                  System.out.println("reached eof");
-                    return;
+                    return sent;
 
                 }
                 if (line.startsWith(SENT_END)) {
@@ -97,8 +96,7 @@ public class MorphAnalysisProcessor extends ResourceProcessor {
 
                                     }
                                     wordMorph.setPosition(position);
-                                    sent.addWordMorph(wordMorph);
-                                    count++;
+                                    sent.add(wordMorph);
 
                                 } else if (comp.contains("PRON_") || comp.contains("POSS_PRON")) {
 //						System.out.println(comp);
@@ -119,9 +117,8 @@ public class MorphAnalysisProcessor extends ResourceProcessor {
                                     }
                                     //    wordMorph.print();
 
-                                    count++;
                                     wordMorph.setPosition(position);
-                                    sent.addWordMorph(wordMorph);
+                                    sent.add(wordMorph);
                                 }
                             }
                         }
@@ -129,6 +126,32 @@ public class MorphAnalysisProcessor extends ResourceProcessor {
                     line = brInput.readLine();
                 }  //we've found an end of sentence marker or the end of file has been reached
             }
+            return sent;
+        }
+    };
+
+    public MorphAnalysisProcessor(String inputFile) {
+        try {
+            System.out.println("input to map: " + inputFile);
+            morphs = new AnnotationReader<ArrayList<PronMorph>>(inputFile, PARSER);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void processNextSentence(Sentence sent) {
+        try {
+            if (morphs == null) {
+                return;
+            }
+            ArrayList<PronMorph> sentMorphs = morphs.get(sent.getIndex());
+            if (sentMorphs == null) {
+                return;
+            }
+            count = sentMorphs.size();
+            for (PronMorph wordMorph : sentMorphs) {
+                sent.addWordMorph(wordMorph);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
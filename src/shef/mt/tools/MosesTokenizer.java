@@ -0,0 +1,355 @@
+package shef.mt.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import shef.mt.util.Logger;
+
+/**
+ * In-process version of the Moses tokenizer script shipped in
+ * lang_resources/tokenizer/tokenizer.perl, as run by Tokenizer (with -q and
+ * -l). Sentences are tokenised one at a time, with the same rules and
+ * non-breaking prefix files as the script, so its output is the same as the
+ * output of the script, without starting Perl or writing files. Instances can
+ * be used from several threads at once.
+ *
+ * @author GustavoH
+ */
+public class MosesTokenizer {
+
+    private static final int U = Pattern.UNICODE_CHARACTER_CLASS;
+
+    private static final Pattern MULTI_DOTS = Pattern.compile("\\.([.]+)");
+    private static final Pattern DOTMULTI_BEFORE = Pattern.compile("DOTMULTI\\.([^.])");
+    private static final Pattern DOTMULTI_DOT = Pattern.compile("DOTMULTI\\.");
+    //Contractions:
+    private static final Pattern NONALPHA_QUOTE_NONALPHA = Pattern.compile("([^\\p{IsAlphabetic}])[']([^\\p{IsAlphabetic}])");
+    private static final Pattern NONALPHANUM_QUOTE_ALPHA = Pattern.compile("([^\\p{IsAlphabetic}\\p{N}])[']([\\p{IsAlphabetic}])");
+    private static final Pattern NONALPHA_QUOTE_ALPHA = Pattern.compile("([^\\p{IsAlphabetic}])[']([\\p{IsAlphabetic}])");
+    private static final Pattern ALPHA_QUOTE_NONALPHA = Pattern.compile("([\\p{IsAlphabetic}])[']([^\\p{IsAlphabetic}])");
+    private static final Pattern ALPHA_QUOTE_ALPHA = Pattern.compile("([\\p{IsAlphabetic}])[']([\\p{IsAlphabetic}])");
+    private static final Pattern NUMBER_QUOTE_S = Pattern.compile("([\\p{N}])[']([s])");
+
+    private static final int PREFIX = 1;
+    private static final int NUMERIC_ONLY_PREFIX = 2;
+
+    private String lang;
+    private HashMap<String, Integer> nonbreakingPrefixes;
+
+    /**
+     * Creates a tokenizer for a language.
+     *
+     * @param lang the code of the language, as given to the script with -l
+     * @param prefixFolder the folder of the nonbreaking_prefix.* files
+     * @throws IOException if the non-breaking prefixes cannot be read
+     */
+    public MosesTokenizer(String lang, String prefixFolder) throws IOException {
+        this.lang = lang;
+        this.nonbreakingPrefixes = new HashMap<String, Integer>();
+
+        //Default back to English if there is no language-specific prefix file:
+        File prefixFile = new File(prefixFolder, "nonbreaking_prefix." + lang);
+        if (!prefixFile.exists()) {
+            System.out.println("WARNING: No known abbreviations for language '" + lang + "', attempting fall-back to English version...");
+            prefixFile = new File(prefixFolder, "nonbreaking_prefix.en");
+            if (!prefixFile.exists()) {
+                throw new IOException("No abbreviations files found in " + prefixFolder);
+            }
+        }
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(prefixFile), "utf-8"));
+        try {
+            Pattern numericOnly = Pattern.compile("(.*)[\\s]+(#NUMERIC_ONLY#)", U);
+            String item;
+            while ((item = br.readLine()) != null) {
+                if (!item.isEmpty() && item.charAt(0) != '#') {
+                    Matcher m = numericOnly.matcher(item);
+                    if (m.find()) {
+                        nonbreakingPrefixes.put(m.group(1), NUMERIC_ONLY_PREFIX);
+                    } else {
+                        nonbreakingPrefixes.put(item, PREFIX);
+                    }
+                }
+            }
+        } finally {
+            br.close();
+        }
+        if (nonbreakingPrefixes.isEmpty()) {
+            System.out.println("Warning: No known abbreviations for language '" + lang + "'");
+        }
+        Logger.log("Loaded " + nonbreakingPrefixes.size() + " non-breaking prefixes from " + prefixFile.getPath());
+    }
+
+    /**
+     * Creates a tokenizer with the non-breaking prefixes of a copy of the
+     * tokenizer script, found next to it as the script does.
+     *
+     * @param scriptPath the path of tokenizer.perl
+     * @param lang the code of the language
+     * @return the tokenizer
+     * @throws IOException if the non-breaking prefixes cannot be read
+     */
+    public static MosesTokenizer forScript(String scriptPath, String lang) throws IOException {
+        File folder = new File(scriptPath).getAbsoluteFile().getParentFile();
+        return new MosesTokenizer(lang, new File(folder, "nonbreaking_prefixes").getPath());
+    }
+
+    /**
+     * Tokenises a sentence.
+     *
+     * @param line the sentence, without its line break
+     * @return the tokens of the sentence separated by single spaces, or the
+     * sentence itself if it is blank or an XML tag
+     */
+    public String tokenize(String line) {
+        //Don't try to tokenize XML/HTML tag lines:
+        if (isBlank(line) || (line.length() > 2 && line.charAt(0) == '<' && line.charAt(line.length() - 1) == '>')) {
+            return line;
+        }
+
+        //Separate out all "other" special characters:
+        StringBuilder separated = new StringBuilder(line.length() + 16);
+        separated.append(' ');
+        for (int i = 0; i < line.length();) {
+            int c = line.codePointAt(i);
+            i += Character.charCount(c);
+            if (Character.isAlphabetic(c) || Character.getType(c) == Character.DECIMAL_DIGIT_NUMBER
+                    || (c < 0x10000 && TrueCaser.isSpace((char) c))
+                    || c == '.' || c == '\'' || c == '`' || c == ',' || c == '-') {
+                separated.appendCodePoint(c);
+            } else {
+                separated.append(' ').appendCodePoint(c).append(' ');
+            }
+        }
+        separated.append(' ');
+        String text = separated.toString();
+
+        //Multi-dots stay together:
+        if (text.contains("..") || text.contains("DOTMULTI")) {
+            text = MULTI_DOTS.matcher(text).replaceAll(" DOTMULTI$1");
+            while (text.contains("DOTMULTI.")) {
+                text = DOTMULTI_BEFORE.matcher(text).replaceAll("DOTDOTMULTI $1");
+                text = DOTMULTI_DOT.matcher(text).replaceAll("DOTDOTMULTI");
+            }
+        }
+
+        //Separate out "," except if within numbers (5,300), and pre and post number:
+        if (text.indexOf(',') != -1) {
+            text = separateCommas(text, false, false);
+            text = separateCommas(text, true, false);
+            text = separateCommas(text, false, true);
+        }
+
+        //Turn ` into ' and '' into ":
+        text = text.replace('`', '\'');
+        if (text.indexOf('\'') != -1) {
+            text = text.replace("''", " \" ");
+
+            if (lang.equals("en")) {
+                //Split contractions right:
+                text = NONALPHA_QUOTE_NONALPHA.matcher(text).replaceAll("$1 ' $2");
+                text = NONALPHANUM_QUOTE_ALPHA.matcher(text).replaceAll("$1 ' $2");
+                text = ALPHA_QUOTE_NONALPHA.matcher(text).replaceAll("$1 ' $2");
+                text = ALPHA_QUOTE_ALPHA.matcher(text).replaceAll("$1 '$2");
+                //Special case for "1990's":
+                text = NUMBER_QUOTE_S.matcher(text).replaceAll("$1 '$2");
+            } else if (lang.equals("fr") || lang.equals("it") || lang.equals("pt") || lang.equals("es") || lang.equals("br") || lang.equals("pt_br")) {
+                //Split contractions left:
+                text = NONALPHA_QUOTE_NONALPHA.matcher(text).replaceAll("$1 ' $2");
+                text = NONALPHA_QUOTE_ALPHA.matcher(text).replaceAll("$1 ' $2");
+                text = ALPHA_QUOTE_NONALPHA.matcher(text).replaceAll("$1 ' $2");
+                text = ALPHA_QUOTE_ALPHA.matcher(text).replaceAll("$1' $2");
+            } else {
+                text = text.replace("'", " ' ");
+            }
+        }
+
+        //Split final periods, except after non-breaking prefixes, and join
+        //the words with single spaces:
+        ArrayList<String> words = splitOnSpaces(text);
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            if (word.length() > 1 && word.charAt(word.length() - 1) == '.') {
+                String pre = word.substring(0, word.length() - 1);
+                Integer prefix = nonbreakingPrefixes.get(pre);
+                boolean hasNext = i < words.size() - 1;
+                String next = hasNext ? words.get(i + 1) : "";
+                if ((pre.indexOf('.') != -1 && hasAlphabetic(pre))
+                        || (prefix != null && prefix == PREFIX)
+                        || (!next.isEmpty() && Character.isLowerCase(next.codePointAt(0)))) {
+                    //No change
+                } else if (prefix != null && prefix == NUMERIC_ONLY_PREFIX && !next.isEmpty() && next.charAt(0) >= '0' && next.charAt(0) <= '9') {
+                    //No change
+                } else {
+                    word = pre + " .";
+                }
+            }
+            if (!word.isEmpty()) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(word);
+            }
+        }
+        text = result.toString();
+
+        //Restore multi-dots:
+        if (text.contains("DOTMULTI")) {
+            while (text.contains("DOTDOTMULTI")) {
+                text = text.replace("DOTDOTMULTI", "DOTMULTI.");
+            }
+            text = text.replace("DOTMULTI", ".");
+        }
+
+        if (text.indexOf('-') != -1) {
+            text = separateDashes(text);
+        }
+        return text;
+    }
+
+    /**
+     * Separates commas from the characters around them, as
+     * s/([^\p{IsN}])[,]([^\p{IsN}])/$1 , $2/g and its variants with numbers
+     * before or after the comma do.
+     */
+    private static String separateCommas(String text, boolean numberBefore, boolean numberAfter) {
+        StringBuilder result = null;
+        int copied = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int before = text.codePointAt(i);
+            int comma = i + Character.charCount(before);
+            if (comma < text.length() - 1 && text.charAt(comma) == ','
+                    && isNumber(before) == numberBefore && isNumber(text.codePointAt(comma + 1)) == numberAfter) {
+                if (result == null) {
+                    result = new StringBuilder(text.length() + 16);
+                }
+                int after = text.codePointAt(comma + 1);
+                int end = comma + 1 + Character.charCount(after);
+                result.append(text, copied, comma).append(" , ").append(text, comma + 1, end);
+                copied = end;
+                i = end;
+            } else {
+                i = comma;
+            }
+        }
+        return result == null ? text : result.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * Separates dashes from letters, in the order of the rules
+     * s/([[:alpha:]])([-]{2,})/$1 $2/g, s/([[:alpha:]])\-([A-Z])/$1 - $2/g and
+     * s/([-]+)([[:alpha:]])/$1 $2/g of the script.
+     */
+    private static String separateDashes(String text) {
+        //Letters followed by several dashes:
+        StringBuilder result = new StringBuilder(text.length() + 16);
+        int i = 0;
+        while (i < text.length()) {
+            int c = text.codePointAt(i);
+            int next = i + Character.charCount(c);
+            result.appendCodePoint(c);
+            if (Character.isAlphabetic(c) && next + 1 < text.length() && text.charAt(next) == '-' && text.charAt(next + 1) == '-') {
+                result.append(' ');
+                while (next < text.length() && text.charAt(next) == '-') {
+                    result.append('-');
+                    next++;
+                }
+            }
+            i = next;
+        }
+        text = result.toString();
+
+        //A letter, a dash and an uppercase letter:
+        result.setLength(0);
+        i = 0;
+        while (i < text.length()) {
+            int c = text.codePointAt(i);
+            int next = i + Character.charCount(c);
+            result.appendCodePoint(c);
+            if (Character.isAlphabetic(c) && next + 1 < text.length() && text.charAt(next) == '-'
+                    && text.charAt(next + 1) >= 'A' && text.charAt(next + 1) <= 'Z') {
+                result.append(" - ").append(text.charAt(next + 1));
+                next += 2;
+            }
+            i = next;
+        }
+        text = result.toString();
+
+        //Dashes followed by a letter:
+        result.setLength(0);
+        i = 0;
+        while (i < text.length()) {
+            if (text.charAt(i) != '-') {
+                int c = text.codePointAt(i);
+                result.appendCodePoint(c);
+                i += Character.charCount(c);
+                continue;
+            }
+            int end = i;
+            while (end < text.length() && text.charAt(end) == '-') {
+                end++;
+            }
+            result.append(text, i, end);
+            if (end < text.length() && Character.isAlphabetic(text.codePointAt(end))) {
+                int c = text.codePointAt(end);
+                result.append(' ').appendCodePoint(c);
+                end += Character.charCount(c);
+            }
+            i = end;
+        }
+        return result.toString();
+    }
+
+    private static boolean isNumber(int c) {
+        int type = Character.getType(c);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+    }
+
+    private static boolean hasAlphabetic(String word) {
+        for (int i = 0; i < word.length();) {
+            int c = word.codePointAt(i);
+            if (Character.isAlphabetic(c)) {
+                return true;
+            }
+            i += Character.charCount(c);
+        }
+        return false;
+    }
+
+    private static boolean isBlank(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!TrueCaser.isSpace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * splits a text on each white space character, as Perl's split(/\s/)
+     * does: empty words between consecutive spaces and at the start are kept,
+     * empty words at the end are not
+     */
+    private static ArrayList<String> splitOnSpaces(String text) {
+        ArrayList<String> words = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (TrueCaser.isSpace(text.charAt(i))) {
+                words.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        words.add(text.substring(start));
+        while (!words.isEmpty() && words.get(words.size() - 1).isEmpty()) {
+            words.remove(words.size() - 1);
+        }
+        return words;
+    }
+}
@@ -6,6 +6,7 @@ package shef.mt.tools;
 import shef.mt.features.util.Sentence;
 import java.util.HashSet;
 import java.util.ArrayList;
+import shef.mt.util.AnnotationReader;
 import shef.mt.util.Logger;
 
 import java.io.*;
@@ -19,7 +20,7 @@ import java.io.*;
  */
 public class NERProcessor {
 
-    BufferedReader br;
+    AnnotationReader<ArrayList<String[]>> br;
     String input;
     private String person_str;
     private String org_str;
@@ -35,7 +36,7 @@ public class NERProcessor {
      */
     public NERProcessor(String input, String[] values) {
         try {
-            br = new BufferedReader(new InputStreamReader(new FileInputStream(input)));
+            br = new AnnotationReader<ArrayList<String[]>>(input, AnnotationReader.TOKEN_BLOCKS);
             ResourceManager.registerResource("ner");
             Logger.log("Running named entity processor");
             PERSON = values[0];
@@ -73,21 +74,15 @@ public class NERProcessor {
             int loc = 0;
             int org = 0;
             String ner;
-            String line = br.readLine();
-            if (line == null) {
-                br.close();
+            ArrayList<String[]> tokens = br.get(sent.getIndex());
+            if (tokens == null) {
                 Logger.log("NER processor done!");
                 return;
             }
             ArrayList<String> orgs = new ArrayList<String>();
             ArrayList<String> locs = new ArrayList<String>();
             ArrayList<String> persons = new ArrayList<String>();
-            String[] values;
-            while (!line.isEmpty()) {
-                if (line.startsWith("#")) {
-                    line = br.readLine();
-                }
-                values = line.split("\t");
+            for (String[] values : tokens) {
                 ner = values[1];
                 if (ner.endsWith(org_str)) {
                     org++;
@@ -102,7 +97,6 @@ public class NERProcessor {
                     persons.add(values[0].toLowerCase());
 //					System.out.println(ner+" "+values[0]);
                 }
-                line = br.readLine();
             }
             sent.setValue(ORG, orgs);
             sent.setValue(LOCATION, locs);
@@ -0,0 +1,424 @@
+package shef.mt.tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import shef.mt.util.Logger;
+
+/**
+ * Counts the ngrams of a corpus with one sentence per line, as SRILM's
+ * <code>ngram-count</code> does, and writes them in its count file format or
+ * estimates a language model from them. Lines are counted in batches by
+ * several threads; each thread keeps its counts in memory until they hold a
+ * given number of ngrams, and then writes them, sorted, to a temporary file.
+ * The temporary files are merged afterwards, adding up the counts of the same
+ * ngram, so that the memory used while counting does not depend on the size of
+ * the corpus.
+ *
+ * @author GustavoH
+ */
+public class NGramCounter {
+
+    /**
+     * orders lines that start with an ngram followed by a tab by their ngram
+     */
+    static final Comparator<String> NGRAM_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            int i = 0;
+            while (true) {
+                char ca = i < a.length() ? a.charAt(i) : '\t';
+                char cb = i < b.length() ? b.charAt(i) : '\t';
+                if (ca == '\t' || cb == '\t') {
+                    return ca == cb ? 0 : (ca == '\t' ? -1 : 1);
+                }
+                if (ca != cb) {
+                    return ca - cb;
+                }
+                i++;
+            }
+        }
+    };
+
+    private static final int BATCH_LINES = 10000;
+    private static final int MAX_RUNS = 64;
+
+    private int order;
+    private int threads;
+    private int maxNGrams;
+    private File tempDir;
+    private final ArrayList<File> runs;
+
+    /**
+     * Creates a counter that uses every processor and keeps up to two million
+     * ngrams in memory in each thread.
+     *
+     * @param order the highest ngram size to count
+     */
+    public NGramCounter(int order) {
+        this(order, Runtime.getRuntime().availableProcessors(), 2000000, null);
+    }
+
+    /**
+     * @param order the highest ngram size to count
+     * @param threads the number of counting threads
+     * @param maxNGrams the number of distinct ngrams a thread keeps in memory
+     * before writing them to a temporary file
+     * @param tempDir the folder of the temporary files, or null for the
+     * default temporary folder
+     */
+    public NGramCounter(int order, int threads, int maxNGrams, File tempDir) {
+        this.order = order;
+        this.threads = Math.max(1, threads);
+        this.maxNGrams = maxNGrams;
+        this.tempDir = tempDir;
+        this.runs = new ArrayList<File>();
+    }
+
+    /**
+     * A counting thread, which takes batches of lines until it gets an empty
+     * one.
+     */
+    private class Worker extends Thread {
+
+        private BlockingQueue<ArrayList<String>> queue;
+        private LanguageModelEstimator counts;
+        private IOException error;
+
+        Worker(BlockingQueue<ArrayList<String>> queue) {
+            this.queue = queue;
+            this.counts = new LanguageModelEstimator(order);
+        }
+
+        @Override
+        public void run() {
+            try {
+                ArrayList<String> batch = queue.take();
+                while (!batch.isEmpty()) {
+                    //After an error, batches are taken but not counted:
+                    if (error == null) {
+                        try {
+                            for (String line : batch) {
+                                counts.addSentence(line);
+                            }
+                            if (counts.size() >= maxNGrams) {
+                                spill();
+                            }
+                        } catch (IOException e) {
+                            error = e;
+                        }
+                    }
+                    batch = queue.take();
+                }
+                if (error == null) {
+                    spill();
+                }
+            } catch (InterruptedException e) {
+                error = new IOException("Counting was interrupted.", e);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        private void spill() throws IOException {
+            if (counts.size() == 0) {
+                return;
+            }
+            String[] lines = counts.getSortedCounts();
+            counts = new LanguageModelEstimator(order);
+            File run = writeRun(lines);
+            synchronized (runs) {
+                runs.add(run);
+            }
+        }
+    }
+
+    private File writeRun(String[] lines) throws IOException {
+        File run = File.createTempFile("ngrams", ".run", tempDir);
+        run.deleteOnExit();
+        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(run), "utf-8"), 1 << 16);
+        try {
+            for (String line : lines) {
+                bw.write(line);
+                bw.write('\n');
+            }
+        } finally {
+            bw.close();
+        }
+        return run;
+    }
+
+    /**
+     * Counts the ngrams of a corpus, adding them to those counted before.
+     *
+     * @param corpus the path of the corpus, with one tokenized sentence per
+     * line
+     * @throws IOException if the corpus cannot be read or the counts cannot be
+     * written to temporary files
+     */
+    public void count(String corpus) throws IOException {
+        System.out.println("Counting ngrams of " + corpus + " with " + threads + " threads...");
+        Logger.log("Counting ngrams of " + corpus + "...");
+        long start = System.currentTimeMillis();
+
+        //Start counting threads:
+        BlockingQueue<ArrayList<String>> queue = new ArrayBlockingQueue<ArrayList<String>>(threads * 2);
+        Worker[] workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(queue);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        //Hand them batches of lines:
+        long lineCount = 0;
+        boolean finished = false;
+        BufferedReader br = null;
+        try {
+            br = new BufferedReader(new InputStreamReader(new FileInputStream(corpus), "utf-8"), 1 << 16);
+            ArrayList<String> batch = new ArrayList<String>(BATCH_LINES);
+            String line = br.readLine();
+            while (line != null) {
+                batch.add(line);
+                lineCount++;
+                if (batch.size() == BATCH_LINES) {
+                    queue.put(batch);
+                    batch = new ArrayList<String>(BATCH_LINES);
+                }
+                if (lineCount % 1000000 == 0) {
+                    System.out.println(lineCount + " lines counted");
+                }
+                line = br.readLine();
+            }
+            if (!batch.isEmpty()) {
+                queue.put(batch);
+            }
+            for (int i = 0; i < threads; i++) {
+                queue.put(new ArrayList<String>());
+            }
+            for (Worker worker : workers) {
+                worker.join();
+            }
+            finished = true;
+        } catch (InterruptedException e) {
+            throw new IOException("Counting was interrupted.", e);
+        } finally {
+            //Stop the threads if the corpus could not be read:
+            if (!finished) {
+                for (Worker worker : workers) {
+                    worker.interrupt();
+                }
+            }
+            if (br != null) {
+                br.close();
+            }
+        }
+        for (Worker worker : workers) {
+            if (worker.error != null) {
+                throw worker.error;
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        Logger.log(lineCount + " lines counted in " + elapsed / 1000F + " sec");
+        System.out.println(lineCount + " lines counted in " + elapsed / 1000F + " sec, " + runs.size() + " temporary files");
+    }
+
+    /**
+     * A sorted temporary file of counts being read.
+     */
+    private static class Run {
+
+        private BufferedReader br;
+        private String ngram;
+        private int count;
+
+        Run(File file) throws IOException {
+            br = new BufferedReader(new InputStreamReader(new FileInputStream(file), "utf-8"), 1 << 16);
+        }
+
+        boolean next() throws IOException {
+            String line = br.readLine();
+            if (line == null) {
+                br.close();
+                return false;
+            }
+            int tab = line.lastIndexOf('\t');
+            ngram = line.substring(0, tab);
+            count = Integer.parseInt(line.substring(tab + 1));
+            return true;
+        }
+    }
+
+    /**
+     * Reads several sorted temporary files at once, adding up the counts of
+     * each ngram.
+     */
+    private static class Merger {
+
+        private PriorityQueue<Run> heap;
+        private String ngram;
+        private long count;
+
+        Merger(ArrayList<File> files) throws IOException {
+            heap = new PriorityQueue<Run>(Math.max(1, files.size()), new Comparator<Run>() {
+                @Override
+                public int compare(Run a, Run b) {
+                    return NGRAM_ORDER.compare(a.ngram, b.ngram);
+                }
+            });
+            for (File file : files) {
+                Run run = new Run(file);
+                if (run.next()) {
+                    heap.add(run);
+                }
+            }
+        }
+
+        boolean next() throws IOException {
+            if (heap.isEmpty()) {
+                return false;
+            }
+            Run run = heap.poll();
+            ngram = run.ngram;
+            count = run.count;
+            if (run.next()) {
+                heap.add(run);
+            }
+            while (!heap.isEmpty() && heap.peek().ngram.equals(ngram)) {
+                run = heap.poll();
+                count += run.count;
+                if (run.next()) {
+                    heap.add(run);
+                }
+            }
+            return true;
+        }
+
+        int getCount() {
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * merges temporary files until there are few enough to be read at once
+     */
+    private Merger merge() throws IOException {
+        while (runs.size() > MAX_RUNS) {
+            ArrayList<File> group = new ArrayList<File>(runs.subList(0, MAX_RUNS));
+            runs.subList(0, MAX_RUNS).clear();
+            File merged = File.createTempFile("ngrams", ".run", tempDir);
+            merged.deleteOnExit();
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(merged), "utf-8"), 1 << 16);
+            try {
+                Merger merger = new Merger(group);
+                while (merger.next()) {
+                    bw.write(merger.ngram + "\t" + merger.getCount() + "\n");
+                }
+            } finally {
+                bw.close();
+            }
+            for (File file : group) {
+                file.delete();
+            }
+            runs.add(merged);
+        }
+        return new Merger(runs);
+    }
+
+    /**
+     * Writes the ngrams counted so far in the format of
+     * <code>ngram-count -write</code>: one ngram per line, followed by a tab
+     * and its count.
+     *
+     * @param path the path of the count file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCounts(String path) throws IOException {
+        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), "utf-8"), 1 << 16);
+        try {
+            Merger merger = merge();
+            while (merger.next()) {
+                bw.write(merger.ngram + "\t" + merger.getCount() + "\n");
+            }
+        } finally {
+            bw.close();
+        }
+    }
+
+    /**
+     * Estimates a language model from the ngrams counted so far, which are
+     * loaded in memory.
+     *
+     * @param kneserNey true for interpolated modified Kneser-Ney smoothing,
+     * false for Good-Turing discounting
+     * @return the language model
+     * @throws IOException if the temporary files cannot be read
+     */
+    public ArpaLanguageModel estimate(boolean kneserNey) throws IOException {
+        LanguageModelEstimator estimator = new LanguageModelEstimator(order, kneserNey);
+        Merger merger = merge();
+        while (merger.next()) {
+            estimator.addCount(merger.ngram, merger.getCount());
+        }
+        return estimator.estimate();
+    }
+
+    /**
+     * deletes the temporary files
+     */
+    public void close() {
+        for (File run : runs) {
+            run.delete();
+        }
+        runs.clear();
+    }
+
+    /**
+     * counts the ngrams of a corpus
+     *
+     * @param args the corpus, the highest ngram size and then any of -write
+     * followed by the path of a count file, -lm followed by the path of an
+     * ARPA file and -kndiscount to estimate it with Kneser-Ney smoothing
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: NGramCounter <corpus> <order> [-write <count file>] [-lm <ARPA file>] [-kndiscount]");
+            return;
+        }
+        String countFile = null;
+        String lmFile = null;
+        boolean kneserNey = false;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("-write")) {
+                countFile = args[++i];
+            } else if (args[i].equals("-lm")) {
+                lmFile = args[++i];
+            } else if (args[i].equals("-kndiscount")) {
+                kneserNey = true;
+            }
+        }
+        NGramCounter counter = new NGramCounter(Integer.parseInt(args[1]));
+        try {
+            counter.count(args[0]);
+            if (countFile != null) {
+                counter.writeCounts(countFile);
+            }
+            if (lmFile != null) {
+                counter.estimate(kneserNey).write(lmFile);
+            }
+        } finally {
+            counter.close();
+        }
+    }
+}
@@ -4,7 +4,9 @@
 package shef.mt.tools;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 
 import shef.mt.util.Logger;
@@ -26,7 +28,54 @@ public class NGramProcessor {
         ngramNos = new int[nSize];
     }
 
+    /**
+     * Loads the ngram counts. If a binary index compiled by
+     * MappedLanguageModel is found next to the ngram count file and is not
+     * older than it, the index is mapped instead of parsing the file. A path
+     * ending in .bin is always read as an index; if it cannot be mapped, the
+     * error is reported and the returned model is empty, with the ngramcount
+     * resource left unregistered, as when the text file cannot be parsed.
+     *
+     * @return the LanguageModel
+     */
     public LanguageModel run() {
+        boolean binary = corpus.endsWith(".bin");
+        File index = new File(binary ? corpus : corpus + ".bin");
+        File text = new File(corpus);
+        if (binary && !index.isFile()) {
+            //There is no text file to fall back on:
+            Logger.log("Language model index " + index.getPath() + " not found.");
+            System.out.println("Language model index " + index.getPath() + " not found.");
+            return new LanguageModel(nSize);
+        }
+        if (index.isFile() && (binary || !text.isFile() || index.lastModified() >= text.lastModified())) {
+            System.out.println("Mapping language model index " + index.getPath() + "...");
+            Logger.log("Mapping language model index " + index.getPath() + "...");
+            long start = System.currentTimeMillis();
+            try {
+                LanguageModel lm = new MappedLanguageModel(index.getPath());
+                ResourceManager.registerResource("ngramcount");
+                long elapsed = System.currentTimeMillis() - start;
+                Logger.log("Language model mapped in " + elapsed / 1000F + " sec");
+                System.out.println("Language model mapped in " + elapsed / 1000F + " sec");
+                return lm;
+            } catch (IOException ex) {
+                Logger.log("Could not map " + index.getPath() + ": " + ex.getMessage());
+                System.out.println("Could not map " + index.getPath() + ": " + ex.getMessage());
+                if (binary) {
+                    return new LanguageModel(nSize);
+                }
+            }
+        }
+        return parse();
+    }
+
+    /**
+     * Parses the ngram count file into a LanguageModel held in memory.
+     *
+     * @return the LanguageModel
+     */
+    public LanguageModel parse() {
 
         System.out.println("Loading language model...");
         Logger.log("Loading language model...");
@@ -56,13 +105,17 @@ public class NGramProcessor {
             }
 
             while (line != null) {
-                if (!line.trim().isEmpty()) {
-                    lineSplit = line.split("\t");
+                int tab = line.indexOf('\t');
+                if (tab != -1) {
                     //System.out.println(line);
-                    lm.addNGram(lineSplit[0], Integer.parseInt(lineSplit[1]));
-//                    System.out.println("T: " + lineSplit[0] + ", F: " + lineSplit[1]);
-                    line = br.readLine();
+                    //The count is the field after the ngram, followed by other columns or not:
+                    int countEnd = line.indexOf('\t', tab + 1);
+                    if (countEnd == -1) {
+                        countEnd = line.length();
+                    }
+                    lm.addNGram(line.substring(0, tab), Integer.parseInt(line.substring(tab + 1, countEnd).trim()));
                 }
+                line = br.readLine();
             }
             ResourceManager.registerResource("ngramcount");
 
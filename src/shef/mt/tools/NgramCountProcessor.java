@@ -3,6 +3,7 @@ package shef.mt.tools;
 
 import shef.mt.features.util.Doc;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * Provides a language model object to the sentences processed.
@@ -18,7 +19,7 @@ public class NgramCountProcessor extends ResourceProcessor {
     
     @Override
     public void processNextSentence(Sentence s) {
-        s.setValue("ngramcount", this.lm);
+        s.setValue(SentenceKey.NGRAM_COUNT, this.lm);
         s.computeNGrams(3);
     }
 
@@ -30,4 +31,8 @@ public class NgramCountProcessor extends ResourceProcessor {
         }
     }
 
+    @Override
+    public boolean isSequential() {
+        return false;
+    }
 }
@@ -3,6 +3,7 @@ package shef.mt.tools;
 
 import shef.mt.features.util.Doc;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 
 /**
  * Adds a tagged language model object to the sentences processed.
@@ -18,7 +19,7 @@ public class POSNgramCountProcessor extends ResourceProcessor {
     
     @Override
     public void processNextSentence(Sentence s) {
-        s.setValue("posngramcount", this.lm);
+        s.setValue(SentenceKey.POS_NGRAM_COUNT, this.lm);
     }
 
     @Override
@@ -26,4 +27,8 @@ public class POSNgramCountProcessor extends ResourceProcessor {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    @Override
+    public boolean isSequential() {
+        return false;
+    }
 }
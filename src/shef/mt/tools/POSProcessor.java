@@ -1,6 +1,7 @@
 package shef.mt.tools;
 
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import java.io.*;
 
 
@@ -79,9 +80,9 @@ public class POSProcessor {
         }
         //   bwXPos.newLine();
         contentWords = nounWords + verbWords + otherContentWords;
-        sent.setValue("contentWords", contentWords);
-        sent.setValue("nouns", nounWords);
-        sent.setValue("verbs", verbWords);
-        sent.setValue("prons", pronWords);
+        sent.setInt(SentenceKey.CONTENT_WORDS, contentWords);
+        sent.setInt(SentenceKey.NOUNS, nounWords);
+        sent.setInt(SentenceKey.VERBS, verbWords);
+        sent.setInt(SentenceKey.PRONS, pronWords);
     }
 }
@@ -8,15 +8,28 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import shef.mt.features.util.Doc;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
+import shef.mt.util.AnnotationReader;
 
 /**
- * Adds tag-related counts to the sentences processed.
+ * Adds tag-related counts to the sentences processed. The tags of each
+ * sentence are read from the one-line-per-sentence XPOS file written by the
+ * tagger next to its output, which is streamed once, in sentence order, or,
+ * when sentences are not read from files, tagged as they come by a running
+ * TreeTagger, which also attaches their word_tag_lemma tags. The sentences of
+ * a request are tagged together, streamed through the tagger once.
  * @author carol
  */
 public class POSTaggerProcessor extends ResourceProcessor {
     private String fileName;
+    private AnnotationReader<String> tags;
+    private TreeTaggerPool tagger;
+    private HashMap<Sentence, String> tagged = new HashMap<Sentence, String>();
 
     
     
@@ -24,16 +37,69 @@ public class POSTaggerProcessor extends ResourceProcessor {
         this.fileName=fileName;
     }
 
+    /**
+     * Creates a processor that tags each sentence itself.
+     *
+     * @param tagger the TreeTagger to tag sentences with
+     */
+    public POSTaggerProcessor(TreeTaggerPool tagger) {
+        this.tagger = tagger;
+    }
+
+    /**
+     * reads the tags of the next document from another tagger output
+     *
+     * @param input the tagger output of the document
+     */
+    @Override
+    public void startDocument(String input) {
+        if (tags != null) {
+            tags.close();
+            tags = null;
+        }
+        this.fileName = input;
+    }
+
+    /**
+     * tags the sentences of a request at once, if sentences are tagged as
+     * they come
+     */
+    @Override
+    public void startSentences(List<Sentence> sentences) {
+        if (tagger == null || sentences.isEmpty()) {
+            return;
+        }
+        ArrayList<String> texts = new ArrayList<String>(sentences.size());
+        for (Sentence sent : sentences) {
+            texts.add(sent.getText());
+        }
+        try {
+            ArrayList<ArrayList<String>> tokens = tagger.tag(texts);
+            for (int i = 0; i < sentences.size(); i++) {
+                tagged.put(sentences.get(i), this.attachTags(sentences.get(i), tokens.get(i)));
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
     @Override
     public void processNextSentence(Sentence sent) {
         int tokCount = sent.getNoTokens();
-        BufferedReader brPOSTagger;
         
         try {
-            brPOSTagger = new BufferedReader(new FileReader(fileName));
-            
-            
-            String line = brPOSTagger.readLine();
+            String line;
+            if (tagger != null) {
+                line = tagged.remove(sent);
+                if (line == null) {
+                    line = this.attachTags(sent, tagger.tag(sent.getText()));
+                }
+            } else {
+                if (tags == null) {
+                    tags = new AnnotationReader<String>(fileName + PosTagger.getXPOS(), AnnotationReader.LINES);
+                }
+                line = tags.get(sent.getIndex());
+            }
             
             int contentWords = 0;
             int nounWords = 0;
@@ -42,15 +108,18 @@ public class POSTaggerProcessor extends ResourceProcessor {
             int otherContentWords = 0;
             int count = 0;
 
-            while (line != null && (count < tokCount)) {
-                if (!line.trim().isEmpty()) {
-                    String[] split = line.split("\t");
-                    String tag = "";
-                    if (split.length > 1){
-                        tag = split[1];
-                    }
+            //Tags are separated by single spaces:
+            int start = 0;
+            int end = line == null ? 0 : line.length();
+            while (start < end && (count < tokCount)) {
+                int next = line.indexOf(' ', start);
+                if (next == -1) {
+                    next = end;
+                }
+                if (next > start) {
+                    String tag = line.substring(start, next);
                     if (tag.contains("SENT")) {
-                        tag = tag.split(" ")[0];
+                        //sentence ends are not counted
                     } else if (PosTagger.isNoun(tag)) {
                         nounWords++;
     //					System.out.println("is noun");
@@ -62,20 +131,19 @@ public class POSTaggerProcessor extends ResourceProcessor {
                     } else if (PosTagger.isAdditional(tag)) {
                         otherContentWords++;
                     }
-                    //    	  	bwXPos.write(tag);
                     count++;
                 }
-                line = brPOSTagger.readLine();
+                start = next + 1;
             }
             
             
             
             //   bwXPos.newLine();
             contentWords = nounWords + verbWords + otherContentWords;
-            sent.setValue("contentWords", contentWords);
-            sent.setValue("nouns", nounWords);
-            sent.setValue("verbs", verbWords);
-            sent.setValue("prons", pronWords);
+            sent.setInt(SentenceKey.CONTENT_WORDS, contentWords);
+            sent.setInt(SentenceKey.NOUNS, nounWords);
+            sent.setInt(SentenceKey.VERBS, verbWords);
+            sent.setInt(SentenceKey.PRONS, pronWords);
             
         } catch (FileNotFoundException ex) {
             ex.printStackTrace();
@@ -85,8 +153,35 @@ public class POSTaggerProcessor extends ResourceProcessor {
         }
     }
 
+    /**
+     * attaches the word_tag_lemma tags of a sentence from the tagger output
+     *
+     * @return the tags of the sentence, as a line of the XPOS file
+     */
+    private String attachTags(Sentence sent, ArrayList<String> tokens) {
+        StringBuilder line = new StringBuilder();
+        ArrayList<String> lemmaTags = new ArrayList<String>(tokens.size());
+        for (String token : tokens) {
+            String[] split = token.split("\t");
+            if (split.length > 1) {
+                line.append(split[1]).append(' ');
+                lemmaTags.add(split[0] + "_" + split[1] + "_" + (split.length > 2 ? split[2] : "<unknown>"));
+            }
+        }
+        sent.setTags(lemmaTags.toArray(new String[lemmaTags.size()]));
+        return line.toString();
+    }
+
     @Override
     public void processNextDocument(Doc source) {
+        if (tagger != null) {
+            //Tags are attached as sentences are tagged:
+            this.startSentences(source.getSentences());
+            for (int i = 0; i < source.getSentences().size(); i++) {
+                this.processNextSentence(source.getSentence(i));
+            }
+            return;
+        }
         try {
             BufferedReader brPOSTaggerLemma;
             brPOSTaggerLemma = new BufferedReader(new FileReader(fileName+".XPOS.lemm"));
@@ -95,8 +190,8 @@ public class POSTaggerProcessor extends ResourceProcessor {
                 
                 this.processNextSentence(source.getSentence(i));
                 //include tags for lemmmas
-                String[] tags = lemma.trim().split(":::");
-                source.getSentence(i).setTags(tags);
+                String[] lemmaTags = lemma.trim().split(":::");
+                source.getSentence(i).setTags(lemmaTags);
                 lemma = brPOSTaggerLemma.readLine();
                 
             }
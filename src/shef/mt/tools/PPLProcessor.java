@@ -5,6 +5,7 @@ package shef.mt.tools;
 
 import shef.mt.features.util.Doc;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import java.io.*;
 import java.util.ArrayList;
 
@@ -19,6 +20,7 @@ public class PPLProcessor extends ResourceProcessor {
 
     BufferedReader br;
     String[] valNames;
+    SentenceKey<Float>[] valKeys;
     String pplFile;
 
     public PPLProcessor(String pplFile, String[] valNames) {
@@ -26,6 +28,7 @@ public class PPLProcessor extends ResourceProcessor {
             br = new BufferedReader(new InputStreamReader(new FileInputStream(pplFile), "utf-8"));
             //                  System.out.println(br);
             this.valNames = valNames;
+            this.valKeys = SentenceKey.array(valNames);
             this.pplFile = pplFile;
         } catch (Exception e) {
             e.printStackTrace();
@@ -50,20 +53,20 @@ public class PPLProcessor extends ResourceProcessor {
             //values we are interested in are at positions 3,5,7
 //			System.out.println(line);
             if (values[3].equals("undefined")) {
-                s.setValue(valNames[0], 0.0f);
+                s.setFloat(valKeys[0], 0.0f);
             } else {
-                s.setValue(valNames[0], new Float(values[3]));
+                s.setFloat(valKeys[0], Float.parseFloat(values[3]));
             }
             if (valNames.length > 1) {
                 if (values[5].equals("undefined")) {
-                    s.setValue(valNames[1], 0.0f);
+                    s.setFloat(valKeys[1], 0.0f);
                 } else {
-                    s.setValue(valNames[1], new Float(values[5]));
+                    s.setFloat(valKeys[1], Float.parseFloat(values[5]));
                 }
                 if (values[7].equals("undefined")) {
-                    s.setValue(valNames[2], 0.0f);
+                    s.setFloat(valKeys[2], 0.0f);
                 } else {
-                    s.setValue(valNames[2], new Float(values[7]));
+                    s.setFloat(valKeys[2], Float.parseFloat(values[7]));
                 }
             }
         } catch (Exception e) {
@@ -72,6 +75,22 @@ public class PPLProcessor extends ResourceProcessor {
         }
     }
 
+    /**
+     * reads the perplexities of the next document from another file
+     *
+     * @param input the perplexity file of the document
+     */
+    @Override
+    public void startDocument(String input) {
+        close();
+        try {
+            br = new BufferedReader(new InputStreamReader(new FileInputStream(input), "utf-8"));
+            this.pplFile = input;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     public void close() {
         try {
             br.close();
@@ -103,20 +122,20 @@ public class PPLProcessor extends ResourceProcessor {
                 //values we are interested in are at positions 3,5,7
     //			System.out.println(line);
                 if (values[3].equals("undefined")) {
-                    sentences.get(i).setValue(valNames[0], 0.0f);
+                    sentences.get(i).setFloat(valKeys[0], 0.0f);
                 } else {
-                    sentences.get(i).setValue(valNames[0], new Float(values[3]));
+                    sentences.get(i).setFloat(valKeys[0], Float.parseFloat(values[3]));
                 }
                 if (valNames.length > 1) {
                     if (values[5].equals("undefined")) {
-                        sentences.get(i).setValue(valNames[1], 0.0f);
+                        sentences.get(i).setFloat(valKeys[1], 0.0f);
                     } else {
-                        sentences.get(i).setValue(valNames[1], new Float(values[5]));
+                        sentences.get(i).setFloat(valKeys[1], Float.parseFloat(values[5]));
                     }
                     if (values[7].equals("undefined")) {
-                        sentences.get(i).setValue(valNames[2], 0.0f);
+                        sentences.get(i).setFloat(valKeys[2], 0.0f);
                     } else {
-                        sentences.get(i).setValue(valNames[2], new Float(values[7]));
+                        sentences.get(i).setFloat(valKeys[2], Float.parseFloat(values[7]));
                     }
                 }
             } catch (Exception e) {
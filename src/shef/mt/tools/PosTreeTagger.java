@@ -1,7 +1,7 @@
 package shef.mt.tools;
 
 import java.io.*;
-import java.util.Scanner;
+import java.util.ArrayList;
 
 import shef.mt.util.Logger;
 
@@ -35,80 +35,42 @@ public class PosTreeTagger extends PosTagger {
                 ResourceManager.registerResource(lang + "PosTagger");
                 return output;
             }
-            String[] args = {path, input};
-            ProcessBuilder pb = new ProcessBuilder(args);
-
             Logger.log("Running TreeTagger...");
             System.out.println("Running treetagger...");
 
-            Process p = pb.start();
-            InputStream stderr = p.getErrorStream();
-            InputStream stdout = p.getInputStream();
             BufferedReader brIn = new BufferedReader(new FileReader(input));
             //BufferedReader brIn = new BufferedReader(new InputStreamReader(new FileInputStream(input), "UTF8"));
-            BufferedWriter bw = new BufferedWriter(new FileWriter(output));
-            BufferedWriter bwXPos = new BufferedWriter(new FileWriter(output + getXPOS()));
-            BufferedWriter bwPosLemm = new BufferedWriter(new FileWriter(output + getXPOS()+".lemm"));
-            BufferedReader brOut = new BufferedReader(new InputStreamReader(stdout));
-            String[] split;
-            String inputLine;
-            String line = "";
-            int tokCount = 0;
-            
-            //int lineCount = 0;
-
-            String completeLine;
-            while ((inputLine = brIn.readLine()) != null) {
-                //lineCount++;
-                tokCount = inputLine.split("\\s+").length;
-
-                //tree-tagger removes the icelandic "þ", so this is a fix for words with it:
-                String origLine = inputLine;
-                inputLine = inputLine.replaceAll("\\s+", "").replaceAll("þ", "");
-                completeLine = "";
-                while (completeLine.length() < inputLine.length() && (line = brOut.readLine()) != null) {
-                    split = line.split("\t");
-                    completeLine = completeLine + split[0].replaceAll(" ", "");
-                    
-                    if (!inputLine.startsWith(completeLine) || completeLine.length() > inputLine.length()) {
-                        System.err.println("Failed to synchronize with tree-tagger's output on input line " + origLine);
-                        
-                        //throw new Exception("Failed to synchronize with tree-tagger's output");
-                    }
-                    
-                    if (split.length > 1){
-                        bwXPos.write(split[1] + " ");
-                        bwPosLemm.write(split[0] + "_" + split[1] + "_" + split[2]+ ":::");
-                        
-                    }else{
-                        System.err.println("Tagger could not tag token "+split[0]+" in line: "+origLine);
+            final BufferedWriter bw = new BufferedWriter(new FileWriter(output));
+            final BufferedWriter bwXPos = new BufferedWriter(new FileWriter(output + getXPOS()));
+            final BufferedWriter bwPosLemm = new BufferedWriter(new FileWriter(output + getXPOS()+".lemm"));
+
+            //The tagger is kept running, and sentences are streamed through it:
+            try {
+                TreeTaggerPool.get(path).tag(brIn, new TreeTaggerPool.Listener() {
+                    @Override
+                    public void tagged(String sentence, ArrayList<String> tokens) throws IOException {
+                        for (String line : tokens) {
+                            String[] split = line.split("\t");
+                            if (split.length > 1) {
+                                bwXPos.write(split[1] + " ");
+                                bwPosLemm.write(split[0] + "_" + split[1] + "_" + (split.length > 2 ? split[2] : "<unknown>") + ":::");
+                            } else {
+                                System.err.println("Tagger could not tag token " + split[0] + " in line: " + sentence);
+                            }
+                            bw.write(line);
+                            bw.newLine();
+                        }
+                        bwXPos.newLine();
+                        bwPosLemm.newLine();
                     }
-                    bw.write(line);
-                    bw.newLine();
-                }
-                
-                bwXPos.newLine();
-                bwPosLemm.newLine();
-                if (line != null){ 
-                    bw.write(line);
-                
-                    bw.newLine();
-                }
-            }
-
-            brOut.close();
-            bw.close();
-            bwXPos.close();
-            bwPosLemm.close();
-
-            BufferedReader brCleanUp = new BufferedReader(new InputStreamReader(stderr));
-            while ((line = brCleanUp.readLine()) != null) {
-                System.out.println("[Stderr] " + line);
+                });
+            } finally {
+                brIn.close();
+                bw.close();
+                bwXPos.close();
+                bwPosLemm.close();
             }
-            brCleanUp.close();
 
-            p.waitFor();
-            Logger.log("TreeTagger exited with exit value " + p.exitValue());
             out = new File(output);
             if (out.exists()) {
                 ResourceManager.registerResource(lang + "PosTagger");
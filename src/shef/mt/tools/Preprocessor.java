@@ -0,0 +1,125 @@
+package shef.mt.tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import shef.mt.util.Logger;
+import shef.mt.util.PropertiesManager;
+
+/**
+ * Pre-processes the sentences of one side of the input in-process, as the
+ * -case and -tok options of the feature extractors do: sentences are
+ * lowercased or truecased first, then tokenised, with the same output as the
+ * Moses scripts run by Caser and Tokenizer. Sentences can be pre-processed
+ * one at a time, as they are read, or a whole file at once. Instances can be
+ * used from several threads at once.
+ *
+ * @author GustavoH
+ */
+public class Preprocessor {
+
+    private boolean lowercase;
+    private TrueCaser trueCaser;
+    private MosesTokenizer tokenizer;
+
+    /**
+     * @param lowercase whether to lowercase sentences
+     * @param trueCaser the truecaser of the language, or null not to truecase
+     * sentences
+     * @param tokenizer the tokenizer of the language, or null not to tokenise
+     * sentences
+     */
+    public Preprocessor(boolean lowercase, TrueCaser trueCaser, MosesTokenizer tokenizer) {
+        this.lowercase = lowercase;
+        this.trueCaser = trueCaser;
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * Creates the pre-processor of one side of the input from the
+     * configuration: the truecase model is given by [side].truecase.model, the
+     * language of the tokenizer by [side].tokenizer.lang and its non-breaking
+     * prefixes are found next to tools.tokenizer.path.
+     *
+     * @param resourceManager the configuration
+     * @param side "source" or "target"
+     * @param casing "lower", "true", or null not to change the case
+     * @param tok whether to tokenise sentences
+     * @return the pre-processor, or null if there is nothing to do
+     * @throws IOException if the model or the prefixes cannot be read
+     */
+    public static Preprocessor create(PropertiesManager resourceManager, String side, String casing, boolean tok) throws IOException {
+        boolean lowercase = false;
+        TrueCaser trueCaser = null;
+        MosesTokenizer tokenizer = null;
+        if ("lower".equals(casing)) {
+            lowercase = true;
+        } else if ("true".equals(casing)) {
+            trueCaser = new TrueCaser(resourceManager.getString(side + ".truecase.model"));
+        } else if (casing != null) {
+            System.out.println("Unknown casing " + casing + ", sentences will not be cased.");
+        }
+        if (tok) {
+            tokenizer = MosesTokenizer.forScript(resourceManager.getString("tools.tokenizer.path"),
+                    resourceManager.getString(side + ".tokenizer.lang"));
+        }
+        if (!lowercase && trueCaser == null && tokenizer == null) {
+            return null;
+        }
+        return new Preprocessor(lowercase, trueCaser, tokenizer);
+    }
+
+    /**
+     * pre-processes a sentence
+     *
+     * @param line the sentence, without its line break
+     * @return the pre-processed sentence
+     */
+    public String process(String line) {
+        if (lowercase) {
+            line = TrueCaser.lowercase(line);
+        } else if (trueCaser != null) {
+            line = trueCaser.truecase(line);
+        }
+        if (tokenizer != null) {
+            line = tokenizer.tokenize(line);
+        }
+        return line;
+    }
+
+    /**
+     * @return the extension of pre-processed files: .cased, .tok or both
+     */
+    public String getExtension() {
+        return (lowercase || trueCaser != null ? ".cased" : "") + (tokenizer != null ? ".tok" : "");
+    }
+
+    /**
+     * pre-processes the sentences of a file, one per line, into another file
+     *
+     * @param input the path of the file
+     * @param output the path of the pre-processed file
+     * @throws IOException if a file cannot be read or written
+     */
+    public void process(String input, String output) throws IOException {
+        long start = System.currentTimeMillis();
+        System.out.println("Pre-processing " + input + " into " + output);
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(input), "utf-8"));
+        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), "utf-8"));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                bw.write(this.process(line));
+                bw.newLine();
+            }
+        } finally {
+            br.close();
+            bw.close();
+        }
+        Logger.log("Finished pre-processing " + input + " in " + (System.currentTimeMillis() - start) / 1000f + " sec");
+    }
+}
@@ -34,4 +34,8 @@ public class PunctuationProcessor extends ResourceProcessor {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    @Override
+    public boolean isSequential() {
+        return false;
+    }
 }
@@ -3,6 +3,8 @@
  */
 package shef.mt.tools;
 
+import java.util.ArrayList;
+import java.util.List;
 import shef.mt.features.util.Sentence;
 import shef.mt.features.util.Doc;
 
@@ -17,4 +19,58 @@ public abstract class ResourceProcessor {
 
     public abstract void processNextSentence(Sentence source);
     public abstract void processNextDocument(Doc source);
+
+    /**
+     * Binds the processor to the next document of a document-level run.
+     * Models and tables are loaded once, when the processor is built, and are
+     * kept across documents; only what belongs to a single document, such as
+     * the file of values pre-computed for it or counts over its sentences, is
+     * replaced. Processors without per-document state do nothing.
+     *
+     * @param input the file of values pre-computed for the document, or null
+     * if the processor reads none
+     */
+    public void startDocument(String input) {
+    }
+
+    /**
+     * Receives the sentences of a request of a streaming run before they are
+     * processed one at a time, so that processors running an external tool
+     * can stream them all through it at once. Processors that work on each
+     * sentence by itself do nothing.
+     *
+     * @param sentences the sentences, in the order they are processed
+     */
+    public void startSentences(List<Sentence> sentences) {
+    }
+
+    /**
+     * Tells whether this processor must see the sentences one at a time and in
+     * input order, e.g. because it keeps a cursor over a pre-computed resource
+     * file. Processors that only attach shared, read-only resources to a
+     * sentence return false and can be run from several threads at once.
+     *
+     * @return true if the processor is stateful
+     */
+    public boolean isSequential() {
+        return true;
+    }
+
+    /**
+     * Selects the sequential or the non-sequential processors of a list,
+     * keeping their order.
+     *
+     * @param processors the processors to select from
+     * @param sequential whether to select sequential processors
+     * @return the selected processors
+     */
+    public static ResourceProcessor[] select(ResourceProcessor[] processors, boolean sequential) {
+        ArrayList<ResourceProcessor> result = new ArrayList<ResourceProcessor>();
+        for (ResourceProcessor processor : processors) {
+            if (processor.isSequential() == sequential) {
+                result.add(processor);
+            }
+        }
+        return result.toArray(new ResourceProcessor[result.size()]);
+    }
 }
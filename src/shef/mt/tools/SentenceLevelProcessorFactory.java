@@ -28,18 +28,61 @@ public class SentenceLevelProcessorFactory {
 
     private ResourceProcessor[][] resourceProcessors;
 
+    /**
+     * Resources produced by processors that read files computed in advance over
+     * the whole input, one line (or block) per sentence. They are not available
+     * when sentences are streamed to the extractor. Part-of-speech tags are
+     * not among them, as sentences are then tagged one at a time by a running
+     * tagger.
+     */
+    private static final String[] INPUT_FILE_RESOURCES = new String[]{
+        "source.lm", "target.lm", "target.poslm",
+        "source.topic.distribution", "target.topic.distribution",
+        "target.refTranslations", "alignments.file", "teralignment",
+        "rouge-n", "moses.xml", "target.mqm.abbreviation"};
+
     private FeatureExtractor fe;
 
+    private boolean streaming;
+
     public SentenceLevelProcessorFactory(FeatureExtractor fe) {
+        this(fe, false);
+    }
+
+    /**
+     * Creates the processors required by the features of a feature extractor.
+     *
+     * @param fe the feature extractor
+     * @param streaming true if sentences are not read from input files, in
+     * which case processors that depend on files computed over the input are
+     * not created
+     */
+    public SentenceLevelProcessorFactory(FeatureExtractor fe, boolean streaming) {
         //Setup initial instance of ResourceProcessor matrix:
         this.resourceProcessors = null;
 
         //Setup feature extractor:
         this.fe = fe;
+        this.streaming = streaming;
 
         //Get required resources:
         HashSet<String> requirements = fe.getFeatureManager().getRequiredResources();
 
+        //Discard resources that need the whole input in advance:
+        if (streaming) {
+            for (String resource : INPUT_FILE_RESOURCES) {
+                if (resource.equals("source.lm") || resource.equals("target.lm")) {
+                    //ARPA models are scored in memory, sentence by sentence:
+                    if (BackoffLanguageModel.canLoad(fe.getResourceManager().getString(resource))) {
+                        continue;
+                    }
+                }
+                if (requirements.remove(resource)) {
+                    System.out.println("Resource " + resource + " is not available in streaming mode.");
+                }
+            }
+        }
+
         //Allocate source and target processor vectors:
         ArrayList<ResourceProcessor> sourceProcessors = new ArrayList<ResourceProcessor>();
         ArrayList<ResourceProcessor> targetProcessors = new ArrayList<ResourceProcessor>();
@@ -136,24 +179,24 @@ public class SentenceLevelProcessorFactory {
         }
 
         if (requirements.contains("source.lm")) {
-            //Run SRILM on language models:
-            PPLProcessor pplProcSource = this.getSourceLMProcessor();
+            //Score sentences with language models:
+            ResourceProcessor pplProcSource = this.getSourceLMProcessor();
 
             //Add them to processor vectors:
             sourceProcessors.add(pplProcSource);
         }
         
         if (requirements.contains("target.lm")) {
-            //Run SRILM on language models:
-            PPLProcessor pplProcSource = this.getTargetLMProcessor();
+            //Score sentences with language models:
+            ResourceProcessor pplProcSource = this.getTargetLMProcessor();
 
             //Add them to processor vectors:
             targetProcessors.add(pplProcSource);
         }
 
         if (requirements.contains("target.poslm")) {
-            //Run SRILM on language models:
-            PPLProcessor pplProcTarget = this.getTargetPOSLMProcessor();
+            //Score sentences with language models:
+            ResourceProcessor pplProcTarget = this.getTargetPOSLMProcessor();
 
             //Add them to processor vectors:
             targetProcessors.add(pplProcTarget);
@@ -455,10 +498,17 @@ public class SentenceLevelProcessorFactory {
         return result;
     }
 
-    private PPLProcessor getSourceLMProcessor() {
+    private ResourceProcessor getSourceLMProcessor() {
         //Register resources:
         ResourceManager.registerResource("source.lm");
 
+        //Score ARPA models in memory:
+        String sourceARPA = this.fe.getResourceManager().getString("source.lm");
+        if (BackoffLanguageModel.canLoad(sourceARPA)) {
+            return new LMScoreProcessor(this.getBackoffLanguageModel(sourceARPA),
+                    new String[]{"logprob", "ppl", "ppl1"});
+        }
+
         //Generate output paths:
         String sourceOutput = this.fe.getSourceFile() + ".ppl";
 
@@ -482,10 +532,17 @@ public class SentenceLevelProcessorFactory {
         return pplProcSource;
     }
     
-    private PPLProcessor getTargetLMProcessor() {
+    private ResourceProcessor getTargetLMProcessor() {
         //Register resources:
         ResourceManager.registerResource("target.lm");
 
+        //Score ARPA models in memory:
+        String targetARPA = this.fe.getResourceManager().getString("target.lm");
+        if (BackoffLanguageModel.canLoad(targetARPA)) {
+            return new LMScoreProcessor(this.getBackoffLanguageModel(targetARPA),
+                    new String[]{"logprob", "ppl", "ppl1"});
+        }
+
         //Generate output paths:
         String targetOutput = this.fe.getTargetFile() + ".ppl";
 
@@ -509,10 +566,17 @@ public class SentenceLevelProcessorFactory {
         return pplProcTarget;
     }
 
-    private PPLProcessor getTargetPOSLMProcessor() {
+    private ResourceProcessor getTargetPOSLMProcessor() {
         //Register resources:
         ResourceManager.registerResource("target.poslm");
 
+        //Score ARPA models in memory:
+        String targetPOSARPA = this.fe.getResourceManager().getString("target.poslm");
+        if (BackoffLanguageModel.canLoad(targetPOSARPA)) {
+            return new LMScoreProcessor(this.getBackoffLanguageModel(targetPOSARPA),
+                    new String[]{"poslogprob", "posppl", "posppl1"}, this.fe.getTargetFile() + ".pos.XPOS");
+        }
+
         //Generate output paths:
         String targetOutput = this.fe.getTargetFile() + ".XPOS.ppl";
 
@@ -536,6 +600,15 @@ public class SentenceLevelProcessorFactory {
         return pplProcTarget;
     }
 
+    private BackoffLanguageModel getBackoffLanguageModel(String path) {
+        //Load language model with the same order SRILM is run with:
+        try {
+            return BackoffLanguageModel.load(path, 3);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not load language model " + path, ex);
+        }
+    }
+
     private LanguageModel getNGramModel(String path) {
         //Create ngram file processors:
         NGramProcessor ngp = new NGramProcessor(path);
@@ -642,6 +715,10 @@ public class SentenceLevelProcessorFactory {
 
     private POSTaggerProcessor getSourcePOSTaggerProcessor() {
         ResourceManager.registerResource("source.postagger");
+        if (this.streaming) {
+            //Tag each sentence as it comes:
+            return new POSTaggerProcessor(TreeTaggerPool.get(this.fe.getResourceManager().getString("source.postagger")));
+        }
         String posNameSource = "shef.mt.tools.PosTreeTagger";
         String outputPathSource = this.fe.getResourceManager().getProperty("input") + File.separator + this.fe.getSourceLang() + File.separator;
         File sourceFile = new File(this.fe.getSourceFile());
@@ -672,6 +749,10 @@ public class SentenceLevelProcessorFactory {
 
     private POSTaggerProcessor getTargetPOSTaggerProcessor() {
         ResourceManager.registerResource("target.postagger");
+        if (this.streaming) {
+            //Tag each sentence as it comes:
+            return new POSTaggerProcessor(TreeTaggerPool.get(this.fe.getResourceManager().getString("target.postagger")));
+        }
         String posNameTarget = "shef.mt.tools.PosTreeTagger";
         String outputPathTarget = this.fe.getResourceManager().getProperty("input") + File.separator + this.fe.getTargetLang() + File.separator;
         File targetFile = new File(this.fe.getTargetFile());
@@ -703,7 +784,12 @@ public class SentenceLevelProcessorFactory {
     private GizaProcessor getGizaProcessor() {
         ResourceManager.registerResource("Giza");
         ResourceManager.registerResource("giza.path");
-        FileModel fm = new FileModel(this.fe.getSourceFile(), this.fe.getResourceManager().getString("source.corpus"));
+        FileModel fm;
+        if (this.streaming) {
+            fm = new FileModel(this.fe.getResourceManager().getString("source.corpus"));
+        } else {
+            fm = new FileModel(this.fe.getSourceFile(), this.fe.getResourceManager().getString("source.corpus"));
+        }
         String gizaPath = this.fe.getResourceManager().getString("giza.path");
         GizaProcessor gizaProc = new GizaProcessor(gizaPath);
         return gizaProc;
@@ -776,12 +862,9 @@ public class SentenceLevelProcessorFactory {
         }
 
         //Create MTOutputProcessor:
-        String nbestSentPath = this.fe.getResourceManager().getString("input")
-                + File.separator + this.fe.getTargetLang() + File.separator + "temp";
-        String ngramExecPath = this.fe.getResourceManager().getString("tools.ngram.path");
         int ngramSize = Integer.parseInt(this.fe.getResourceManager().getString("ngramsize"));
 
-        MTOutputProcessor mtop = new MTOutputProcessor(xmlOut, nbestSentPath, ngramExecPath, ngramSize);
+        MTOutputProcessor mtop = new MTOutputProcessor(xmlOut, ngramSize);
 
         return mtop;
     }
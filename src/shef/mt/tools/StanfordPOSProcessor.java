@@ -13,6 +13,7 @@ import edu.stanford.nlp.semgraph.SemanticGraphEdge;
 import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.StringUtils;
 import shef.mt.features.util.Sentence;
+import shef.mt.features.util.SentenceKey;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -109,10 +110,10 @@ public class StanfordPOSProcessor {
 
         contentWords = nounWords + verbWords + otherContentWords;
 
-        sent.setValue("contentWords", contentWords);
-        sent.setValue("nouns", nounWords);
-        sent.setValue("verbs", verbWords);
-        sent.setValue("prons", pronWords);
+        sent.setInt(SentenceKey.CONTENT_WORDS, contentWords);
+        sent.setInt(SentenceKey.NOUNS, nounWords);
+        sent.setInt(SentenceKey.VERBS, verbWords);
+        sent.setInt(SentenceKey.PRONS, pronWords);
     }
 
     public ArrayList<String> tagSentence(Sentence s) {
@@ -47,4 +47,8 @@ public class StopWordsProcessor extends ResourceProcessor {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    @Override
+    public boolean isSequential() {
+        return false;
+    }
 }
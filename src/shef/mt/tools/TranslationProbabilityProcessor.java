@@ -80,4 +80,9 @@ public class TranslationProbabilityProcessor extends ResourceProcessor {
     public void processNextDocument(Doc source) {
         throw new UnsupportedOperationException("Not supported yet.");
     }
+
+    @Override
+    public boolean isSequential() {
+        return false;
+    }
 }
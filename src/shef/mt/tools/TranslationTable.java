@@ -0,0 +1,84 @@
+package shef.mt.tools;
+
+/**
+ * A lexical translation table, such as a giza <code>lex.e2s</code> file,
+ * indexed by source word. The translations of each source word are entries
+ * sorted by decreasing probability, so that the translations of a word above a
+ * threshold are a prefix of its entries, and the number of translations above
+ * each of a fixed set of thresholds is counted once. <br> HeapTranslationTable
+ * builds the index in memory and MappedTranslationTable reads the same index
+ * from a binary file.
+ *
+ * @author GustavoH
+ */
+abstract class TranslationTable {
+
+    /**
+     * @return the probabilities for which the number of translations of each
+     * source word with a higher probability is counted
+     */
+    abstract float[] getThresholds();
+
+    /**
+     * returns the id of a source word, or -1 if it has no translations
+     */
+    abstract int getSourceId(String word);
+
+    /**
+     * returns the id of a target word, or -1 if it is not a translation
+     */
+    abstract int getTargetId(String word);
+
+    abstract int getSourceCount();
+
+    abstract String getSource(int sourceId);
+
+    abstract int getTargetCount();
+
+    abstract String getTarget(int targetId);
+
+    /**
+     * @return the first entry of the translations of a source word
+     */
+    abstract int start(int sourceId);
+
+    /**
+     * @return the entry after the last translation of a source word
+     */
+    abstract int end(int sourceId);
+
+    abstract int getEntryCount();
+
+    abstract int getTargetId(int entry);
+
+    abstract float getProbability(int entry);
+
+    /**
+     * returns the number of translations of a source word with a probability
+     * higher than one of the thresholds
+     *
+     * @param sourceId the id of the source word
+     * @param threshold the index of the threshold
+     */
+    abstract int getCount(int sourceId, int threshold);
+
+    /**
+     * returns the entry of a pair of source and target word ids, or -1 if the
+     * pair is not in the table
+     */
+    abstract int getEntry(int sourceId, int targetId);
+
+    /**
+     * returns the probability of a source word being translated as a target
+     * word, or 0 if the pair is not in the table
+     */
+    float getProbability(String source, String target) {
+        int sourceId = getSourceId(source);
+        int targetId = getTargetId(target);
+        if (sourceId == -1 || targetId == -1) {
+            return 0;
+        }
+        int entry = getEntry(sourceId, targetId);
+        return entry == -1 ? 0 : getProbability(entry);
+    }
+}
@@ -0,0 +1,384 @@
+package shef.mt.tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import shef.mt.util.Logger;
+import shef.mt.util.StreamGobbler;
+
+/**
+ * Keeps TreeTagger running between uses. A TreeTagger executable is started
+ * once, reading sentences from its standard input for as long as the program
+ * runs, instead of once per input file or document. Several processes of the
+ * same executable are started only if it is used by several threads at once.
+ * <br> Each sentence is written on a line of its own and followed by an
+ * end-of-sentence SGML tag, which TreeTagger passes through untagged, so the
+ * output is split into sentences by the tag rather than by matching the
+ * output tokens against the input. Sentences are written from another thread
+ * while their output is read, so a file or a list of sentences is streamed
+ * through the tagger once. The TreeTagger scripts are pipelines whose stages
+ * buffer their output, so once the input is exhausted a batch of flush tags,
+ * larger than the buffers of the pipeline, is written to push the last
+ * sentences through. Flush tags are skipped wherever they appear in the
+ * output.
+ *
+ * @author GustavoH
+ */
+public class TreeTaggerPool {
+
+    /**
+     * Receives the tagger output of the sentences of a file, in order.
+     */
+    public interface Listener {
+
+        /**
+         * @param sentence the input line
+         * @param tokens the output lines of the sentence, one per token, with
+         * tab-separated word, tag and lemma
+         */
+        void tagged(String sentence, ArrayList<String> tokens) throws IOException;
+    }
+
+    private static final String END_OF_SENTENCE = "<quest-eos/>";
+    private static final String FLUSH = "<quest-flush/>";
+    //Flush tags written after the input, about 64Kb, more than the pipeline buffers:
+    private static final int FLUSH_LINES = 65536 / (FLUSH.length() + 1);
+
+    private static final HashMap<String, TreeTaggerPool> pools = new HashMap<String, TreeTaggerPool>();
+
+    private String path;
+    private ArrayList<Tagger> idle;
+    private ArrayList<Tagger> running;
+
+    private TreeTaggerPool(String path) {
+        this.path = path;
+        idle = new ArrayList<Tagger>();
+        running = new ArrayList<Tagger>();
+    }
+
+    /**
+     * Returns the pool of processes of a TreeTagger executable.
+     *
+     * @param path the path of the executable, which reads text from its
+     * standard input
+     * @return the pool, shared by all the users of the executable
+     */
+    public static TreeTaggerPool get(String path) {
+        synchronized (pools) {
+            TreeTaggerPool pool = pools.get(path);
+            if (pool == null) {
+                if (pools.isEmpty()) {
+                    Runtime.getRuntime().addShutdownHook(new Thread("TreeTaggerPool shutdown") {
+                        @Override
+                        public void run() {
+                            closeAll();
+                        }
+                    });
+                }
+                pool = new TreeTaggerPool(path);
+                pools.put(path, pool);
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * stops the processes of all pools
+     */
+    public static void closeAll() {
+        synchronized (pools) {
+            for (TreeTaggerPool pool : pools.values()) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * stops the processes of the pool; they are started again when needed
+     */
+    public synchronized void close() {
+        for (Tagger tagger : running) {
+            tagger.close();
+        }
+        running.clear();
+        idle.clear();
+    }
+
+    private synchronized Tagger acquire() throws IOException {
+        if (!idle.isEmpty()) {
+            return idle.remove(idle.size() - 1);
+        }
+        Tagger tagger = new Tagger(path);
+        running.add(tagger);
+        return tagger;
+    }
+
+    private synchronized void release(Tagger tagger, boolean reusable) {
+        if (reusable) {
+            idle.add(tagger);
+        } else {
+            running.remove(tagger);
+            tagger.close();
+        }
+    }
+
+    /**
+     * Tags a sentence.
+     *
+     * @param sentence the sentence, tokenised or not
+     * @return the output lines of the sentence, one per token, with
+     * tab-separated word, tag and lemma
+     * @throws IOException if the tagger cannot be run
+     */
+    public ArrayList<String> tag(String sentence) throws IOException {
+        return tag(Collections.singletonList(sentence)).get(0);
+    }
+
+    /**
+     * Tags a list of sentences, which are streamed through the tagger once.
+     *
+     * @param sentences the sentences, tokenised or not
+     * @return the output lines of each sentence, one per token, with
+     * tab-separated word, tag and lemma
+     * @throws IOException if the tagger cannot be run
+     */
+    public ArrayList<ArrayList<String>> tag(List<String> sentences) throws IOException {
+        final Iterator<String> iterator = sentences.iterator();
+        final ArrayList<ArrayList<String>> result = new ArrayList<ArrayList<String>>(sentences.size());
+        stream(new Input() {
+            @Override
+            public String next() {
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+        }, new Listener() {
+            @Override
+            public void tagged(String sentence, ArrayList<String> tokens) {
+                result.add(tokens);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Tags the sentences of a file, one per line, which are streamed through
+     * the tagger once.
+     *
+     * @param input the file
+     * @param listener receives the output of each sentence
+     * @throws IOException if the file cannot be read or the tagger cannot be
+     * run
+     */
+    public void tag(final BufferedReader input, Listener listener) throws IOException {
+        stream(new Input() {
+            @Override
+            public String next() throws IOException {
+                return input.readLine();
+            }
+        }, listener);
+    }
+
+    /**
+     * A source of sentences, read by the thread that writes them to the
+     * tagger.
+     */
+    private interface Input {
+
+        /**
+         * @return the next sentence, or null at the end of the input
+         */
+        String next() throws IOException;
+    }
+
+    /**
+     * Writes sentences to the tagger from another thread, followed by flush
+     * tags once the input is exhausted, while their output is read.
+     */
+    private void stream(final Input input, Listener listener) throws IOException {
+        final Tagger tagger = acquire();
+        final LinkedBlockingQueue<Object> sentences = new LinkedBlockingQueue<Object>();
+        final Object end = new Object();
+        Thread writer = new Thread("TreeTagger input " + path) {
+            @Override
+            public void run() {
+                try {
+                    String line;
+                    while ((line = input.next()) != null) {
+                        sentences.put(line);
+                        tagger.write(line);
+                    }
+                    tagger.flush();
+                    sentences.put(end);
+                } catch (IOException e) {
+                    sentences.add(e);
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+
+        boolean reusable = false;
+        try {
+            while (true) {
+                Object next = sentences.take();
+                if (next == end) {
+                    break;
+                } else if (next instanceof IOException) {
+                    throw (IOException) next;
+                }
+                String sentence = (String) next;
+                ArrayList<String> tokens = tagger.read();
+                checkAlignment(sentence, tokens);
+                listener.tagged(sentence, tokens);
+            }
+            reusable = true;
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } finally {
+            writer.interrupt();
+            release(tagger, reusable);
+        }
+    }
+
+    /**
+     * Checks, in a single pass, that the words of the tagger output spell the
+     * sentence, ignoring spaces and the "þ" that TreeTagger removes.
+     */
+    private static void checkAlignment(String sentence, ArrayList<String> tokens) {
+        int position = 0;
+        boolean aligned = true;
+        for (int t = 0; t < tokens.size() && aligned; t++) {
+            String token = tokens.get(t);
+            int tab = token.indexOf('\t');
+            int end = tab == -1 ? token.length() : tab;
+            for (int i = 0; i < end && aligned; i++) {
+                char c = token.charAt(i);
+                if (c == ' ') {
+                    continue;
+                }
+                position = skipIgnored(sentence, position);
+                aligned = position < sentence.length() && sentence.charAt(position) == c;
+                position++;
+            }
+        }
+        if (!aligned || skipIgnored(sentence, position) != sentence.length()) {
+            System.err.println("Failed to synchronize with tree-tagger's output on input line " + sentence);
+        }
+    }
+
+    private static int skipIgnored(String sentence, int position) {
+        while (position < sentence.length()
+                && (Character.isWhitespace(sentence.charAt(position)) || sentence.charAt(position) == 'þ')) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * A running TreeTagger process, whose output lines are read ahead into a
+     * queue.
+     */
+    private static class Tagger {
+
+        private static final Object END = new Object();
+
+        private Process process;
+        private BufferedWriter in;
+        private LinkedBlockingQueue<Object> lines;
+
+        Tagger(String path) throws IOException {
+            Logger.log("Starting TreeTagger " + path);
+            System.out.println("Starting TreeTagger " + path);
+            process = new ProcessBuilder(path).start();
+            in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+            lines = new LinkedBlockingQueue<Object>();
+            final BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            Thread reader = new Thread("TreeTagger output " + path) {
+                @Override
+                public void run() {
+                    try {
+                        String line;
+                        while ((line = out.readLine()) != null) {
+                            lines.add(line);
+                        }
+                    } catch (IOException e) {
+                    } finally {
+                        lines.add(END);
+                    }
+                }
+            };
+            reader.setDaemon(true);
+            reader.start();
+            StreamGobbler errors = new StreamGobbler(process.getErrorStream(), "TreeTagger", true);
+            errors.setDaemon(true);
+            errors.start();
+        }
+
+        synchronized void write(String sentence) throws IOException {
+            in.write(sentence);
+            in.newLine();
+            in.write(END_OF_SENTENCE);
+            in.newLine();
+            in.flush();
+        }
+
+        synchronized void flush() throws IOException {
+            for (int i = 0; i < FLUSH_LINES; i++) {
+                in.write(FLUSH);
+                in.newLine();
+            }
+            in.flush();
+        }
+
+        /**
+         * reads the output lines of the next sentence
+         */
+        ArrayList<String> read() throws IOException {
+            ArrayList<String> tokens = new ArrayList<String>();
+            while (true) {
+                Object next;
+                try {
+                    next = lines.take();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                if (next == END) {
+                    lines.add(END);
+                    throw new IOException("TreeTagger exited before tagging all sentences");
+                }
+                String line = (String) next;
+                //Tags are passed through, or tagged as words by taggers run without -sgml:
+                if (isTag(line, END_OF_SENTENCE)) {
+                    return tokens;
+                } else if (!isTag(line, FLUSH)) {
+                    tokens.add(line);
+                }
+            }
+        }
+
+        private static boolean isTag(String line, String tag) {
+            return line.startsWith(tag) && (line.length() == tag.length() || line.charAt(tag.length()) == '\t');
+        }
+
+        void close() {
+            try {
+                in.close();
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+                Logger.log("TreeTagger exited with exit value " + process.exitValue());
+            } catch (Exception e) {
+                process.destroy();
+            }
+        }
+    }
+}
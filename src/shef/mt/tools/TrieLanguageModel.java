@@ -0,0 +1,503 @@
+package shef.mt.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import shef.mt.util.LongIntMap;
+
+/**
+ * A back-off language model compiled from an ARPA file into a binary trie,
+ * which is memory-mapped instead of being loaded on the heap. The model is
+ * compiled once by running this class:
+ * <pre>
+ * java shef.mt.tools.TrieLanguageModel english.lm english.lm.trie [bits]
+ * </pre> and the compiled file can then be given instead of the ARPA file as
+ * source.lm, target.lm or target.poslm.<br> Unigrams are stored with full
+ * precision, indexed by word id. The ngrams of each larger size are sorted by
+ * their prefix and then by the id of their last word, so that the children of
+ * an ngram form a contiguous range that is searched by binary search. Each of
+ * these ngrams is a bit-packed record holding its word id, its quantized
+ * probability and back-off weight and the position of its first child; the
+ * quantization tables have 2^bits values (8 bits by default). Sentence scores
+ * are computed as in BackoffLanguageModel, so they differ from SRILM's only by
+ * the quantization error. The ngrams of each size are mapped as one section,
+ * which must be smaller than 2GB.
+ *
+ * @author GustavoH
+ */
+public class TrieLanguageModel extends BackoffLanguageModel {
+
+    private static final int MAGIC = 0x514C4D54;
+    private static final int VERSION = 1;
+
+    private MappedVocabulary vocabulary;
+    private MappedByteBuffer unigrams;
+    private Level[] levels;
+
+    /**
+     * The bit-packed ngrams of one size.
+     */
+    private static class Level {
+
+        private MappedByteBuffer data;
+        private int count;
+        private int wordBits;
+        private int probBits;
+        private int bowBits;
+        private int pointerBits;
+        private int entryBits;
+        private float[] probCodes;
+        private float[] bowCodes;
+
+        private int read(int i, int offset, int bits) {
+            //Sections are smaller than 2GB, so byte positions fit in an int:
+            long bit = (long) i * entryBits + offset;
+            long value = data.getLong((int) (bit >>> 3)) >>> (bit & 7);
+            return (int) (value & ((1L << bits) - 1));
+        }
+
+        int word(int i) {
+            return read(i, 0, wordBits);
+        }
+
+        float prob(int i) {
+            return probCodes[read(i, wordBits, probBits)];
+        }
+
+        float bow(int i) {
+            return bowCodes[read(i, wordBits + probBits, bowBits)];
+        }
+
+        int pointer(int i) {
+            return read(i, wordBits + probBits + bowBits, pointerBits);
+        }
+
+        /**
+         * @return the position of the ngram ending with word among the
+         * positions begin to end-1, or -1 if it is not there
+         */
+        int find(int begin, int end, int word) {
+            int low = begin;
+            int high = end - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int current = word(middle);
+                if (current < word) {
+                    low = middle + 1;
+                } else if (current > word) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * maps a compiled language model
+     *
+     * @param path the path of the compiled model
+     * @param maxOrder ngrams longer than this are ignored; 0 to use every
+     * ngram
+     * @throws IOException if the file cannot be read or is not a compiled
+     * model
+     */
+    public TrieLanguageModel(String path, int maxOrder) throws IOException {
+        System.out.println("Mapping language model " + path + "...");
+        long start = System.currentTimeMillis();
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+                throw new IOException(path + " is not a compiled language model.");
+            }
+            int fileOrder = file.readInt();
+            order = maxOrder > 0 ? Math.min(maxOrder, fileOrder) : fileOrder;
+
+            //Map vocabulary and unigrams:
+            vocabulary = new MappedVocabulary(file, file.getFilePointer());
+            long position = vocabulary.getEnd();
+            unigrams = MappedVocabulary.map(channel, position, (vocabulary.size() + 1) * 12L);
+            position += (vocabulary.size() + 1) * 12L;
+
+            //Map larger ngrams:
+            levels = new Level[order];
+            for (int size = 2; size <= order; size++) {
+                file.seek(position);
+                Level level = new Level();
+                level.count = file.readInt();
+                level.wordBits = file.readInt();
+                level.probBits = file.readInt();
+                level.bowBits = file.readInt();
+                level.pointerBits = file.readInt();
+                level.entryBits = level.wordBits + level.probBits + level.bowBits + level.pointerBits;
+                level.probCodes = readCodes(file, level.probBits);
+                level.bowCodes = readCodes(file, level.bowBits);
+                long length = file.readLong();
+                position = file.getFilePointer();
+                level.data = MappedVocabulary.map(channel, position, length);
+                level.data.order(ByteOrder.LITTLE_ENDIAN);
+                position += length;
+                levels[size - 1] = level;
+            }
+        } finally {
+            file.close();
+        }
+        bosId = vocabulary.get("<s>", 0, 3);
+        eosId = vocabulary.get("</s>", 0, 4);
+        unkId = vocabulary.get("<unk>", 0, 5);
+        System.out.println("Language model mapped in " + (System.currentTimeMillis() - start) / 1000F + " sec");
+    }
+
+    private static float[] readCodes(RandomAccessFile file, int bits) throws IOException {
+        if (bits == 0) {
+            return new float[]{0};
+        }
+        float[] result = new float[1 << bits];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = file.readFloat();
+        }
+        return result;
+    }
+
+    /**
+     * @param path the path of a file
+     * @return true if the file is a language model compiled by this class
+     */
+    public static boolean isTrie(String path) {
+        if (path == null) {
+            return false;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(path));
+            try {
+                return in.readInt() == MAGIC;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private float unigramProb(int word) {
+        return unigrams.getFloat(word * 12);
+    }
+
+    private float unigramBow(int word) {
+        return unigrams.getFloat(word * 12 + 4);
+    }
+
+    private int unigramChild(int word) {
+        return unigrams.getInt(word * 12 + 8);
+    }
+
+    @Override
+    protected int getWordId(String text, int start, int end) {
+        int id = vocabulary.get(text, start, end);
+        if (id == -1 || Float.isNaN(unigramProb(id))) {
+            return -1;
+        }
+        return id;
+    }
+
+    @Override
+    protected float getProb(int[] words, int position, int maxOrder) {
+        int word = words[position];
+        if (word < 0) {
+            return Float.NaN;
+        }
+        float backoff = 0;
+        for (int context = Math.min(maxOrder - 1, position); context > 0; context--) {
+            //Find the context, starting from its first word:
+            int node = words[position - context];
+            if (node < 0) {
+                continue;
+            }
+            int begin = unigramChild(node);
+            int end = unigramChild(node + 1);
+            for (int j = 1; j < context && node != -1; j++) {
+                int next = words[position - context + j];
+                node = next < 0 ? -1 : levels[j].find(begin, end, next);
+                if (node != -1) {
+                    begin = levels[j].pointer(node);
+                    end = levels[j].pointer(node + 1);
+                }
+            }
+            if (node == -1) {
+                continue;
+            }
+
+            //Look for the word among the children of the context:
+            int found = levels[context].find(begin, end, word);
+            if (found != -1) {
+                float prob = levels[context].prob(found);
+                if (!Float.isNaN(prob)) {
+                    return backoff + prob;
+                }
+            }
+            backoff += context == 1 ? unigramBow(node) : levels[context - 1].bow(node);
+        }
+        return backoff + unigramProb(word);
+    }
+
+    /**
+     * Writes a language model loaded from an ARPA file as a binary trie.
+     *
+     * @param lm the language model
+     * @param path the path of the compiled model
+     * @param bits the number of bits of the quantized probabilities and
+     * back-off weights, between 1 and 16
+     * @throws IOException if the file cannot be written
+     */
+    public static void compile(ArpaLanguageModel lm, String path, int bits) throws IOException {
+        int order = lm.getOrder();
+        int vocabSize = lm.getVocabulary().size();
+
+        //Sort the ngrams of each size by prefix position and word id:
+        int[][] positionToId = new int[order + 1][];
+        int[][] idToPosition = new int[order + 1][];
+        long[][] sorted = new long[order + 1][];
+        positionToId[1] = new int[vocabSize];
+        idToPosition[1] = new int[vocabSize];
+        for (int id = 0; id < vocabSize; id++) {
+            positionToId[1][id] = id;
+            idToPosition[1][id] = id;
+        }
+        for (int size = 2; size <= order; size++) {
+            LongIntMap ids = lm.getNGramIds(size);
+            long[] keys = new long[ids.size()];
+            int n = 0;
+            for (int slot = 0; slot < ids.capacity(); slot++) {
+                if (ids.isUsed(slot)) {
+                    long key = ids.keyAt(slot);
+                    int prefix = (int) (key >>> 32);
+                    int word = (int) key;
+                    keys[n++] = ((long) idToPosition[size - 1][prefix] << 32) | word;
+                }
+            }
+            Arrays.sort(keys);
+            sorted[size] = keys;
+            positionToId[size] = new int[keys.length];
+            idToPosition[size] = new int[lm.getIdCount(size)];
+            for (int i = 0; i < keys.length; i++) {
+                int prefix = positionToId[size - 1][(int) (keys[i] >>> 32)];
+                int id = ids.get(LanguageModel.pack(prefix, (int) keys[i]), -1);
+                positionToId[size][i] = id;
+                idToPosition[size][id] = i;
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(order);
+            MappedVocabulary.write(out, lm.getVocabulary());
+
+            //Write unigrams, with the position of their first child:
+            int[] children = firstChildren(sorted, 2, vocabSize);
+            float[] probs = lm.getProbs(1);
+            float[] bows = lm.getBows(1);
+            int unigramCount = lm.getIdCount(1);
+            for (int id = 0; id < vocabSize; id++) {
+                out.writeFloat(id < unigramCount ? probs[id] : Float.NaN);
+                out.writeFloat(id < unigramCount ? bows[id] : 0);
+                out.writeInt(children[id]);
+            }
+            out.writeFloat(Float.NaN);
+            out.writeFloat(0);
+            out.writeInt(children[vocabSize]);
+
+            //Write larger ngrams:
+            for (int size = 2; size <= order; size++) {
+                boolean highest = size == order;
+                int count = sorted[size].length;
+                probs = lm.getProbs(size);
+                bows = lm.getBows(size);
+                children = highest ? null : firstChildren(sorted, size + 1, count);
+
+                int wordBits = bitsFor(vocabSize);
+                int bowBits = highest ? 0 : bits;
+                int pointerBits = highest ? 0 : bitsFor(children[count] + 1);
+                float[] probCodes = quantize(probs, positionToId[size], bits, false);
+                float[] bowCodes = highest ? new float[]{0} : quantize(bows, positionToId[size], bits, true);
+
+                int entries = highest ? count : count + 1;
+                int entryBits = wordBits + bits + bowBits + pointerBits;
+                long words = ((long) entries * entryBits + 63) / 64 + 1;
+                if (words * 8 > Integer.MAX_VALUE) {
+                    throw new IOException("The " + count + " " + size + "-grams take " + words * 8
+                            + " bytes, more than the 2GB that can be mapped; compile them with fewer bits.");
+                }
+                long[] data = new long[(int) words];
+                long bit = 0;
+                for (int i = 0; i < entries; i++) {
+                    if (i < count) {
+                        int id = positionToId[size][i];
+                        bit = write(data, bit, (int) sorted[size][i], wordBits);
+                        bit = write(data, bit, Float.isNaN(probs[id]) ? probCodes.length - 1 : encode(probCodes, probs[id], 0, probCodes.length - 1), bits);
+                        if (!highest) {
+                            bit = write(data, bit, bows[id] == 0 ? 0 : encode(bowCodes, bows[id], 1, bowCodes.length), bowBits);
+                        }
+                    } else {
+                        bit = write(data, bit, 0, wordBits);
+                        bit = write(data, bit, probCodes.length - 1, bits);
+                        bit = write(data, bit, 0, bowBits);
+                    }
+                    if (!highest) {
+                        bit = write(data, bit, children[i], pointerBits);
+                    }
+                }
+
+                out.writeInt(count);
+                out.writeInt(wordBits);
+                out.writeInt(bits);
+                out.writeInt(bowBits);
+                out.writeInt(pointerBits);
+                for (float code : probCodes) {
+                    out.writeFloat(code);
+                }
+                if (bowBits > 0) {
+                    for (float code : bowCodes) {
+                        out.writeFloat(code);
+                    }
+                }
+                out.writeLong(data.length * 8L);
+                for (long word : data) {
+                    out.writeLong(Long.reverseBytes(word));
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return for each of the parentCount ngrams of size-1, the position of
+     * its first child among the sorted ngrams of the given size, followed by
+     * the number of ngrams of that size
+     */
+    private static int[] firstChildren(long[][] sorted, int size, int parentCount) {
+        int[] result = new int[parentCount + 1];
+        if (size < sorted.length) {
+            for (long key : sorted[size]) {
+                result[(int) (key >>> 32) + 1]++;
+            }
+        }
+        for (int i = 0; i < parentCount; i++) {
+            result[i + 1] += result[i];
+        }
+        return result;
+    }
+
+    private static int bitsFor(int values) {
+        int result = 1;
+        while (result < 31 && (1L << result) < values) {
+            result++;
+        }
+        return result;
+    }
+
+    private static long write(long[] data, long bit, int value, int bits) {
+        if (bits == 0) {
+            return bit;
+        }
+        long masked = value & ((1L << bits) - 1);
+        int index = (int) (bit >>> 6);
+        int offset = (int) (bit & 63);
+        data[index] |= masked << offset;
+        if (offset + bits > 64) {
+            data[index + 1] |= masked >>> (64 - offset);
+        }
+        return bit + bits;
+    }
+
+    /**
+     * Builds a quantization table with 2^bits values. Values are split into
+     * bins holding the same number of values, each represented by its mean.
+     * For probabilities, the last value of the table stands for the prefixes
+     * that are not ngrams of the model; for back-off weights, the first value
+     * is 0.
+     */
+    private static float[] quantize(float[] values, int[] ids, int bits, boolean backoff) {
+        float[] present = new float[ids.length];
+        int n = 0;
+        for (int id : ids) {
+            if (!Float.isNaN(values[id]) && !(backoff && values[id] == 0)) {
+                present[n++] = values[id];
+            }
+        }
+        Arrays.sort(present, 0, n);
+        float[] result = new float[1 << bits];
+        int first = backoff ? 1 : 0;
+        int bins = result.length - 1;
+        for (int b = 0; b < bins; b++) {
+            int from = (int) ((long) n * b / bins);
+            int to = (int) ((long) n * (b + 1) / bins);
+            if (to > from) {
+                double sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += present[i];
+                }
+                result[first + b] = (float) (sum / (to - from));
+            } else {
+                result[first + b] = n == 0 ? 0 : present[Math.min(from, n - 1)];
+            }
+        }
+        if (backoff) {
+            result[0] = 0;
+        } else {
+            result[bins] = Float.NaN;
+        }
+        return result;
+    }
+
+    /**
+     * @return the position of the value closest to value among the sorted
+     * values codes[from] to codes[to-1]
+     */
+    private static int encode(float[] codes, float value, int from, int to) {
+        int low = from;
+        int high = to - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (codes[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low > from && Math.abs(codes[low - 1] - value) <= Math.abs(codes[low] - value)) {
+            return low - 1;
+        }
+        return low;
+    }
+
+    /**
+     * compiles an ARPA file into a binary trie
+     *
+     * @param args the ARPA file, the path of the compiled model and,
+     * optionally, the number of bits of the quantized values
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: TrieLanguageModel <ARPA file> <compiled model> [<bits>]");
+            return;
+        }
+        int bits = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        ArpaLanguageModel lm = new ArpaLanguageModel(args[0], 0);
+        long start = System.currentTimeMillis();
+        compile(lm, args[1], bits);
+        System.out.println("Compiled model written to " + args[1] + " in " + (System.currentTimeMillis() - start) / 1000F + " sec");
+    }
+}
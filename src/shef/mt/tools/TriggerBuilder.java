@@ -0,0 +1,530 @@
+package shef.mt.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import shef.mt.util.Logger;
+import shef.mt.util.LongIntMap;
+import shef.mt.util.Vocabulary;
+
+/**
+ * Builds a word triggers file from a source and a target corpus, as
+ * Triggers.buildTriggers. <br> Words are interned to ids and the distinct
+ * words of each line are found while the corpora are read. Lines are then
+ * handed in batches to counting threads, which count the (source word, target
+ * word) pairs of their lines in primitive hash tables. When a table reaches
+ * its share of the memory budget it is written to disk as a run sorted by
+ * pair, so the counts never have to fit in memory. The runs are merged, and
+ * the mutual information of the pairs of each source word is computed and its
+ * best triggers selected while the merged counts are read, so that only the
+ * pairs of one source word are held at a time.
+ *
+ * @author GustavoH
+ */
+class TriggerBuilder {
+
+    private static final int BATCH_LINES = 1 << 12;
+    private static final Batch END = new Batch();
+
+    private String filePathOut;
+    private int nbMaxTriggers;
+    private boolean mono;
+    private int pairsPerCounter;
+
+    private Vocabulary sources;
+    private Vocabulary targets;
+    private int[] sourceCounts;
+    private int[] targetCounts;
+    private int nblines;
+
+    private final ArrayList<File> runs = new ArrayList<File>();
+
+    /**
+     * @param filePathOut the triggers file, next to which the runs are written
+     * @param nbMaxTriggers the number of triggers kept for each source word,
+     * or -1 to keep all of them
+     * @param mono whether source and target are the same corpus, in which
+     * case a word does not trigger itself
+     * @param threads the number of counting threads
+     * @param memory the number of bytes the counts of all threads may take
+     */
+    TriggerBuilder(String filePathOut, int nbMaxTriggers, boolean mono, int threads, long memory) {
+        this.filePathOut = filePathOut;
+        this.nbMaxTriggers = nbMaxTriggers;
+        this.mono = mono;
+        //A pair takes about 32 bytes in a hash table and 12 more when sorted:
+        this.pairsPerCounter = (int) Math.max(1 << 16, Math.min(1 << 28, memory / threads / 44));
+        sources = new Vocabulary(1 << 16);
+        targets = mono ? sources : new Vocabulary(1 << 16);
+        sourceCounts = new int[1 << 16];
+        targetCounts = mono ? sourceCounts : new int[1 << 16];
+    }
+
+    /**
+     * counts the pairs of the corpora and writes the triggers file
+     */
+    void build(String filePathSource, String filePathTarget, int threads) throws IOException, InterruptedException {
+        try {
+            countPairs(filePathSource, filePathTarget, threads);
+            long start = System.currentTimeMillis();
+            Logger.log("Now, computing mutual information from words and (s,t) counts...");
+            System.out.println("Now, computing mutual information from words and (s,t) counts...");
+            merge();
+            long elapsed = System.currentTimeMillis() - start;
+            System.out.println("Computed in " + elapsed / 1000F + " sec");
+            Logger.log("Computed in " + elapsed / 1000F + " sec");
+        } finally {
+            for (File run : runs) {
+                run.delete();
+            }
+        }
+    }
+
+    /**
+     * reads the corpora and writes the pair counts as runs
+     */
+    private void countPairs(String filePathSource, String filePathTarget, int threads) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        if (mono) {
+            Logger.log("Building vocabulary from " + filePathSource + "...");
+            System.out.println("Building vocabulary from " + filePathSource + "...");
+        } else {
+            Logger.log("Building vocabularies from " + filePathSource + " and " + filePathTarget + "...");
+            System.out.println("Building vocabularies from " + filePathSource + " and " + filePathTarget + "...");
+        }
+
+        //Start the counting threads:
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(threads * 2);
+        Counter[] counters = new Counter[threads];
+        for (int i = 0; i < threads; i++) {
+            counters[i] = new Counter(queue);
+            counters[i].start();
+        }
+
+        //Read the corpora into batches of word ids:
+        try {
+            BufferedReader brSource = new BufferedReader(new InputStreamReader(new FileInputStream(filePathSource), "utf-8"), 1 << 16);
+            BufferedReader brTarget = mono ? null : new BufferedReader(new InputStreamReader(new FileInputStream(filePathTarget), "utf-8"), 1 << 16);
+            try {
+                int[] sourceSeen = new int[1 << 16];
+                int[] targetSeen = mono ? sourceSeen : new int[1 << 16];
+                Batch batch = new Batch();
+                String lineSource = brSource.readLine();
+                while (lineSource != null) {
+                    String lineTarget = mono ? lineSource : brTarget.readLine();
+                    if (lineTarget == null) {
+                        throw new IOException(filePathTarget + " has fewer lines than " + filePathSource);
+                    }
+                    nblines++;
+                    batch.startLine();
+                    sourceSeen = addWords(lineSource, sources, sourceSeen, batch);
+                    sourceCounts = count(batch, sourceCounts);
+                    if (mono) {
+                        targetCounts = sourceCounts;
+                    } else {
+                        batch.startTarget();
+                        targetSeen = addWords(lineTarget, targets, targetSeen, batch);
+                        targetCounts = count(batch, targetCounts);
+                    }
+                    if (batch.lines == BATCH_LINES) {
+                        queue.put(batch);
+                        batch = new Batch();
+                    }
+                    if (nblines % 100000 == 0) {
+                        System.out.println("   " + nblines);
+                    }
+                    lineSource = brSource.readLine();
+                }
+                if (batch.lines > 0) {
+                    queue.put(batch);
+                }
+            } finally {
+                brSource.close();
+                if (brTarget != null) {
+                    brTarget.close();
+                }
+            }
+        } finally {
+            for (int i = 0; i < threads; i++) {
+                queue.put(END);
+            }
+            for (Counter counter : counters) {
+                counter.join();
+            }
+        }
+        for (Counter counter : counters) {
+            if (counter.error != null) {
+                throw counter.error;
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        System.out.println("Counts obtained in " + elapsed / 1000F + " sec, in " + runs.size() + " runs");
+        Logger.log("Counts obtained in " + elapsed / 1000F + " sec, in " + runs.size() + " runs");
+    }
+
+    /**
+     * Adds the ids of the distinct words of a line to the batch, words being
+     * split as String.split(" ") does. A word is distinct if it was not seen
+     * on this line before, seen[id] holding the last line a word was seen on.
+     *
+     * @return seen, grown if new words were added
+     */
+    private int[] addWords(String line, Vocabulary vocabulary, int[] seen, Batch batch) {
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        //A line of spaces alone has no words:
+        int wordStart = end == 0 && line.length() > 0 ? 1 : 0;
+        while (wordStart <= end) {
+            int wordEnd = line.indexOf(' ', wordStart);
+            if (wordEnd == -1 || wordEnd > end) {
+                wordEnd = end;
+            }
+            int id = vocabulary.add(line, wordStart, wordEnd);
+            if (id >= seen.length) {
+                seen = Arrays.copyOf(seen, Math.max(id + 1, seen.length * 2));
+            }
+            if (seen[id] != nblines) {
+                seen[id] = nblines;
+                batch.add(id);
+            }
+            wordStart = wordEnd + 1;
+        }
+        return seen;
+    }
+
+    /**
+     * counts the lines on which the words of the current side of the batch
+     * appear
+     */
+    private static int[] count(Batch batch, int[] counts) {
+        for (int i = batch.sideStart; i < batch.size; i++) {
+            int id = batch.words[i];
+            if (id >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+            }
+            counts[id]++;
+        }
+        return counts;
+    }
+
+    /**
+     * writes sorted pair counts as a run, named after the triggers file
+     */
+    private void spill(LongIntMap pairs) throws IOException {
+        long[] keys = new long[pairs.size()];
+        int n = 0;
+        for (int slot = 0; slot < pairs.capacity(); slot++) {
+            if (pairs.isUsed(slot)) {
+                keys[n++] = pairs.keyAt(slot);
+            }
+        }
+        Arrays.sort(keys);
+        File run;
+        synchronized (runs) {
+            run = new File(filePathOut + "_" + (runs.size() + 1));
+            runs.add(run);
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16));
+        try {
+            for (long key : keys) {
+                out.writeLong(key);
+                out.writeInt(pairs.get(key, 0));
+            }
+        } finally {
+            out.close();
+        }
+        pairs.clear();
+    }
+
+    /**
+     * Merges the runs and writes the triggers of each source word, one line
+     * "s t count(s) count(t) count(s,t) score" per trigger, from the best to
+     * the worst.
+     */
+    private void merge() throws IOException {
+        int runCount = runs.size();
+        DataInputStream[] in = new DataInputStream[runCount];
+        long[] keys = new long[runCount];
+        int[] counts = new int[runCount];
+        //Min-heap of the runs, by current key:
+        int[] heap = new int[runCount];
+        int heapSize = 0;
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filePathOut), "utf-8"), 1 << 16);
+        try {
+            for (int i = 0; i < runCount; i++) {
+                in[i] = new DataInputStream(new BufferedInputStream(new FileInputStream(runs.get(i)), 1 << 16));
+                if (read(in[i], keys, counts, i)) {
+                    heap[heapSize++] = i;
+                    siftUp(heap, keys, heapSize - 1);
+                }
+            }
+
+            //Collect the summed pairs of each source word in turn:
+            int current = -1;
+            int[] pairTargets = new int[1024];
+            int[] pairCounts = new int[1024];
+            int pairSize = 0;
+            while (heapSize > 0) {
+                int run = heap[0];
+                long key = keys[run];
+                int pairCount = 0;
+                while (heapSize > 0 && keys[heap[0]] == key) {
+                    run = heap[0];
+                    pairCount += counts[run];
+                    if (read(in[run], keys, counts, run)) {
+                        siftDown(heap, keys, heapSize, 0);
+                    } else {
+                        heap[0] = heap[--heapSize];
+                        siftDown(heap, keys, heapSize, 0);
+                    }
+                }
+                int source = (int) (key >>> 32);
+                if (source != current) {
+                    writeTriggers(out, current, pairTargets, pairCounts, pairSize);
+                    current = source;
+                    pairSize = 0;
+                }
+                if (pairSize == pairTargets.length) {
+                    pairTargets = Arrays.copyOf(pairTargets, pairSize * 2);
+                    pairCounts = Arrays.copyOf(pairCounts, pairSize * 2);
+                }
+                pairTargets[pairSize] = (int) key;
+                pairCounts[pairSize] = pairCount;
+                pairSize++;
+            }
+            writeTriggers(out, current, pairTargets, pairCounts, pairSize);
+        } finally {
+            out.close();
+            for (DataInputStream stream : in) {
+                if (stream != null) {
+                    stream.close();
+                }
+            }
+        }
+    }
+
+    private static boolean read(DataInputStream in, long[] keys, int[] counts, int run) throws IOException {
+        try {
+            keys[run] = in.readLong();
+            counts[run] = in.readInt();
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private static void siftUp(int[] heap, long[] keys, int i) {
+        int run = heap[i];
+        while (i > 0 && keys[heap[(i - 1) / 2]] > keys[run]) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = run;
+    }
+
+    private static void siftDown(int[] heap, long[] keys, int heapSize, int i) {
+        if (heapSize == 0) {
+            return;
+        }
+        int run = heap[i];
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && keys[heap[child + 1]] < keys[heap[child]]) {
+                child++;
+            }
+            if (keys[heap[child]] >= keys[run]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = run;
+    }
+
+    /**
+     * Computes the mutual information of the pairs of a source word and
+     * writes the best nbMaxTriggers of them. Pairs with the same score are
+     * ranked by the first appearance of their target word in the corpus, so
+     * when they tie at the cut-off, the triggers kept may differ from those
+     * of the former sort, which ranked ties in hash order.
+     */
+    private void writeTriggers(Writer out, int source, int[] pairTargets, int[] pairCounts, int pairSize) throws IOException {
+        if (pairSize == 0) {
+            return;
+        }
+        float n = nblines;
+        float[] pims = new float[pairSize];
+        //Keys sort by decreasing score, then by target id, i.e. first appearance:
+        long[] order = new long[pairSize];
+        for (int i = 0; i < pairSize; i++) {
+            float im = (float) Math.log10((pairCounts[i] / n) / ((sourceCounts[source] / n) * (targetCounts[pairTargets[i]] / n)));
+            pims[i] = pairCounts[i] / n * im;
+            int bits = Float.floatToIntBits(pims[i]);
+            bits ^= (bits >> 31) & Integer.MAX_VALUE;
+            order[i] = (long) ~bits << 32 | i;
+        }
+        int kept = nbMaxTriggers == -1 ? pairSize : Math.min(pairSize, nbMaxTriggers);
+        if (kept < pairSize) {
+            selectSmallest(order, pairSize, kept);
+        }
+        Arrays.sort(order, 0, kept);
+
+        String sourceWord = sources.getWord(source);
+        for (int k = 0; k < kept; k++) {
+            int i = (int) order[k];
+            out.write(sourceWord + " " + targets.getWord(pairTargets[i]) + " " + sourceCounts[source] + " "
+                    + targetCounts[pairTargets[i]] + " " + pairCounts[i] + " " + pims[i] + "\n");
+        }
+    }
+
+    /**
+     * moves the k smallest of the first n keys to the start of the array,
+     * through a bounded max-heap
+     */
+    private static void selectSmallest(long[] keys, int n, int k) {
+        for (int i = 1; i < k; i++) {
+            long key = keys[i];
+            int j = i;
+            while (j > 0 && keys[(j - 1) / 2] < key) {
+                keys[j] = keys[(j - 1) / 2];
+                j = (j - 1) / 2;
+            }
+            keys[j] = key;
+        }
+        for (int i = k; i < n; i++) {
+            if (keys[i] < keys[0]) {
+                long key = keys[i];
+                int j = 0;
+                while (2 * j + 1 < k) {
+                    int child = 2 * j + 1;
+                    if (child + 1 < k && keys[child + 1] > keys[child]) {
+                        child++;
+                    }
+                    if (keys[child] <= key) {
+                        break;
+                    }
+                    keys[j] = keys[child];
+                    j = child;
+                }
+                keys[j] = key;
+            }
+        }
+    }
+
+    /**
+     * The distinct source and target word ids of a number of lines.
+     */
+    private static class Batch {
+
+        private int[] words = new int[BATCH_LINES * 16];
+        private int size;
+        //Where the source and target words of each line start:
+        private int[] starts = new int[BATCH_LINES * 2 + 1];
+        private int lines;
+        private int sideStart;
+
+        void startLine() {
+            starts[2 * lines] = size;
+            starts[2 * lines + 1] = -1;
+            lines++;
+            starts[2 * lines] = size;
+            sideStart = size;
+        }
+
+        void startTarget() {
+            starts[2 * lines - 1] = size;
+            sideStart = size;
+        }
+
+        void add(int id) {
+            if (size == words.length) {
+                words = Arrays.copyOf(words, size * 2);
+            }
+            words[size++] = id;
+            starts[2 * lines] = size;
+        }
+    }
+
+    /**
+     * Counts the pairs of the batches taken from a queue, until it takes END.
+     */
+    private class Counter extends Thread {
+
+        private BlockingQueue<Batch> queue;
+        private LongIntMap pairs;
+        private IOException error;
+
+        Counter(BlockingQueue<Batch> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            pairs = new LongIntMap(1 << 16);
+            try {
+                Batch batch = queue.take();
+                while (batch != END) {
+                    if (error == null) {
+                        countPairs(batch);
+                    }
+                    batch = queue.take();
+                }
+                if (error == null && pairs.size() > 0) {
+                    spill(pairs);
+                }
+            } catch (IOException e) {
+                error = e;
+            } catch (InterruptedException e) {
+                error = new IOException(e);
+            }
+            pairs = null;
+        }
+
+        private void countPairs(Batch batch) {
+            try {
+                for (int line = 0; line < batch.lines; line++) {
+                    int sourceStart = batch.starts[2 * line];
+                    int targetStart = batch.starts[2 * line + 1];
+                    int targetEnd = batch.starts[2 * line + 2];
+                    //In mono mode the line is on the source side only:
+                    if (targetStart == -1) {
+                        targetStart = sourceStart;
+                    }
+                    int sourceEnd = mono ? targetEnd : targetStart;
+                    for (int i = sourceStart; i < sourceEnd; i++) {
+                        int s = batch.words[i];
+                        for (int j = targetStart; j < targetEnd; j++) {
+                            int t = batch.words[j];
+                            // trigger x --> x forbidden in mono
+                            if (!mono || s != t) {
+                                pairs.increment(LanguageModel.pack(s, t), 1);
+                            }
+                        }
+                    }
+                    if (pairs.size() >= pairsPerCounter) {
+                        spill(pairs);
+                    }
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+}
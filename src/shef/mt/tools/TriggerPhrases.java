@@ -0,0 +1,138 @@
+package shef.mt.tools;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * The distinct phrases of a sentence, as ids in a Triggers model. A phrase is
+ * a sequence of up to a maximum number of tokens joined with the phrase
+ * separator of the model. Each phrase is kept as its id on the left side of
+ * the triggers and its id on the right side, -1 standing for a side it does
+ * not appear on, so that the scores of all pairs of phrases of one or two
+ * sentences are summed without looking strings up. Phrases that are on no
+ * side of the triggers only count towards the number of phrases.
+ *
+ * @author GustavoH
+ */
+class TriggerPhrases {
+
+    private Triggers triggers;
+    private int[] sourceIds;
+    private int[] targetIds;
+    //The phrases that appear on some side of the triggers:
+    private int known;
+    //All the distinct phrases:
+    private int size;
+    private int[] sortedTargetIds;
+    private int targetCount;
+
+    /**
+     * finds the distinct phrases of a sentence
+     *
+     * @param triggers the model giving the ids of phrases
+     * @param tokens the tokens of the sentence
+     * @param maxLength the maximum number of tokens of a phrase
+     */
+    TriggerPhrases(Triggers triggers, String[] tokens, int maxLength) {
+        this.triggers = triggers;
+
+        //Look the phrases up, keeping the unknown ones apart:
+        long[] keys = new long[tokens.length * Math.max(1, maxLength)];
+        int keyCount = 0;
+        HashSet<String> unknown = null;
+        StringBuilder phrase = null;
+        for (int i = 0; i < tokens.length; i++) {
+            for (int length = 1; length <= maxLength && i + length <= tokens.length; length++) {
+                int sourceId;
+                int targetId;
+                if (length == 1) {
+                    sourceId = triggers.getSourceId(tokens[i]);
+                    targetId = triggers.getTargetId(tokens[i]);
+                } else {
+                    if (phrase == null) {
+                        phrase = new StringBuilder();
+                    }
+                    phrase.setLength(0);
+                    phrase.append(tokens[i]);
+                    for (int k = 1; k < length; k++) {
+                        phrase.append(triggers.phraseSeparator).append(tokens[i + k]);
+                    }
+                    sourceId = triggers.getSourceId(phrase, 0, phrase.length());
+                    targetId = triggers.getTargetId(phrase, 0, phrase.length());
+                }
+                if (sourceId == -1 && targetId == -1) {
+                    if (unknown == null) {
+                        unknown = new HashSet<String>();
+                    }
+                    unknown.add(length == 1 ? tokens[i] : phrase.toString());
+                } else {
+                    keys[keyCount++] = (long) (sourceId + 1) << 32 | (targetId + 1);
+                }
+            }
+        }
+
+        //Keep the distinct phrases, which have distinct pairs of ids:
+        Arrays.sort(keys, 0, keyCount);
+        sourceIds = new int[keyCount];
+        targetIds = new int[keyCount];
+        sortedTargetIds = new int[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                sourceIds[known] = (int) (keys[i] >>> 32) - 1;
+                targetIds[known] = (int) keys[i] - 1;
+                if (targetIds[known] != -1) {
+                    sortedTargetIds[targetCount++] = targetIds[known];
+                }
+                known++;
+            }
+        }
+        Arrays.sort(sortedTargetIds, 0, targetCount);
+        size = known + (unknown == null ? 0 : unknown.size());
+    }
+
+    Triggers getTriggers() {
+        return triggers;
+    }
+
+    /**
+     * @return the number of distinct phrases
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * returns the mean score of the triggers between two different phrases of
+     * the sentence
+     */
+    float getIntraLingualScore() {
+        int nb = size * (size - 1);
+        if (nb == 0) {
+            return 0;
+        }
+        float som = 0;
+        for (int i = 0; i < known; i++) {
+            if (sourceIds[i] != -1) {
+                som += triggers.sumScores(sourceIds[i], sortedTargetIds, targetCount, targetIds[i]);
+            }
+        }
+        return som / nb;
+    }
+
+    /**
+     * returns the mean score of the triggers from a phrase of this sentence to
+     * a phrase of another sentence, whose phrases come from the same model
+     */
+    float getInterLingualScore(TriggerPhrases target) {
+        float som = 0;
+        for (int i = 0; i < known; i++) {
+            if (sourceIds[i] != -1) {
+                som += triggers.sumScores(sourceIds[i], target.sortedTargetIds, target.targetCount, -1);
+            }
+        }
+        if (som == 0) {
+            return 0;
+        }
+        return som / (size * target.size);
+    }
+}
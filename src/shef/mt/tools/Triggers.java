@@ -6,11 +6,7 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.io.FileWriter;
-import java.io.BufferedWriter;
-import java.io.PrintWriter;
-import java.io.BufferedOutputStream;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
+import java.util.regex.Pattern;
 
 /**
  *
@@ -26,28 +22,31 @@ import java.io.OutputStreamWriter;
 public class Triggers extends Resource {
 
     int nb_triggers_max; //nb triggers max v --> w for each v. The nb_triggers_max are kept
-    private HashMap<String, HashMap<String, Float>> triggers;
     int lengthMaxSide1;
     int lengthMaxSide2;
     String phraseSeparator;
 
-    public Triggers(String triggersFilePath, String phraseSeparator) {
-        super(null);
-        triggers = new HashMap<String, HashMap<String, Float>>();
-        lengthMaxSide1 = 1;
-        lengthMaxSide2 = 1;
-        nb_triggers_max = -1;
-        this.phraseSeparator = phraseSeparator;
-        Logger.log("initiating Triggers from file: " + triggersFilePath);
+    //Triggers v --> w are stored by id of v: the triggers of v are the
+    //entries offsets[v] to offsets[v+1]-1, sorted by id of w
+    private Vocabulary sources;
+    private Vocabulary targets;
+    private int[] offsets;
+    private int[] targetIds;
+    private float[] scores;
+
+    //Triggers while the file is being read:
+    private int[] entrySources;
+    private int[] entryTargets;
+    private float[] entryScores;
+    private int size;
+    private LongIntMap entries;
 
-        if (loadTriggers(triggersFilePath) != -1) {
-            shef.mt.tools.ResourceManager.registerResource("IntraLingualTriggers");
-        }
+    public Triggers(String triggersFilePath, String phraseSeparator) {
+        this(triggersFilePath, -1, phraseSeparator);
     }
 
     public Triggers(String triggersFilePath, int nbm, String phraseSeparator) {
         super(null);
-        triggers = new HashMap<String, HashMap<String, Float>>();
         lengthMaxSide1 = 1;
         lengthMaxSide2 = 1;
         nb_triggers_max = nbm;
@@ -63,12 +62,24 @@ public class Triggers extends Resource {
         long start = System.currentTimeMillis();
         Logger.log("Loading Triggers from " + filePath + "...");
         System.out.println("Loading Triggers from " + filePath + "...");
+        sources = new Vocabulary(1 << 16);
+        targets = new Vocabulary(1 << 16);
+        entrySources = new int[1024];
+        entryTargets = new int[1024];
+        entryScores = new float[1024];
+        size = 0;
+        entries = new LongIntMap(1024);
         try {
-            BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(filePath), "utf-8"));
-            String line = br.readLine();
-            while (line != null) {
-                parseLine(line);
-                line = br.readLine();
+            BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(filePath), "utf-8"), 1 << 16);
+            try {
+                Pattern separator = Pattern.compile(phraseSeparator);
+                String line = br.readLine();
+                while (line != null) {
+                    parseLine(line, separator);
+                    line = br.readLine();
+                }
+            } finally {
+                br.close();
             }
             long elapsed = System.currentTimeMillis() - start;
             System.out.println("Triggers loaded in " + elapsed / 1000F + " sec");
@@ -83,111 +94,274 @@ public class Triggers extends Resource {
         start = System.currentTimeMillis();
         Logger.log("Normalizing Mutual Information scores...");
         System.out.println("Normalizing Mutual Information scores...");
+        index();
+        long elapsed = System.currentTimeMillis() - start;
+        System.out.println("Normalization done in " + elapsed / 1000F + " sec");
+        Logger.log("Normalization done in " + elapsed / 1000F + " sec");
 
-        Set<String> keyes = triggers.keySet();
-
-        for (String i : keyes) {
-            HashMap<String, Float> triggers_of_key = triggers.get(i);
-            float som = 0;
-            float min = Float.MAX_VALUE;
-            Set<String> keyes2 = triggers_of_key.keySet();
+        return 0;
+    }
 
-            if (nb_triggers_max != -1) {
-                String tab[] = new String[triggers_of_key.size()];
-                int k = 0;
+    /**
+     * reads a line "v w ... score", where the score is the sixth field, a
+     * later line for the same pair replacing the score of an earlier one
+     */
+    private void parseLine(String line, Pattern separator) {
+        //Find the fields separated by single spaces:
+        int end0 = line.indexOf(' ');
+        int end1 = end0 == -1 ? -1 : line.indexOf(' ', end0 + 1);
+        int start5 = end1;
+        for (int field = 3; field <= 5 && start5 != -1; field++) {
+            start5 = line.indexOf(' ', start5 + 1);
+        }
+        if (start5 == -1) {
+            System.err.println("Invalid triggers line: " + line);
+            return;
+        }
+        int end5 = line.indexOf(' ', start5 + 1);
+        float score = Float.parseFloat(line.substring(start5 + 1, end5 == -1 ? line.length() : end5));
+
+        //Intern both phrases, measuring their length when first seen:
+        int count = sources.size();
+        int sourceId = sources.add(line, 0, end0);
+        if (sources.size() > count) {
+            lengthMaxSide1 = Math.max(lengthMaxSide1, separator.split(sources.getWord(sourceId)).length);
+        }
+        count = targets.size();
+        int targetId = targets.add(line, end0 + 1, end1);
+        if (targets.size() > count) {
+            lengthMaxSide2 = Math.max(lengthMaxSide2, separator.split(targets.getWord(targetId)).length);
+        }
 
-                // we keep only the nb_triggers_max triggers
-                // I use a temp tab to retrieve the keyes with max score
-                for (String j : keyes2) {
-                    tab[k] = j;
-                    k++;
-                }
-                //bubble sort :-(. Ok, ok, improve yourself if you are not happy
-                // I am usre there exist a marvelous class for sorting... But I do not know sufficiently Java to find it.
-                int l;
-                for (k = 0; k < triggers_of_key.size(); k++) {
-                    for (l = k + 1; l < triggers_of_key.size(); l++) {
-                        int cmp = triggers_of_key.get(tab[k]).compareTo(triggers_of_key.get(tab[l]));
-                        if (cmp < 0) {
-                            String temp = tab[k];
-                            tab[k] = tab[l];
-                            tab[l] = temp;
-                        }
-                    }
-                }
+        long key = LanguageModel.pack(sourceId, targetId);
+        int entry = entries.get(key, -1);
+        if (entry == -1) {
+            if (size == entryScores.length) {
+                entrySources = Arrays.copyOf(entrySources, size * 2);
+                entryTargets = Arrays.copyOf(entryTargets, size * 2);
+                entryScores = Arrays.copyOf(entryScores, size * 2);
+            }
+            entry = size++;
+            entries.put(key, entry);
+            entrySources[entry] = sourceId;
+            entryTargets[entry] = targetId;
+        }
+        entryScores[entry] = score;
+    }
 
-                // triggers with low cost are deleted
-                for (k = nb_triggers_max; k < triggers_of_key.size(); k++) {
-                    triggers_of_key.remove(tab[k]);
+    /**
+     * Keeps the nb_triggers_max best triggers of each phrase, selected with a
+     * bounded heap, normalizes their scores and sorts them by target id.
+     */
+    private void index() {
+        int sourceCount = sources.size();
+        entries = null;
+
+        //Group the entries by source phrase:
+        int[] grouped = new int[size];
+        int[] bounds = new int[sourceCount + 1];
+        for (int i = 0; i < size; i++) {
+            bounds[entrySources[i] + 1]++;
+        }
+        for (int id = 0; id < sourceCount; id++) {
+            bounds[id + 1] += bounds[id];
+        }
+        int[] next = Arrays.copyOf(bounds, sourceCount);
+        for (int i = 0; i < size; i++) {
+            grouped[next[entrySources[i]]++] = i;
+        }
+        next = null;
+        entrySources = null;
+
+        //Select, normalize and sort the triggers of each phrase:
+        offsets = new int[sourceCount + 1];
+        int kept = 0;
+        int[] heap = new int[0];
+        long[] keys = new long[0];
+        for (int id = 0; id < sourceCount; id++) {
+            int count = bounds[id + 1] - bounds[id];
+            int limit = nb_triggers_max < 0 ? count : Math.min(count, nb_triggers_max);
+            if (heap.length < limit) {
+                heap = new int[limit];
+                keys = new long[limit];
+            }
+            // we keep only the nb_triggers_max triggers, the root of the heap
+            // being the worst of those kept so far
+            int heapSize = 0;
+            for (int i = bounds[id]; i < bounds[id + 1]; i++) {
+                int entry = grouped[i];
+                if (heapSize < limit) {
+                    heap[heapSize++] = entry;
+                    siftUp(heap, heapSize - 1);
+                } else if (limit > 0 && isBetter(entry, heap[0])) {
+                    heap[0] = entry;
+                    siftDown(heap, heapSize, 0);
                 }
+            }
 
-                // set of keyes is updated
-                keyes2 = triggers_of_key.keySet();
+            float min = Float.MAX_VALUE;
+            for (int i = 0; i < heapSize; i++) {
+                min = Math.min(min, entryScores[heap[i]]);
             }
-            // finally : normalisation
-            for (String j : keyes2) {
-                if (triggers_of_key.get(j) < min) {
-                    min = triggers_of_key.get(j);
-                }
+            float som = 0;
+            for (int i = 0; i < heapSize; i++) {
+                som += entryScores[heap[i]] + min;
             }
-            for (String j : keyes2) {
-                som += triggers_of_key.get(j) + min;
+            for (int i = 0; i < heapSize; i++) {
+                entryScores[heap[i]] = (entryScores[heap[i]] + min) / som;
+                keys[i] = (long) entryTargets[heap[i]] << 32 | heap[i];
             }
-            for (String j : keyes2) {
-                triggers_of_key.put(j, (triggers_of_key.get(j) + min) / som);
+            Arrays.sort(keys, 0, heapSize);
+            for (int i = 0; i < heapSize; i++) {
+                grouped[kept + i] = (int) keys[i];
             }
+            kept += heapSize;
+            offsets[id + 1] = kept;
         }
 
-        long elapsed = System.currentTimeMillis() - start;
-        System.out.println("Normalization done in " + elapsed / 1000F + " sec");
-        Logger.log("Normalization done in " + elapsed / 1000F + " sec");
+        targetIds = new int[kept];
+        scores = new float[kept];
+        for (int i = 0; i < kept; i++) {
+            targetIds[i] = entryTargets[grouped[i]];
+            scores[i] = entryScores[grouped[i]];
+        }
+        entryTargets = null;
+        entryScores = null;
+    }
 
-        return 0;
+    /**
+     * tells whether an entry has a higher score than another, the earlier entry
+     * of the file winning ties
+     */
+    private boolean isBetter(int entry, int other) {
+        return entryScores[entry] > entryScores[other]
+                || (entryScores[entry] == entryScores[other] && entry < other);
     }
 
-    private void parseLine(String line) {
-        
-        //System.out.println(line);
-        
-        String[] tabline = line.split(" ");
+    private void siftUp(int[] heap, int i) {
+        int entry = heap[i];
+        while (i > 0 && isBetter(heap[(i - 1) / 2], entry)) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = entry;
+    }
 
-        if (tabline[0].split(phraseSeparator).length > this.lengthMaxSide1) {
-            this.lengthMaxSide1 = tabline[0].split(phraseSeparator).length;
+    private void siftDown(int[] heap, int heapSize, int i) {
+        int entry = heap[i];
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && isBetter(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!isBetter(entry, heap[child])) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
         }
+        heap[i] = entry;
+    }
+
+    /**
+     * returns the id of a phrase on the left side of the triggers, or -1 if
+     * it triggers nothing
+     */
+    public int getSourceId(String phrase) {
+        return sources.get(phrase);
+    }
 
-        if (tabline[1].split(phraseSeparator).length > this.lengthMaxSide2) {
-            this.lengthMaxSide2 = tabline[1].split(phraseSeparator).length;
+    /**
+     * returns the id of a phrase on the right side of the triggers, or -1 if
+     * nothing triggers it
+     */
+    public int getTargetId(String phrase) {
+        return targets.get(phrase);
+    }
+
+    /**
+     * returns the normalized score of the trigger v --> w, or 0 if there is no
+     * such trigger or the triggers could not be loaded
+     *
+     * @param sourceId the id of v, as given by getSourceId
+     * @param targetId the id of w, as given by getTargetId
+     */
+    public float getScore(int sourceId, int targetId) {
+        if (offsets == null || sourceId < 0 || targetId < 0) {
+            return 0;
         }
+        int i = Arrays.binarySearch(targetIds, offsets[sourceId], offsets[sourceId + 1], targetId);
+        return i < 0 ? 0 : scores[i];
+    }
+
+    public float getScore(String v, String w) {
+        return getScore(sources.get(v), targets.get(w));
+    }
+
+    /**
+     * returns the id of the phrase formed by the characters start to end-1 of
+     * text on the left side of the triggers, or -1 if it triggers nothing
+     */
+    public int getSourceId(CharSequence text, int start, int end) {
+        return sources.get(text, start, end);
+    }
 
-        if (!(triggers.containsKey(tabline[0]))) {
-            triggers.put(tabline[0], new HashMap<String, Float>());
+    /**
+     * returns the id of the phrase formed by the characters start to end-1 of
+     * text on the right side of the triggers, or -1 if nothing triggers it
+     */
+    public int getTargetId(CharSequence text, int start, int end) {
+        return targets.get(text, start, end);
+    }
+
+    /**
+     * Sums the scores of the triggers v --> w of a phrase v for a set of
+     * phrases w, walking the triggers of v and the set together.
+     *
+     * @param sourceId the id of v
+     * @param sortedTargetIds the ids of the phrases w, distinct and sorted
+     * @param count the number of ids in sortedTargetIds
+     * @param excludedTargetId the id of a phrase w to leave out, or -1
+     * @return the sum of the scores, 0 if the triggers could not be loaded
+     */
+    public float sumScores(int sourceId, int[] sortedTargetIds, int count, int excludedTargetId) {
+        float som = 0;
+        if (offsets == null || sourceId < 0) {
+            return som;
         }
-        triggers.get(tabline[0]).put(tabline[1], new Float(tabline[5]));
+        int i = offsets[sourceId];
+        int end = offsets[sourceId + 1];
+        int j = 0;
+        while (i < end && j < count) {
+            if (targetIds[i] < sortedTargetIds[j]) {
+                i++;
+            } else if (targetIds[i] > sortedTargetIds[j]) {
+                j++;
+            } else {
+                if (targetIds[i] != excludedTargetId) {
+                    som += scores[i];
+                }
+                i++;
+                j++;
+            }
+        }
+        return som;
     }
 
     public void print(String s) {
         System.out.println("List of intra-lingual triggers from " + s + " are: ");
-        HashMap<String, Float> tr = triggers.get(s);
-        Iterator<String> it = tr.keySet().iterator();
-        while (it.hasNext()) {
-            // to improve : list pairs in sort order
-            String n = it.next();
-            System.out.print(s + " --> " + n + "\t" + tr.get(n) + "\n");
-
+        int id = sources.get(s);
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+            System.out.print(s + " --> " + targets.getWord(targetIds[i]) + "\t" + scores[i] + "\n");
         }
     }
 
     public void print() {
         System.out.println("List of intra-lingual triggers are: ");
-        Iterator<String> it = triggers.keySet().iterator();
-        while (it.hasNext()) {
-            // to improve : list pairs in sort order
-            String s = it.next();
-            HashMap<String, Float> tr = triggers.get(s);
-            Iterator<String> it2 = tr.keySet().iterator();
-            while (it2.hasNext()) {
-                String n = it2.next();
-                System.out.print(s + " --> " + n + "\t" + tr.get(n) + "\n");
+        for (int id = 0; id < sources.size(); id++) {
+            String s = sources.getWord(id);
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                System.out.print(s + " --> " + targets.getWord(targetIds[i]) + "\t" + scores[i] + "\n");
             }
         }
     }
@@ -304,409 +478,31 @@ public class Triggers extends Resource {
     }
      */
     public static int buildTriggers(String filePathSource, String filePathTarget, String filePathOut, int nbMaxTriggers) {
-        // ONLY FOR WORD BASED TRIGGERS, NOT FOR PHRASE BASED.
-        HashMap<String, Integer> vocabularySource = new HashMap<String, Integer>();
-        HashMap<String, Integer> vocabularyTarget = new HashMap<String, Integer>();
-        HashMap<String, HashMap<String, Integer>> tr = new HashMap<String, HashMap<String, Integer>>();
-        float nblines;
-        boolean mono = false;
-        PrintWriter out;
-        long elapsed;
-        HashMap<String, Float> strAndPIm = new HashMap<String, Float>();
-        HashMap<String, Integer> setWords = new HashMap<String, Integer>();
-        ArrayList<String> kstab2list = new ArrayList<String>();
-        ArrayList<String> kstablist = new ArrayList<String>();
-        HashMap<String, Integer> vocSentSource = new HashMap<String, Integer>();
-        HashMap<String, Integer> vocSentTarget = new HashMap<String, Integer>();
-        String[] tabLineSource = null;
-        String[] tabLineTarget = null;
- 
-        if (filePathSource.equals(filePathTarget)) {
-            mono = true;
-        }
-
-        long start;
-
-        int num = 1;
+        return buildTriggers(filePathSource, filePathTarget, filePathOut, nbMaxTriggers,
+                Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 2);
+    }
 
+    /**
+     * Builds a triggers file, counting co-occurrences on several threads and
+     * spilling sorted counts to disk when they exceed a memory budget.
+     *
+     * @param threads the number of counting threads
+     * @param memory the number of bytes the counts may take before they are
+     * written to disk
+     * @return 0 if the file was built, -1 otherwise
+     */
+    public static int buildTriggers(String filePathSource, String filePathTarget, String filePathOut, int nbMaxTriggers, int threads, long memory) {
+        // ONLY FOR WORD BASED TRIGGERS, NOT FOR PHRASE BASED.
+        boolean mono = filePathSource.equals(filePathTarget);
         try {
-            start = System.currentTimeMillis();
-            if (mono) {
-                Logger.log("Building vocabulary from " + filePathSource + "...");
-                System.out.println("Building vocabulary from " + filePathSource + "...");
-            } else {
-                Logger.log("Building vocabularies from " + filePathSource + " and " + filePathTarget + "...");
-                System.out.println("Building vocabularies from " + filePathSource + " and " + filePathTarget + "...");
-
-            }
-            nblines = 0;
-            BufferedReader brSource = new BufferedReader(new InputStreamReader(new FileInputStream(filePathSource), "utf-8"));
-            BufferedReader brTarget = new BufferedReader(new InputStreamReader(new FileInputStream(filePathTarget), "utf-8"));
-            String lineSource = brSource.readLine();
-            String lineTarget = brTarget.readLine();
-            while (lineSource != null) {
-                nblines++;
-                if (nblines % 1000 == 0) {
-                    System.out.println("   " + nblines);
-                }
-                tabLineSource = lineSource.split(" ");
-                tabLineTarget = lineTarget.split(" ");
-                
-                vocSentSource.clear();
-                vocSentTarget.clear();
-                for (int i = 0; i < tabLineSource.length; i++) {
-                    if (!vocSentSource.containsKey(tabLineSource[i])) {
-                        vocSentSource.put(tabLineSource[i], 1);
-                    }
-                }
-                for (int i = 0; i < tabLineTarget.length; i++) {
-                    if (!vocSentTarget.containsKey(tabLineTarget[i])) {
-                        vocSentTarget.put(tabLineTarget[i], 1);
-                    }
-                }
-                for (String s : vocSentSource.keySet()) {
-                    if (vocabularySource.containsKey(s)) {
-                        vocabularySource.put(s, vocabularySource.get(s) + 1);
-                    } else {
-                        vocabularySource.put(s, 1);
-                    }
-                }
-                for (String s : vocSentTarget.keySet()) {
-                    if (vocabularyTarget.containsKey(s)) {
-                        vocabularyTarget.put(s, vocabularyTarget.get(s) + 1);
-                    } else {
-                        vocabularyTarget.put(s, 1);
-                    }
-                }
-                for (String s : vocSentSource.keySet()) {
-                    for (String s2 : vocSentTarget.keySet()) {
-                        if (mono) {
-                            if (!s.equals(s2)) { // trigger x --> x forbidden
-                                if (!tr.containsKey(s)) {
-                                    tr.put(s, new HashMap<String, Integer>());
-                                }
-                                if (tr.get(s).containsKey(s2)) {
-                                    tr.get(s).put(s2, tr.get(s).get(s2) + 1);
-                                } else {
-                                    tr.get(s).put(s2, 1);
-                                }
-                            }
-                        } else {
-                            // same as mono but trigger x --> x allowed
-                            if (!tr.containsKey(s)) {
-                                tr.put(s, new HashMap<String, Integer>());
-                            }
-                            if (tr.get(s).containsKey(s2)) {
-                                tr.get(s).put(s2, tr.get(s).get(s2) + 1);
-                            } else {
-                                tr.get(s).put(s2, 1);
-                            }
-                        }
-                    }
-                }
-
-                if (nblines % 100000 == 0) {
-                    elapsed = System.currentTimeMillis() - start;
-                    System.out.println("(t0+" + elapsed / 1000F + " sec) : copy counts in " + filePathOut + "_" + num);
-                    out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filePathOut + "_" + num), "utf-8")));
-                    Object kstab[] = tr.keySet().toArray();
-                    kstablist.clear();
-                    for (Object os : kstab) {
-                        kstablist.add((String) os);
-                    }
-                    Collections.sort(kstablist);
-                    for (String s : kstablist) {
-                        Object kstab2[] = tr.get(s).keySet().toArray();
-                        kstab2list.clear();
-                        for (Object os2 : kstab2) {
-                            kstab2list.add((String) os2);
-                        }
-                        Collections.sort(kstab2list);
-                        for (String s2 : kstab2list) {
-                            out.println(s + " " + s2 + " " + tr.get(s).get(s2));
-                        }
-                    }
-                    out.close();
-                    num++;
-                    tr = new HashMap<String, HashMap<String, Integer>>();
-                }
-
-                lineSource = brSource.readLine();
-                lineTarget = brTarget.readLine();
-            }
-
-            elapsed = System.currentTimeMillis() - start;
-            System.out.println("(t0+" + elapsed / 1000F + " sec) : copy counts in " + filePathOut + "_" + num);
-            out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filePathOut + "_" + num), "utf-8")));
-            Object kstab[] = tr.keySet().toArray();
-            kstablist.clear();
-            for (Object s : kstab) {
-                kstablist.add((String) s);
-            }
-            Collections.sort(kstablist);
-            for (String s : kstablist) {
-                Object kstab2[] = tr.get(s).keySet().toArray();
-                kstab2list.clear();
-                for (Object s2 : kstab2) {
-                    kstab2list.add((String) s2);
-                }
-                Collections.sort(kstab2list);
-                for (String s2 : kstab2list) {
-                    out.println(s + " " + s2 + " " + tr.get(s).get(s2));
-                }
-            }
-            out.close();
-
-//            unioning all temporary counts files
-
-            String word1[] = new String[num + 1];
-            String word2[] = new String[num + 1];
-            Integer occ[] = new Integer[num + 1];
-            BufferedReader in[] = new BufferedReader[num + 1];
-            boolean eofin[] = new boolean[num + 1];
-            for (int i = 1; i <= num; i++) {
-                in[i] = new BufferedReader(new InputStreamReader(new FileInputStream(filePathOut + "_" + i), "utf-8"));
-                String line = in[i].readLine();
-                String words[] = line.split(" ");
-                word1[i] = words[0];
-                word2[i] = words[1];
-                occ[i] = Integer.parseInt(words[2]);
-                eofin[i] = false;
-            }
-
-            Logger.log("Now, unioning partial counts " + filePathOut + "_* into " + filePathOut + "_0");
-            System.out.println("Now, unioning partial counts " + filePathOut + "_* into " + filePathOut + "_0");
-
-            out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filePathOut + "_0"), "utf-8")));
-
-            int nbeof = 0;
-            while (nbeof != num) {
-                int min = -1;
-                for (int i = 1; i <= num; i++) {
-                    if (!eofin[i]) {
-                        if (min == -1) {
-                            min = i;
-                        } else if (word1[i].compareTo(word1[min]) < 0) {
-                            min = i;
-                        } else if (word1[i].compareTo(word1[min]) == 0) {
-                            if (word2[i].compareTo(word2[min]) < 0) {
-                                min = i;
-                            }
-                        }
-                    }
-                }
-                int somocc = 0;
-                for (int i = 1; i <= num; i++) {
-                    if (!eofin[i] && word1[i].equals(word1[min]) && word2[i].equals(word2[min])) {
-                        somocc += occ[i].intValue();
-                    }
-                }
-                out.println(word1[min] + " " + word2[min] + " " + somocc);
-                String currentword1 = word1[min];
-                String currentword2 = word2[min];
-                for (int i = 1; i <= num; i++) {
-                    if (!eofin[i] && word1[i].equals(currentword1) && word2[i].equals(currentword2)) {
-                        String line = in[i].readLine();
-                        if (line == null) {
-                            eofin[i] = true;
-                            nbeof++;
-                        } else {
-                            String words[] = line.split(" ");
-                            word1[i] = words[0];
-                            word2[i] = words[1];
-                            occ[i] = Integer.parseInt(words[2]);
-                        }
-                    }
-                }
-            }
-
-            out.close();
-
-            elapsed = System.currentTimeMillis() - start;
-            System.out.println("Counts obtained in " + elapsed / 1000F + " sec");
-            Logger.log("Counts obtained in " + elapsed / 1000F + " sec");
-
-//            reading counts file for computing mutual information and selecting best triggers
-
-            start = System.currentTimeMillis();
-            Logger.log("Now, computing mutual information from words and (s,t) counts...");
-            System.out.println("Now, computing mutual information from words and (s,t) counts...");
-
-            BufferedReader in2 = new BufferedReader(new InputStreamReader(new FileInputStream(filePathOut + "_0"), "utf-8"));
-            out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filePathOut), "utf-8")));
-
-            String line = in2.readLine();
-            String words[] = line.split(" ");
-            String w1 = words[0];
-            String w2 = words[1];
-            Integer occCouple = Integer.parseInt(words[2]);
-            String currentWord = w1;
-            setWords.clear();
-            setWords.put(w2, occCouple);
-            boolean ok = false;
-            int nbWords = 1;
-
-            while (!ok) {
-                line = in2.readLine();
-                if (line == null) {
-                    ok = true;
-                } else {
-                    words = line.split(" ");
-                    w1 = words[0];
-                    w2 = words[1];
-                    occCouple = Integer.parseInt(words[2]);
-                    if (w1.equals(currentWord)) {
-                        setWords.put(w2, occCouple);
-                    } else {
-                        //System.out.println(currentWord + " " + setWords.size());
-                        nbWords++;
-                        if (nbWords % 1000 == 0) {
-                            System.out.println("   " + nbWords + " / " + vocabularySource.size());
-                        }
-
-                        //HashMap<String, Float> strAndIm = new HashMap<String, Float>();
-                        strAndPIm.clear();
-                        for (String s : setWords.keySet()) {
-                            float im = (float) Math.log10((setWords.get(s) / nblines) / ((vocabularySource.get(currentWord) / nblines) * (vocabularyTarget.get(s) / nblines)));
-                            float pim = (float) (setWords.get(s) / nblines) * im;
-                            //strAndIm.put(s, im);
-                            strAndPIm.put(s, pim);
-                        }
-
-                        Object tab[] = setWords.keySet().toArray();
-                        if (nbMaxTriggers == -1) {
-                            Triggers.mysort(0, tab, strAndPIm, tab.length);
-                        } else {
-                            Triggers.mysort(0, tab, strAndPIm, nbMaxTriggers);
-                        }
-
-                        if (nbMaxTriggers != -1) {
-                            for (int i = 0; i < tab.length && i < nbMaxTriggers; i++) {
-                                out.println(currentWord + " " + (String) tab[i] + " " + vocabularySource.get(currentWord) + " " + vocabularyTarget.get((String) tab[i]) + " " + setWords.get((String) tab[i]) + " " + strAndPIm.get((String) tab[i]));
-                            }
-                        } else {
-                            for (int i = 0; i < tab.length; i++) {
-                                out.println(currentWord + " " + (String) tab[i] + " " + vocabularySource.get(currentWord) + " " + vocabularyTarget.get((String) tab[i]) + " " + setWords.get((String) tab[i]) + " " + strAndPIm.get((String) tab[i]));
-                            }
-                        }
-
-                        currentWord = w1;
-                        setWords.clear();
-                        setWords.put(w2, occCouple);
-                    }
-
-                }
-            }
-
-            // output for last currentWord
-            //HashMap<String, Float> strAndIm = new HashMap<String, Float>();
-            strAndPIm.clear();
-            for (String s : setWords.keySet()) {
-                float im = (float) Math.log10((setWords.get(s) / nblines) / ((vocabularySource.get(currentWord) / nblines) * (vocabularyTarget.get(s) / nblines)));
-                float pim = (float) (setWords.get(s) / nblines) * im;
-                //<strAndIm.put(s, im);
-                strAndPIm.put(s, pim);
-            }
-
-            Object tab[] = setWords.keySet().toArray();
-            if (nbMaxTriggers == -1) {
-                Triggers.mysort(0, tab, strAndPIm, tab.length);
-            } else {
-                Triggers.mysort(0, tab, strAndPIm, nbMaxTriggers);
-            }
-
-            if (nbMaxTriggers != -1) {
-                for (int i = 0; i < tab.length && i < nbMaxTriggers; i++) {
-                    out.println(currentWord + " " + (String) tab[i] + " " + vocabularySource.get(currentWord) + " " + vocabularyTarget.get((String) tab[i]) + " " + setWords.get((String) tab[i]) + " " + strAndPIm.get((String) tab[i]));
-                }
-            } else {
-                for (int i = 0; i < tab.length; i++) {
-                    out.println(currentWord + " " + (String) tab[i] + " " + vocabularySource.get(currentWord) + " " + vocabularyTarget.get((String) tab[i]) + " " + setWords.get((String) tab[i]) + " " + strAndPIm.get((String) tab[i]));
-                }
-            }
-
-
-
-
-            in2.close();
-            out.close();
-
-            //delete temporary files
-            for (int i = 0; i <= num; i++) {
-                java.io.File f = new java.io.File(filePathOut + "_" + i);
-                f.delete();
-            }
-
-            elapsed = System.currentTimeMillis() - start;
-            System.out.println("Computed in " + elapsed / 1000F + " sec");
-            Logger.log("Computed in " + elapsed / 1000F + " sec");
-
+            new TriggerBuilder(filePathOut, nbMaxTriggers, mono, threads, memory).build(filePathSource, filePathTarget, threads);
             return 0;
         } catch (java.io.IOException e) {
             e.printStackTrace();
             return -1;
-        }
-    }
-
-    static void mysort(int prof, Object tab[], HashMap<String, Float> strAndIm, int nbMaxTriggers) {
-        int cmp;
-        int nbLeft = 0;
-        int nbRight = 0;
-        Object left[] = null;
-        Object right[] = null;
-        Object temp;
-
-        //for (int i = 0; i < prof * 3; i++) {
-        //    System.out.print(" ");
-        //}
-        //System.out.println(tab.length);
-
-        if (tab.length > 1) {
-            int m = (tab.length - 1) / 2;
-            temp = tab[m];
-            for (int i = 0; i < tab.length; i++) {
-                if (m != i) {
-                    cmp = strAndIm.get((String) tab[i]).compareTo(strAndIm.get((String) tab[m]));
-                    if (cmp > 0) {
-                        nbLeft++;
-                    } else {
-                        nbRight++;
-                    }
-                }
-            }
-            if (nbLeft > 0) {
-                left = new Object[nbLeft];
-            }
-            if (nbRight > 0) {
-                right = new Object[nbRight];
-            }
-            nbLeft = 0;
-            nbRight = 0;
-            for (int i = 0; i < tab.length; i++) {
-                if (i != m) {
-                    cmp = strAndIm.get((String) tab[i]).compareTo(strAndIm.get((String) tab[m]));
-                    if (cmp > 0) {
-                        left[nbLeft] = tab[i];
-                        nbLeft++;
-                    } else {
-                        right[nbRight] = tab[i];
-                        nbRight++;
-                    }
-                }
-            }
-            if (nbLeft > 0) {
-                mysort(prof + 1, left, strAndIm, nbMaxTriggers);
-            }
-            if (nbRight > 0 && nbLeft < nbMaxTriggers) {
-                mysort(prof + 1, right, strAndIm, nbMaxTriggers);
-            }
-            for (int i = 0; i < nbLeft; i++) {
-                tab[i] = left[i];
-            }
-            tab[nbLeft] = temp;
-            for (int i = 0; i < nbRight; i++) {
-                tab[nbLeft + 1 + i] = right[i];
-            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            return -1;
         }
     }
 
@@ -792,16 +588,4 @@ public class Triggers extends Resource {
             buildTriggers(source, source, output, nbm);
         }
     }
-
-    public float getScore(String a, String b) {
-        if (triggers.containsKey(a)) {
-            if (triggers.get(a).containsKey(b)) {
-                return triggers.get(a).get(b);
-            } else {
-                return 0;
-            }
-        } else {
-            return 0;
-        }
-    }
 }
@@ -1,16 +1,22 @@
-
 package shef.mt.tools;
 
 import shef.mt.features.util.*;
-import java.io.*;
-import java.util.*;
 
 /**
+ * Scores sentences with a Triggers model. The phrases of each sentence are
+ * looked up once, as ids, and kept on the sentence, from which the intra
+ * lingual score of the sentence and the inter lingual score of a sentence pair
+ * are computed.
  *
  * @author David Langlois
  *
  */
 public class TriggersProcessor extends ResourceProcessorTwoSentences {
+
+    private static final SentenceKey<TriggerPhrases> PHRASES = SentenceKey.of("triggerPhrases");
+    private static final SentenceKey<Float> INTRA_LINGUAL_SCORE = SentenceKey.of("IntraLingualScore");
+    private static final SentenceKey<Float> INTER_LINGUAL_SCORE = SentenceKey.of("InterLingualSourceTargetScore");
+
     Triggers ilt;
 
     public TriggersProcessor(Triggers ilt) {
@@ -19,85 +25,52 @@ public class TriggersProcessor extends ResourceProcessorTwoSentences {
     }
 
     public void processNextSentence(Sentence s) {
-        float som = 0;
-        int nb = 0;
-        int i,j,k;
-        HashMap<String,Integer> phrasesSource = new HashMap<String,Integer>();
-        
-
         //building the set of source phrases in source sentence
-        for(i=0; i<s.getNoTokens(); i++){
-            for(j=1; j<=ilt.lengthMaxSide1; j++){
-                String phrase = new String(s.getToken(i));
-                for(k=2; k<=j; k++)
-                    phrase.concat(ilt.phraseSeparator+s.getToken(i+k-1));
-                if ( !phrasesSource.containsKey(phrase) )
-                    phrasesSource.put(phrase, 1);
-            }
-        }
-        
-        s.setValue("phrases", phrasesSource);
-        s.setValue("ilt", this.ilt);   
-        
-        for( String phraseSource1 : phrasesSource.keySet() ){
-            for( String phraseSource2 : phrasesSource.keySet() ){
-                if ( !phraseSource1.equals(phraseSource2) ){
-                    som += ilt.getScore(phraseSource1, phraseSource2);
-                    nb++;
-                }
-            }
-        }
-        if ( nb == 0 )
-            s.setValue("IntraLingualScore",new Float(0));
-        else
-            s.setValue("IntraLingualScore",som/nb);
+        TriggerPhrases phrasesSource = new TriggerPhrases(ilt, s.getTokens(), ilt.lengthMaxSide1);
+        s.setValue(PHRASES, phrasesSource);
+        s.setValue(INTRA_LINGUAL_SCORE, phrasesSource.getIntraLingualScore());
     }
 
     public void processNextParallelSentences(Sentence s, Sentence t) {
-        float som = 0;
-        int nb = 0;
-        int i,j,k;
-        HashMap<String,Integer> phrasesSource = new HashMap<String,Integer>();
-        HashMap<String,Integer> phrasesTarget = new HashMap<String,Integer>();
+        TriggerPhrases phrasesSource = new TriggerPhrases(ilt, s.getTokens(), ilt.lengthMaxSide1);
+        TriggerPhrases phrasesTarget = new TriggerPhrases(ilt, t.getTokens(), ilt.lengthMaxSide2);
+        t.setValue(INTER_LINGUAL_SCORE, phrasesSource.getInterLingualScore(phrasesTarget));
+    }
 
-        //building the set of source phrases in source sentence
-        for(i=0; i<s.getNoTokens(); i++){
-            for(j=1; j<=ilt.lengthMaxSide1; j++){
-                String phrase = new String(s.getToken(i));
-                //phrase.concat(s.getToken(i));
-                for(k=2; k<=j; k++)
-                    phrase.concat(ilt.phraseSeparator+s.getToken(i+k-1));
-                if ( !phrasesSource.containsKey(phrase) )
-                    phrasesSource.put(phrase, 1);
+    /**
+     * Returns the inter lingual score of a sentence pair, from the phrases
+     * last found in both sentences by a TriggersProcessor. The phrases of the
+     * target sentence are found again if the right side of the triggers has
+     * longer or shorter phrases than the left side. The score is computed
+     * once per pair and kept on the target sentence.
+     *
+     * @param source the source sentence
+     * @param target the target sentence
+     * @return the mean score of the triggers from a source phrase to a target
+     * phrase
+     */
+    public static float getInterLingualScore(Sentence source, Sentence target) {
+        Float score = target.getValue(INTER_LINGUAL_SCORE);
+        if (score == null) {
+            TriggerPhrases phrasesSource = source.getValue(PHRASES);
+            TriggerPhrases phrasesTarget = target.getValue(PHRASES);
+            Triggers triggers = phrasesTarget.getTriggers();
+            if (phrasesSource.getTriggers() != triggers) {
+                //Phrases of other models have other ids:
+                phrasesSource = new TriggerPhrases(triggers, source.getTokens(), triggers.lengthMaxSide1);
             }
-        }
-        
-        //building the set of target phrases in target sentence
-        for(i=0; i<t.getNoTokens(); i++){
-            for(j=1; j<=ilt.lengthMaxSide2; j++){
-                String phrase = new String(t.getToken(i));
-                //phrase.concat(t.getToken(i));
-                for(k=2; k<=j; k++)
-                    phrase.concat(ilt.phraseSeparator+t.getToken(i+k-1));
-                if ( !phrasesTarget.containsKey(phrase) )
-                    phrasesTarget.put(phrase, 1);
-            }
-        }
-
-        for( String phraseSource : phrasesSource.keySet() ){
-            for( String phraseTarget : phrasesTarget.keySet() ){
-                    som += ilt.getScore(phraseSource, phraseTarget);
-                    nb++;
+            if (triggers.lengthMaxSide2 != triggers.lengthMaxSide1) {
+                //Target phrases are as long as the right side of the triggers:
+                phrasesTarget = new TriggerPhrases(triggers, target.getTokens(), triggers.lengthMaxSide2);
             }
+            score = phrasesSource.getInterLingualScore(phrasesTarget);
+            target.setValue(INTER_LINGUAL_SCORE, score);
         }
-        if ( som == 0 )
-            t.setValue("InterLingualSourceTargetScore",new Float(0));
-        else
-            t.setValue("InterLingualSourceTargetScore",som/nb);
+        return score;
     }
 
     @Override
     public void processNextDocument(Doc source) {
         throw new UnsupportedOperationException("Not supported yet.");
     }
-}
\ No newline at end of file
+}
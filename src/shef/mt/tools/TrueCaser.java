@@ -0,0 +1,206 @@
+package shef.mt.tools;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import shef.mt.util.Logger;
+
+/**
+ * In-process version of the Moses truecase.perl script, as run by Caser with
+ * --model. The truecase model is read once, in the format written by the
+ * Moses train-truecaser.perl script: one word per line, in its most frequent
+ * casing, followed by its counts and its other casings. Sentences are then
+ * truecased one at a time, with the output of the script. Instances can be
+ * used from several threads at once.
+ *
+ * @author GustavoH
+ */
+public class TrueCaser {
+
+    private HashMap<String, String> best;
+    private HashSet<String> known;
+
+    /**
+     * loads a truecase model
+     *
+     * @param modelPath the path of the model
+     * @throws IOException if the model cannot be read
+     */
+    public TrueCaser(String modelPath) throws IOException {
+        best = new HashMap<String, String>();
+        known = new HashSet<String>();
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(modelPath), "utf-8"));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                ArrayList<String> fields = split(line);
+                if (fields.isEmpty()) {
+                    continue;
+                }
+                String word = fields.get(0);
+                best.put(lowercase(word), word);
+                known.add(word);
+                //Fields after the word alternate counts and other casings:
+                for (int i = 2; i < fields.size() - 1; i += 2) {
+                    known.add(fields.get(i));
+                }
+            }
+        } finally {
+            br.close();
+        }
+        Logger.log("Loaded truecase model " + modelPath + " with " + best.size() + " words");
+    }
+
+    /**
+     * lowercases a sentence, as the Moses lowercase.perl script does: Perl's
+     * lc has no final sigma rule, so capital sigma always becomes "σ"
+     */
+    public static String lowercase(String line) {
+        return line.replace('\u03a3', '\u03c3').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Truecases a sentence. Words at the start of a sentence take their most
+     * frequent casing; other words keep their casing if it is known, and take
+     * their most frequent casing otherwise. XML tags and factors after "|" are
+     * left unchanged.
+     *
+     * @param line the sentence, without its line break
+     * @return the truecased sentence, which ends with a space, as in the
+     * output of the script
+     */
+    public String truecase(String line) {
+        //Store away XML markup, which comes before the word of the same index:
+        ArrayList<String> words = new ArrayList<String>();
+        ArrayList<StringBuilder> markup = new ArrayList<StringBuilder>();
+        markup.add(new StringBuilder());
+        int length = line.length();
+        int position = 0;
+        while (true) {
+            while (position < length && isSpace(line.charAt(position))) {
+                position++;
+            }
+            if (position == length) {
+                break;
+            }
+            int tagEnd = -1;
+            if (line.charAt(position) == '<' && position + 1 < length && !isSpace(line.charAt(position + 1))) {
+                tagEnd = line.indexOf('>', position + 2);
+            }
+            if (tagEnd != -1) {
+                markup.get(words.size()).append(line, position, tagEnd + 1).append(' ');
+                position = tagEnd + 1;
+            } else {
+                int start = position;
+                while (position < length && !isSpace(line.charAt(position))) {
+                    position++;
+                }
+                words.add(line.substring(start, position));
+                markup.add(new StringBuilder());
+            }
+        }
+        StringBuilder last = markup.get(markup.size() - 1);
+        if (last.length() > 0) {
+            last.setLength(last.length() - 1);
+        }
+
+        StringBuilder result = new StringBuilder(length + 2);
+        boolean sentenceStart = true;
+        for (int i = 0; i < words.size(); i++) {
+            if (i > 0) {
+                result.append(' ');
+            }
+            result.append(markup.get(i));
+
+            //Factors after the word are kept as they are:
+            String token = words.get(i);
+            int bar = token.indexOf('|', 1);
+            String word = bar == -1 ? token : token.substring(0, bar);
+            String lowercased = lowercase(word);
+
+            if (sentenceStart && best.containsKey(lowercased)) {
+                //Truecase sentence start:
+                result.append(best.get(lowercased));
+            } else if (known.contains(word)) {
+                //Don't change known words:
+                result.append(word);
+            } else if (best.containsKey(lowercased)) {
+                //Truecase otherwise unknown words:
+                result.append(best.get(lowercased));
+            } else {
+                //Unknown, nothing to do:
+                result.append(word);
+            }
+            if (bar != -1) {
+                result.append(token, bar, token.length());
+            }
+
+            if (isSentenceEnd(word)) {
+                sentenceStart = true;
+            } else if (!isDelayedSentenceStart(word)) {
+                sentenceStart = false;
+            }
+        }
+        result.append(' ').append(last);
+        return result.toString();
+    }
+
+    private static boolean isSentenceEnd(String word) {
+        return word.equals(".") || word.equals(":") || word.equals("?") || word.equals("!");
+    }
+
+    private static boolean isDelayedSentenceStart(String word) {
+        return word.equals("(") || word.equals("[") || word.equals("\"") || word.equals("'");
+    }
+
+    /**
+     * splits a line of the model on white space, as Perl's split does
+     */
+    private static ArrayList<String> split(String line) {
+        ArrayList<String> fields = new ArrayList<String>();
+        int position = 0;
+        while (position < line.length()) {
+            while (position < line.length() && isSpace(line.charAt(position))) {
+                position++;
+            }
+            int start = position;
+            while (position < line.length() && !isSpace(line.charAt(position))) {
+                position++;
+            }
+            if (position > start) {
+                fields.add(line.substring(start, position));
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * tells whether a character is white space, as \s in Perl
+     */
+    static boolean isSpace(char c) {
+        switch (c) {
+            case '\t':
+            case '\n':
+            case 0x0B:
+            case '\f':
+            case '\r':
+            case ' ':
+            case 0x85:
+            case 0xA0:
+            case 0x1680:
+            case 0x2028:
+            case 0x2029:
+            case 0x202F:
+            case 0x205F:
+            case 0x3000:
+                return true;
+            default:
+                return c >= 0x2000 && c <= 0x200A;
+        }
+    }
+}
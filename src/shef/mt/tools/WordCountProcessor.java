@@ -35,4 +35,9 @@ public class WordCountProcessor extends ResourceProcessor {
     public void processNextDocument(Doc source) {
         throw new UnsupportedOperationException("Not supported yet.");
     }
+
+    @Override
+    public boolean isSequential() {
+        return false;
+    }
 }
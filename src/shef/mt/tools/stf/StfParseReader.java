@@ -8,6 +8,8 @@ import java.io.*;
 import java.util.*;
 
 import shef.mt.tools.ResourceManager;
+import shef.mt.util.AnnotationReader;
+import shef.mt.util.Pair;
 
 /**
  * @author Catalina Hallett
@@ -22,78 +24,104 @@ public class StfParseReader {
         "VP", "PP", "ADVP", "ADJP", "PRT", "WHNP", "WHADVP", "WHPP", "CONJP", "PRN",
         "NAC", "UCP", "LST", "X", "INTJ", "SINV", "NX", "QP", "RRC",
         "UCP", "WHADJP", "NP-TMP"};
-    BufferedReader br;
+    AnnotationReader<ParsedSentence> br;
     private TreeSet<String> phraseTags;
 
-    public StfParseReader(String input) {
-        try {
-            br = new BufferedReader(new FileReader(input));
-            phraseTags = new TreeSet<String>();
-            for (String tag : PHRASE_TAGS) {
-                phraseTags.add(tag);
-            }
-            ResourceManager.registerResource("stf");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
+    /**
+     * The parse tree and the dependencies of a sentence.
+     */
+    private static class ParsedSentence {
 
-    public boolean isAvailable() {
-        return br != null;
+        private String parse;
+        private ArrayList<Pair> dependencies = new ArrayList<Pair>();
     }
 
     /**
-     * Retrieves the parse tree and the dependencies corresponding to the
-     * following sentence in the input and processes it It retrieves a series of
-     * values from the parsed input and sets them as values of the Sentence
-     * parameter
-     *
-     * @param sent he current sentence
+     * Reads the parse tree and the dependencies of the next sentence.
      */
-    public void processNextSentence(Sentence sent) {
-        try {
-            if (br == null) {
-                return;
-            }
+    private static final AnnotationReader.Parser<ParsedSentence> PARSER = new AnnotationReader.Parser<ParsedSentence>() {
+        @Override
+        public ParsedSentence next(BufferedReader br) throws IOException {
             //read lines until we reach the beginning of the parse tree: starts with (ROOT
             String line = br.readLine();
             while (line != null && !line.trim().startsWith("(ROOT")) {
                 line = br.readLine();
             }
+            if (line == null) {
+                return null;
+            }
 
             //skip the parse tree
-            StringBuffer parse = new StringBuffer();
+            ParsedSentence result = new ParsedSentence();
+            StringBuilder parse = new StringBuilder();
             while (line != null && !line.trim().isEmpty()) {
                 parse.append(line);
                 line = br.readLine();
             }
-            processParse(parse.toString(), sent);
+            result.parse = parse.toString();
 
             if (line == null) {
-                br.close();
-                return;
+                return result;
             }
 
             //now we've reached the list of dependencies
             //format is dep(token1-number1,token2-number2)
 
             line = br.readLine();
-
-            String lineTrim = line.trim();
             String[] tokens;
-            shef.mt.util.Pair p = null;
-            while (!lineTrim.isEmpty() && line != null) {
+            while (line != null && !line.trim().isEmpty()) {
+                String lineTrim = line.trim();
                 tokens = lineTrim.substring(4, lineTrim.length() - 1).split(",");
                 if (tokens.length == 2) {
-                    p = new shef.mt.util.Pair(tokens[0].substring(0, tokens[0].lastIndexOf("-")), tokens[1].substring(0, tokens[1].lastIndexOf("-")));
-                    sent.addDependency(p);
+                    result.dependencies.add(new Pair(tokens[0].substring(0, tokens[0].lastIndexOf("-")), tokens[1].substring(0, tokens[1].lastIndexOf("-"))));
                 } else {
                     System.out.println("CANT PROCESS THIS LINE: " + lineTrim);
                 }
 
 
                 line = br.readLine();
-                lineTrim = line.trim();
+            }
+            return result;
+        }
+    };
+
+    public StfParseReader(String input) {
+        try {
+            br = new AnnotationReader<ParsedSentence>(input, PARSER);
+            phraseTags = new TreeSet<String>();
+            for (String tag : PHRASE_TAGS) {
+                phraseTags.add(tag);
+            }
+            ResourceManager.registerResource("stf");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public boolean isAvailable() {
+        return br != null;
+    }
+
+    /**
+     * Retrieves the parse tree and the dependencies corresponding to the
+     * following sentence in the input and processes it It retrieves a series of
+     * values from the parsed input and sets them as values of the Sentence
+     * parameter
+     *
+     * @param sent he current sentence
+     */
+    public void processNextSentence(Sentence sent) {
+        try {
+            if (br == null) {
+                return;
+            }
+            ParsedSentence parsed = br.get(sent.getIndex());
+            if (parsed == null) {
+                return;
+            }
+            processParse(parsed.parse, sent);
+            for (Pair p : parsed.dependencies) {
+                sent.addDependency(p);
             }
 
         } catch (IOException e) {
@@ -184,12 +212,8 @@ public class StfParseReader {
     }
 
     public void close() {
-        try {
-            if (br != null) {
-                br.close();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (br != null) {
+            br.close();
         }
     }
 
@@ -0,0 +1,172 @@
+package shef.mt.util;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams the annotations of the sentences of a file produced by an external
+ * tool, such as a tagger, a parser or a named entity recogniser. The file is
+ * read once, with a single cursor, as a sequence of blocks, one per sentence,
+ * in the order of the input. The format of a block is given by a Parser.
+ * <br> Blocks are parsed ahead on a background thread and handed out by
+ * sentence index: get(i) returns the block of the i-th sentence, skipping the
+ * blocks of sentences that were not asked for. Sentences must be asked for in
+ * increasing order.
+ *
+ * @param <T> the type of the annotations of a sentence
+ * @author GustavoH
+ */
+public class AnnotationReader<T> {
+
+    /**
+     * Reads the block of the next sentence from a file.
+     *
+     * @param <T> the type of the annotations of a sentence
+     */
+    public interface Parser<T> {
+
+        /**
+         * @param in the file, positioned at the start of the block
+         * @return the annotations of the sentence, or null at the end of the
+         * file
+         */
+        T next(BufferedReader in) throws IOException;
+    }
+
+    /**
+     * One line per sentence.
+     */
+    public static final Parser<String> LINES = new Parser<String>() {
+        @Override
+        public String next(BufferedReader in) throws IOException {
+            return in.readLine();
+        }
+    };
+
+    /**
+     * One token per line, with tab-separated annotations, and an empty line
+     * after each sentence. Lines starting with # are comments. A sentence is
+     * returned as the fields of each of its tokens.
+     */
+    public static final Parser<ArrayList<String[]>> TOKEN_BLOCKS = new Parser<ArrayList<String[]>>() {
+        @Override
+        public ArrayList<String[]> next(BufferedReader in) throws IOException {
+            String line = in.readLine();
+            if (line == null) {
+                return null;
+            }
+            ArrayList<String[]> tokens = new ArrayList<String[]>();
+            while (line != null && !line.isEmpty()) {
+                if (!line.startsWith("#")) {
+                    tokens.add(line.split("\t"));
+                }
+                line = in.readLine();
+            }
+            return tokens;
+        }
+    };
+
+    private static final int READ_AHEAD = 256;
+    private static final Object END = new Object();
+
+    private String path;
+    private BufferedReader in;
+    private BlockingQueue<Object> queue;
+    private Thread reader;
+    private int cursor;
+    private boolean done;
+
+    /**
+     * opens a file and starts reading its blocks ahead
+     *
+     * @param path the path of the file
+     * @param parser the format of the blocks
+     * @throws IOException if the file cannot be opened
+     */
+    public AnnotationReader(String path, final Parser<T> parser) throws IOException {
+        this.path = path;
+        in = new BufferedReader(new InputStreamReader(new FileInputStream(path), "utf-8"), 1 << 16);
+        queue = new ArrayBlockingQueue<Object>(READ_AHEAD);
+        reader = new Thread("AnnotationReader " + path) {
+            @Override
+            public void run() {
+                try {
+                    T block = parser.next(in);
+                    while (block != null) {
+                        queue.put(block);
+                        block = parser.next(in);
+                    }
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                } catch (Throwable e) {
+                    //Any failure is handed to get(), which would wait forever otherwise:
+                    try {
+                        queue.put(e);
+                    } catch (InterruptedException ie) {
+                    }
+                } finally {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                    }
+                }
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Returns the annotations of a sentence.
+     *
+     * @param sentenceIndex the index of the sentence in the file, starting at
+     * 0
+     * @return the annotations of the sentence, or null if the file has no
+     * block for it or the block was passed already
+     * @throws IOException if the file cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T get(int sentenceIndex) throws IOException {
+        if (sentenceIndex < cursor) {
+            Logger.log("Annotations of sentence " + sentenceIndex + " in " + path + " were passed already");
+            return null;
+        }
+        while (!done) {
+            Object block;
+            try {
+                block = queue.take();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (block == END) {
+                done = true;
+            } else if (block instanceof Throwable) {
+                done = true;
+                if (block instanceof IOException) {
+                    throw (IOException) block;
+                } else if (block instanceof RuntimeException) {
+                    throw (RuntimeException) block;
+                } else if (block instanceof Error) {
+                    throw (Error) block;
+                }
+                throw new IOException((Throwable) block);
+            } else if (cursor++ == sentenceIndex) {
+                return (T) block;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * stops reading the file
+     */
+    public void close() {
+        done = true;
+        reader.interrupt();
+    }
+}
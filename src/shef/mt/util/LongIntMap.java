@@ -0,0 +1,170 @@
+package shef.mt.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to int values, stored in two primitive arrays with
+ * open addressing and linear probing. Keys and values are never boxed, which
+ * makes it suitable for holding tens of millions of entries.<br>
+ * Long.MIN_VALUE is used to mark empty slots and cannot be used as a key.
+ *
+ * @author GustavoH
+ */
+public class LongIntMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int threshold;
+
+    public LongIntMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize the number of entries the map should hold without
+     * being resized
+     */
+    public LongIntMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = capacity * 3 / 4;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * returns the value of a key
+     *
+     * @param key the key
+     * @param missing the value returned if the key is not in the map
+     */
+    public int get(long key, int missing) {
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    public boolean containsKey(long key) {
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * sets the value of a key
+     */
+    public void put(long key, int value) {
+        int i = find(key);
+        values[i] = value;
+    }
+
+    /**
+     * adds delta to the value of a key, which starts at 0
+     *
+     * @return the new value
+     */
+    public int increment(long key, int delta) {
+        int i = find(key);
+        values[i] += delta;
+        return values[i];
+    }
+
+    /**
+     * returns the slot of a key, inserting it with value 0 if necessary
+     */
+    private int find(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key.");
+        }
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size >= threshold) {
+            rehash(keys.length << 1);
+            return find(key);
+        }
+        keys[i] = key;
+        values[i] = 0;
+        size++;
+        return i;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = slot(oldKeys[j]);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * @return the number of slots, including empty ones; slots are addressed
+     * by keyAt and valueAt
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return true if the slot holds an entry
+     */
+    public boolean isUsed(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+}
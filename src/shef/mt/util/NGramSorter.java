@@ -3,19 +3,29 @@
  */
 package shef.mt.util;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.util.*;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 /**
  * Processes a language model file The result of this processing will be a new
  * file containing at the top information about the cut-off frequencies in
  * various portions of the language model, followed by those entries in the
- * original file that have the frequency larger than a given threshold
+ * original file that have the frequency larger than a given threshold<br>
+ * The file is read twice, in as many chunks as there are processors, and no
+ * ngram is kept in memory: the first pass builds, for each ngram size, a
+ * histogram of the frequencies above the threshold, from which the cut-off
+ * frequencies are read exactly; the second pass copies the entries above the
+ * threshold, in the order of the original file, after the cut-offs.
  *
  * @author cat
  *
@@ -24,86 +34,308 @@ import java.util.*;
  */
 public class NGramSorter {
 
-    private static HashMap<String, Integer> ngrams;
-    private static ArrayList[] freqs;
-    private static int[][] cutOffs;	//for storing cut-off frequencies
-
     public NGramSorter() {
     }
 
     public static void run(String corpus, int sliceNo, int nSize, int minFreq, String output) {
-        ngrams = new HashMap<String, Integer>();
-        freqs = new ArrayList[nSize];
-        for (int i = 0; i < nSize; i++) {
-            freqs[i] = new ArrayList();
-        }
-        cutOffs = new int[nSize][sliceNo];
+        run(corpus, sliceNo, nSize, minFreq, output, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void run(String corpus, int sliceNo, int nSize, int minFreq, String output, int threads) {
 //        System.out.println("Sorting ngrams ...");
         long start = System.currentTimeMillis();
         try {
-            BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(corpus), "utf-8"));
-            String line = br.readLine();
-            String[] lineSplit;
-            while (line.trim().isEmpty()) {
-                line = br.readLine();
-            }
-
-            while (line != null) {
-                if (!line.trim().isEmpty()) {
-                    lineSplit = line.split("\t");
-                    //System.out.println(line);
-                    int freq = Integer.parseInt(lineSplit[1]);
-                    int ngSize = lineSplit[0].split(" ").length - 1;
-                    if (freq > minFreq) {
-                        ngrams.put(lineSplit[0], freq);
-                        //System.out.println(ngSize+"\t"+freq);
-                        freqs[ngSize].add(freq);
-                        //			System.out.println(lineSplit[0]+"  "+ngSize+" "+freq);
+            //Split the file in chunks that start at the beginning of a line:
+            long length = new File(corpus).length();
+            int chunkCount = (int) Math.max(1, Math.min(threads, length / (1 << 20)));
+            long[] bounds = new long[chunkCount + 1];
+            for (int i = 1; i < chunkCount; i++) {
+                bounds[i] = length * i / chunkCount;
+            }
+            bounds[chunkCount] = length;
+
+            //Build frequency histograms:
+            Chunk[] chunks = new Chunk[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                chunks[i] = new Chunk(corpus, bounds[i], bounds[i + 1], nSize, minFreq, null);
+            }
+            runAll(chunks);
+            LongIntMap[] histograms = chunks[0].histograms;
+            for (int i = 1; i < chunkCount; i++) {
+                for (int size = 0; size < nSize; size++) {
+                    LongIntMap other = chunks[i].histograms[size];
+                    for (int slot = 0; slot < other.capacity(); slot++) {
+                        if (other.isUsed(slot)) {
+                            histograms[size].increment(other.keyAt(slot), other.valueAt(slot));
+                        }
                     }
-                    line = br.readLine();
                 }
             }
-            br.close();
+            int[][] cutOffs = computeCutoffs(histograms, sliceNo, nSize);
+
+            //Copy the entries above the threshold to temporary files:
+            File folder = new File(output).getAbsoluteFile().getParentFile();
+            for (int i = 0; i < chunkCount; i++) {
+                File part = File.createTempFile("ngrams", ".part", folder);
+                part.deleteOnExit();
+                chunks[i] = new Chunk(corpus, bounds[i], bounds[i + 1], nSize, minFreq, part);
+            }
+            runAll(chunks);
+
+            //Write cut-offs followed by the entries:
+            writeToFile(output, cutOffs, chunks);
         } catch (Exception e) {
             e.printStackTrace();
         }
-        computeCutoffs(sliceNo, nSize);
-        writeToFile(output, sliceNo, nSize);
+        Logger.log("Ngram file " + corpus + " processed in " + (System.currentTimeMillis() - start) / 1000F + " sec");
+    }
+
+    private static void runAll(Chunk[] chunks) throws IOException, InterruptedException {
+        for (Chunk chunk : chunks) {
+            chunk.start();
+        }
+        for (Chunk chunk : chunks) {
+            chunk.join();
+        }
+        for (Chunk chunk : chunks) {
+            if (chunk.error != null) {
+                throw chunk.error;
+            }
+        }
+    }
+
+    /**
+     * Reads the lines of a chunk of the file, i.e., the lines that start
+     * between two positions. Lines are handled as bytes, which are not decoded.
+     */
+    private static class Chunk extends Thread {
+
+        private String path;
+        private long start;
+        private long end;
+        private int nSize;
+        private int minFreq;
+        private File part;
+        private LongIntMap[] histograms;
+        private IOException error;
+
+        Chunk(String path, long start, long end, int nSize, int minFreq, File part) {
+            this.path = path;
+            this.start = start;
+            this.end = end;
+            this.nSize = nSize;
+            this.minFreq = minFreq;
+            this.part = part;
+        }
+
+        @Override
+        public void run() {
+            try {
+                FileInputStream fis = new FileInputStream(path);
+                OutputStream out = part == null ? null : new BufferedOutputStream(new FileOutputStream(part), 1 << 16);
+                try {
+                    histograms = new LongIntMap[nSize];
+                    for (int i = 0; i < nSize; i++) {
+                        histograms[i] = new LongIntMap(64);
+                    }
+                    //A line that starts at the start of the chunk belongs to it:
+                    long position = Math.max(0, start - 1);
+                    fis.getChannel().position(position);
+                    LineReader reader = new LineReader(fis, position);
+                    if (start > 0) {
+                        reader.next();
+                    }
+                    while (reader.getStart() < end && reader.next()) {
+                        processLine(reader.line, reader.length, out);
+                    }
+                } finally {
+                    fis.close();
+                    if (out != null) {
+                        out.close();
+                    }
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        /**
+         * reads the size and frequency of a "ngram\tfrequency" line, and
+         * either counts its frequency or copies it if it is above the
+         * threshold
+         */
+        private void processLine(byte[] line, int length, OutputStream out) throws IOException {
+            int tab = 0;
+            while (tab < length && line[tab] != '\t') {
+                tab++;
+            }
+            if (tab == length) {
+                return;
+            }
+            long freq = 0;
+            int i = tab + 1;
+            boolean negative = i < length && line[i] == '-';
+            if (negative) {
+                i++;
+            }
+            int digits = i;
+            while (i < length && line[i] >= '0' && line[i] <= '9') {
+                freq = freq * 10 + (line[i] - '0');
+                i++;
+            }
+            if (i == digits || (i < length && line[i] != '\t')) {
+                return;
+            }
+            freq = negative ? -freq : freq;
+            if (freq <= minFreq) {
+                return;
+            }
+
+            //The size is the number of words, not counting trailing spaces:
+            int words = 1;
+            int last = tab - 1;
+            while (last >= 0 && line[last] == ' ') {
+                last--;
+            }
+            for (int j = 0; j < last; j++) {
+                if (line[j] == ' ') {
+                    words++;
+                }
+            }
+            if (words > nSize) {
+                return;
+            }
+
+            if (out == null) {
+                histograms[words - 1].increment(freq, 1);
+            } else {
+                out.write(line, 0, i);
+                out.write('\r');
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Reads a stream line by line into a reusable byte array.
+     */
+    private static class LineReader {
+
+        private InputStream in;
+        private long position;
+        private byte[] line = new byte[256];
+        private int length;
+
+        LineReader(InputStream in, long position) {
+            this.in = new BufferedInputStream(in, 1 << 16);
+            this.position = position;
+        }
+
+        /**
+         * @return the position of the next line in the file
+         */
+        long getStart() {
+            return position;
+        }
+
+        /**
+         * reads the next line, without its end of line characters
+         *
+         * @return false at the end of the stream
+         */
+        boolean next() throws IOException {
+            length = 0;
+            int b = in.read();
+            if (b == -1) {
+                return false;
+            }
+            while (b != -1 && b != '\n') {
+                position++;
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = (byte) b;
+                b = in.read();
+            }
+            if (b == '\n') {
+                position++;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return true;
+        }
     }
 
-    public static void computeCutoffs(int sliceNo, int nSize) {
+    /**
+     * Reads the cut-off frequencies that split the frequencies of each ngram
+     * size in sliceNo slices from their histograms.
+     */
+    public static int[][] computeCutoffs(LongIntMap[] histograms, int sliceNo, int nSize) {
+        int[][] cutOffs = new int[nSize][sliceNo];
         for (int i = 0; i < nSize; i++) {
-            Collections.sort(freqs[i]);
-            int size = freqs[i].size() - 1;
+            LongIntMap histogram = histograms[i];
+            long[] values = new long[histogram.size()];
+            long total = 0;
+            int n = 0;
+            for (int slot = 0; slot < histogram.capacity(); slot++) {
+                if (histogram.isUsed(slot)) {
+                    values[n++] = histogram.keyAt(slot);
+                    total += histogram.valueAt(slot);
+                }
+            }
+            if (total == 0) {
+                continue;
+            }
+            Arrays.sort(values);
+            long size = total - 1;
 
             for (int j = 0; j < sliceNo; j++) {
-//                System.out.println("i=" + i + "j=" + j + " size=" + size + " " + (j + 1) * size / sliceNo + " " + freqs[i].get((j + 1) * size / sliceNo));
-                cutOffs[i][j] = ((Integer) freqs[i].get((int) Math.floor((j + 1) * size / sliceNo))).intValue();
+                //Find the frequency at this position of the sorted frequencies:
+                long rank = (j + 1) * size / sliceNo;
+                long seen = 0;
+                int k = 0;
+                seen += histogram.get(values[k], 0);
+                while (seen <= rank) {
+                    k++;
+                    seen += histogram.get(values[k], 0);
+                }
+                cutOffs[i][j] = (int) values[k];
             }
         }
+        return cutOffs;
     }
 
-    private static void writeToFile(String output, int sliceNo, int nSize) {
+    private static void writeToFile(String output, int[][] cutOffs, Chunk[] chunks) throws IOException {
+        FileOutputStream fos = new FileOutputStream(output + ".clean");
         try {
-            BufferedWriter bwOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output + ".clean"), "utf-8"));
-            for (int i = 0; i < nSize; i++) {
+            BufferedWriter bwOut = new BufferedWriter(new OutputStreamWriter(fos, "utf-8"));
+            for (int i = 0; i < cutOffs.length; i++) {
                 bwOut.write(i + "-gram\t");
-                for (int val = 0; val < sliceNo; val++) {
-//                    System.out.println("i=" + (i + 1) + " val=" + val + " " + cutOffs[i][val] + "\t");
+                for (int val = 0; val < cutOffs[i].length; val++) {
                     bwOut.write(cutOffs[i][val] + "\t");
                 }
                 bwOut.write("\r\n");
             }
+            bwOut.flush();
 
-
-            Iterator<String> it = ngrams.keySet().iterator();
-            while (it.hasNext()) {
-                String key = it.next();
-                bwOut.write(key + "\t" + ngrams.get(key) + "\r\n");
+            FileChannel outChannel = fos.getChannel();
+            for (Chunk chunk : chunks) {
+                FileInputStream fis = new FileInputStream(chunk.part);
+                try {
+                    FileChannel inChannel = fis.getChannel();
+                    long position = 0;
+                    long size = inChannel.size();
+                    while (position < size) {
+                        position += inChannel.transferTo(position, size - position, outChannel);
+                    }
+                } finally {
+                    fis.close();
+                }
+                chunk.part.delete();
             }
-            bwOut.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+        } finally {
+            fos.close();
         }
     }
 
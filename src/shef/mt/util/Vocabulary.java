@@ -0,0 +1,134 @@
+package shef.mt.util;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense int ids to words, starting at 0. Words can be looked up by a
+ * range of characters of a longer String, such as one token of an n-gram, so
+ * that no substring has to be created.
+ *
+ * @author GustavoH
+ */
+public class Vocabulary {
+
+    private String[] words;
+    private int[] table;
+    private int size;
+
+    public Vocabulary() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedSize the number of words the vocabulary should hold
+     * without being resized
+     */
+    public Vocabulary(int expectedSize) {
+        int capacity = 16;
+        while (capacity / 2 < expectedSize) {
+            capacity <<= 1;
+        }
+        table = new int[capacity];
+        Arrays.fill(table, -1);
+        words = new String[Math.max(16, expectedSize)];
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String word, CharSequence text, int start, int end) {
+        if (word.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * returns the id of a word, or -1 if it is not in the vocabulary
+     */
+    public int get(String word) {
+        return get(word, 0, word.length());
+    }
+
+    /**
+     * returns the id of the word formed by the characters start to end-1 of
+     * text, or -1 if it is not in the vocabulary
+     */
+    public int get(CharSequence text, int start, int end) {
+        int mask = table.length - 1;
+        int i = hash(text, start, end) & mask;
+        while (table[i] != -1) {
+            if (matches(words[table[i]], text, start, end)) {
+                return table[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * returns the id of a word, adding it to the vocabulary if necessary
+     */
+    public int add(String word) {
+        return add(word, 0, word.length());
+    }
+
+    /**
+     * returns the id of the word formed by the characters start to end-1 of
+     * text, adding it to the vocabulary if necessary
+     */
+    public int add(CharSequence text, int start, int end) {
+        int mask = table.length - 1;
+        int i = hash(text, start, end) & mask;
+        while (table[i] != -1) {
+            if (matches(words[table[i]], text, start, end)) {
+                return table[i];
+            }
+            i = (i + 1) & mask;
+        }
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+        }
+        int id = size++;
+        words[id] = text.subSequence(start, end).toString();
+        table[i] = id;
+        if (size > table.length / 2) {
+            rehash(table.length << 1);
+        }
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, -1);
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hash(words[id], 0, words[id].length()) & mask;
+            while (table[i] != -1) {
+                i = (i + 1) & mask;
+            }
+            table[i] = id;
+        }
+    }
+
+    /**
+     * returns the word with the given id
+     */
+    public String getWord(int id) {
+        return words[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}